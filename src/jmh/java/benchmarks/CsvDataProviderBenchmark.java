@@ -0,0 +1,76 @@
+package benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.infra.Blackhole;
+import utils.MappedCsvReader;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * Compares the original {@code Files.readAllLines} + {@code split(",")} data provider with
+ * {@link MappedCsvReader} over a generated userId,title file.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class CsvDataProviderBenchmark {
+
+    @Param({"1000", "100000", "1000000"})
+    public int rows;
+
+    private Path file;
+
+    @Setup(Level.Trial)
+    public void writeFile() throws IOException {
+        file = Files.createTempFile("bench", ".csv");
+        try (BufferedWriter out = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+            out.write("userId,title\n");
+            for (int i = 0; i < rows; i++) {
+                out.write(i + ",title number " + i + "\n");
+            }
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void deleteFile() throws IOException {
+        Files.deleteIfExists(file);
+    }
+
+    @Benchmark
+    public void readAllLinesSplit(Blackhole bh) throws IOException {
+        List<String> lines = Files.readAllLines(file);
+        Iterator<Object[]> it = lines.stream().skip(1)
+                .map(line -> line.split(","))
+                .map(arr -> new Object[]{arr[0], arr[1]})
+                .collect(Collectors.toList()).iterator();
+        while (it.hasNext()) {
+            bh.consume(it.next());
+        }
+    }
+
+    @Benchmark
+    public void mappedReader(Blackhole bh) throws IOException {
+        MappedCsvReader it = MappedCsvReader.open(file);
+        it.next();
+        while (it.hasNext()) {
+            bh.consume(it.next());
+        }
+    }
+}
@@ -0,0 +1,126 @@
+package benchmarks;
+
+import org.apache.poi.ss.usermodel.Cell;
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.ss.usermodel.Sheet;
+import org.apache.poi.ss.usermodel.Workbook;
+import org.apache.poi.xssf.streaming.SXSSFWorkbook;
+import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.infra.Blackhole;
+import utils.TypedDataSet;
+import utils.XlsxWorkbookLoader;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.Iterator;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the original {@code XSSFWorkbook} sheet reader of {@code ReqresExcelDataProvider} with
+ * a cold {@link XlsxWorkbookLoader} SAX parse and with iterating the {@link TypedDataSet} built
+ * from the same sheet, over a generated users sheet (name, job, expectedStatus, method, userId).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class ExcelDataProviderBenchmark {
+
+    private static final String SHEET = "users";
+
+    @Param({"1000", "100000"})
+    public int rows;
+
+    private Path file;
+
+    @Setup(Level.Trial)
+    public void writeWorkbook() throws IOException {
+        file = Files.createTempFile("bench", ".xlsx");
+        try (SXSSFWorkbook workbook = new SXSSFWorkbook(100); OutputStream out = Files.newOutputStream(file)) {
+            Sheet sheet = workbook.createSheet(SHEET);
+            String[] header = {"name", "job", "expectedStatus", "method", "userId"};
+            Row first = sheet.createRow(0);
+            for (int c = 0; c < header.length; c++) {
+                first.createCell(c).setCellValue(header[c]);
+            }
+            for (int r = 1; r <= rows; r++) {
+                Row row = sheet.createRow(r);
+                row.createCell(0).setCellValue("user " + r);
+                row.createCell(1).setCellValue(r % 2 == 0 ? "leader" : "zion resident");
+                row.createCell(2).setCellValue(r % 3 == 0 ? 200 : 201);
+                row.createCell(3).setCellValue(r % 3 == 0 ? "PUT" : "POST");
+                row.createCell(4).setCellValue(r % 3 == 0 ? String.valueOf(r % 12 + 1) : "");
+            }
+            workbook.write(out);
+            workbook.dispose();
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void deleteWorkbook() throws IOException {
+        Files.deleteIfExists(file);
+    }
+
+    /**
+     * Bumps the workbook's modification time so every invocation parses it again instead of hitting
+     * the loader's cache.
+     */
+    @State(Scope.Thread)
+    public static class Cold {
+        private long stamp = System.currentTimeMillis();
+
+        @Setup(Level.Invocation)
+        public void touch(ExcelDataProviderBenchmark benchmark) throws IOException {
+            stamp += 1000;
+            Files.setLastModifiedTime(benchmark.file, FileTime.fromMillis(stamp));
+        }
+    }
+
+    @Benchmark
+    public void xssfWorkbookReadSheet(Blackhole bh) throws IOException {
+        try (InputStream in = Files.newInputStream(file); Workbook workbook = new XSSFWorkbook(in)) {
+            Sheet sheet = workbook.getSheet(SHEET);
+            int colCount = sheet.getRow(0).getPhysicalNumberOfCells();
+            Iterator<Row> rowIterator = sheet.iterator();
+            rowIterator.next();
+            while (rowIterator.hasNext()) {
+                Row row = rowIterator.next();
+                Object[] rowData = new Object[colCount];
+                for (int j = 0; j < colCount; j++) {
+                    Cell cell = row.getCell(j);
+                    rowData[j] = cell != null ? cell.toString() : "";
+                }
+                bh.consume(rowData);
+            }
+        }
+    }
+
+    @Benchmark
+    public void saxLoaderColdParse(Cold cold, Blackhole bh) throws IOException {
+        Iterator<Object[]> it = XlsxWorkbookLoader.rows(file.toString(), SHEET);
+        while (it.hasNext()) {
+            bh.consume(it.next());
+        }
+    }
+
+    @Benchmark
+    public void typedDataSetRows(Blackhole bh) throws IOException {
+        Iterator<Object[]> it = TypedDataSet.fromXlsx(file.toString(), SHEET).rows();
+        while (it.hasNext()) {
+            bh.consume(it.next());
+        }
+    }
+}
@@ -0,0 +1,81 @@
+package benchmarks;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.restassured.path.json.JsonPath;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import utils.JsonExpectations;
+import utils.JsonSchema;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares ways of checking two fields of a response body: RestAssured's {@code jsonPath()} (what
+ * {@code response.jsonPath().getString(...)} does), a Jackson tree, and {@link JsonExpectations};
+ * and, for scale, validating the whole body against its {@link JsonSchema} as
+ * {@code SchemaValidator} does for every response. The body is a created object followed by
+ * {@code items} array entries, so larger values show what each approach pays for content it does
+ * not need.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class JsonExtractionBenchmark {
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+    private static final JsonExpectations CREATED = JsonExpectations.builder()
+            .expect("name", "Apple MacBook Pro 16")
+            .expect("data.userId", "42")
+            .build();
+    private static final JsonSchema CREATED_SCHEMA = JsonSchema.forResource("schemas/objects.json#/definitions/createdObject");
+
+    @Param({"0", "1000"})
+    public int items;
+
+    private byte[] body;
+
+    @Setup(Level.Trial)
+    public void buildBody() {
+        StringBuilder json = new StringBuilder("{\"id\": \"ff808181932badb6019341dd0b5e2f04\", \"name\": \"Apple MacBook Pro 16\", "
+                + "\"createdAt\": \"2024-11-20T10:15:30.123+00:00\", \"data\": {\"userId\": \"42\", \"year\": 2019, \"price\": 1849.99}, "
+                + "\"items\": [");
+        for (int i = 0; i < items; i++) {
+            json.append(i == 0 ? "" : ", ").append("{\"id\": ").append(i).append(", \"title\": \"item number ").append(i).append("\"}");
+        }
+        body = json.append("]}").toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Benchmark
+    public boolean restAssuredJsonPath() {
+        JsonPath path = new JsonPath(new String(body, StandardCharsets.UTF_8));
+        return "Apple MacBook Pro 16".equals(path.getString("name")) && "42".equals(path.getString("data.userId"));
+    }
+
+    @Benchmark
+    public boolean jacksonTree() throws IOException {
+        JsonNode root = MAPPER.readTree(body);
+        return "Apple MacBook Pro 16".equals(root.path("name").asText()) && "42".equals(root.path("data").path("userId").asText());
+    }
+
+    @Benchmark
+    public byte[] jsonExpectations() {
+        CREATED.verify(body);
+        return body;
+    }
+
+    @Benchmark
+    public List<String> jsonSchema() {
+        return CREATED_SCHEMA.validate(body);
+    }
+}
@@ -0,0 +1,48 @@
+package benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import utils.PayloadTemplate;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the original {@code String.format} request bodies with {@link PayloadTemplate}, both
+ * producing the UTF-8 bytes RestAssured sends.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class PayloadTemplateBenchmark {
+
+    private static final PayloadTemplate OBJECT = PayloadTemplate.compile("{\"name\": \"${name}\", \"data\": {\"userId\": \"${userId}\"}}");
+
+    @Param({"16", "2000"})
+    public int valueLength;
+
+    private String title;
+
+    @Setup(Level.Trial)
+    public void buildValue() {
+        title = String.join("", Collections.nCopies(valueLength, "t"));
+    }
+
+    @Benchmark
+    public byte[] stringFormat() {
+        return String.format("{\"name\": \"%s\", \"data\": {\"userId\": \"%s\"}}", title, "42").getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Benchmark
+    public byte[] payloadTemplate() {
+        return OBJECT.render(title, "42");
+    }
+}
@@ -2,80 +2,91 @@ package reqres;
 
 import io.restassured.http.ContentType;
 import io.restassured.response.Response;
-import org.testng.Assert;
 import org.testng.annotations.Test;
 import io.qameta.allure.Step;
 import io.qameta.allure.Description;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import utils.BaseTest;
+import utils.JsonExpectations;
+import utils.PayloadTemplate;
 
-import static io.restassured.RestAssured.given;
-
-public class ReqresApiCrudTest {
+public class ReqresApiCrudTest extends BaseTest {
 
     private static final Logger logger = LoggerFactory.getLogger(ReqresApiCrudTest.class);
+    private static final PayloadTemplate USER = PayloadTemplate.compile("{\"name\": \"${name}\", \"job\": \"${job}\"}");
+    private static final JsonExpectations USER_FIELDS = JsonExpectations.builder().expect("name").expect("job").build();
+    private static final JsonExpectations USER_ID = JsonExpectations.builder().expect("data.id").build();
+
+    @Override
+    protected String baseUri() {
+        return target("reqres", "https://reqres.in/api");
+    }
 
     @Test(dataProvider = "reqresGetUsersData", dataProviderClass = ReqresExcelDataProvider.class, description = "GET user(s) data-driven")
     @Description("GET user(s) data-driven from Excel")
-    public void testGetUsers(String userId, String expectedStatus) {
-        String endpoint = (userId == null || userId.isEmpty()) ? "/users" : "/users/" + userId;
-        logger.info("GET request to endpoint: {}", endpoint);
-        Response response = given()
-                .baseUri("https://reqres.in/api")
-                .when()
-                .get(endpoint);
-        logger.info("GET response: {}", response.asString());
-        response.then().statusCode(Integer.parseInt(expectedStatus));
-        if (userId != null && !userId.isEmpty() && expectedStatus.equals("200")) {
-            Assert.assertEquals(response.jsonPath().getString("data.id"), userId);
+    public void testGetUsers(String userId, int expectedStatus) {
+        logger.info("GET users with userId: {}", userId);
+        Response response = getUsers(userId);
+        logger.atDebug().addArgument(response::asString).log("GET response: {}");
+        response.then().statusCode(expectedStatus);
+        if (userId != null && !userId.isEmpty() && expectedStatus == 200) {
+            USER_ID.verify(response, userId);
         }
     }
 
     @Test(dataProvider = "reqresUsersData", dataProviderClass = ReqresExcelDataProvider.class, description = "CRUD user data-driven")
     @Description("CRUD user data-driven from Excel")
-    public void testUserCrud(String name, String job, String expectedStatus, String method, String userId) {
-        String endpoint = "/users" + ((userId != null && !userId.isEmpty()) ? "/" + userId : "");
-        String payload = null;
-        if (method.equalsIgnoreCase("POST") || method.equalsIgnoreCase("PUT")) {
-            payload = String.format("{\"name\": \"%s\", \"job\": \"%s\"}", name, job);
+    public void testUserCrud(String name, String job, int expectedStatus, String method, String userId) {
+        logger.info("{} user {} with name: {}, job: {}", method, userId, name, job);
+        Response response = sendUser(method, name, job, userId);
+        logger.atDebug().addArgument(method).addArgument(response::asString).log("{} response: {}");
+        response.then().statusCode(expectedStatus);
+        if (method.equalsIgnoreCase("POST") && expectedStatus == 201) {
+            USER_FIELDS.verify(response, name, job);
         }
-        logger.info("{} request to endpoint: {} with payload: {}", method, endpoint, payload);
-        Response response;
+        if (method.equalsIgnoreCase("PUT") && expectedStatus == 200) {
+            USER_FIELDS.verify(response, name, job);
+        }
+    }
+
+    /**
+     * GETs one user, or the user list when {@code userId} is blank.
+     */
+    public Response getUsers(String userId) {
+        return given()
+                .when()
+                .get(usersEndpoint(userId));
+    }
+
+    /**
+     * Sends one reqresUsersData row: POST, PUT or DELETE against {@code /users[/userId]}.
+     */
+    public Response sendUser(String method, String name, String job, String userId) {
+        String endpoint = usersEndpoint(userId);
         switch (method.toUpperCase()) {
             case "POST":
-                response = given()
-                        .baseUri("https://reqres.in/api")
+                return given()
                         .contentType(ContentType.JSON)
-                        .body(payload)
+                        .body(USER.render(name, job))
                         .when()
                         .post(endpoint);
-                break;
             case "PUT":
-                response = given()
-                        .baseUri("https://reqres.in/api")
+                return given()
                         .contentType(ContentType.JSON)
-                        .body(payload)
+                        .body(USER.render(name, job))
                         .when()
                         .put(endpoint);
-                break;
             case "DELETE":
-                response = given()
-                        .baseUri("https://reqres.in/api")
+                return given()
                         .when()
                         .delete(endpoint);
-                break;
             default:
                 throw new IllegalArgumentException("Unsupported method: " + method);
         }
-        logger.info("{} response: {}", method, response.asString());
-        response.then().statusCode(Integer.parseInt(expectedStatus));
-        if (method.equalsIgnoreCase("POST") && expectedStatus.equals("201")) {
-            Assert.assertEquals(response.jsonPath().getString("name"), name);
-            Assert.assertEquals(response.jsonPath().getString("job"), job);
-        }
-        if (method.equalsIgnoreCase("PUT") && expectedStatus.equals("200")) {
-            Assert.assertEquals(response.jsonPath().getString("name"), name);
-            Assert.assertEquals(response.jsonPath().getString("job"), job);
-        }
+    }
+
+    private static String usersEndpoint(String userId) {
+        return (userId == null || userId.isEmpty()) ? "/users" : "/users/" + userId;
     }
 }
@@ -2,67 +2,82 @@ package reqres;
 
 import io.restassured.http.ContentType;
 import io.restassured.response.Response;
-import org.testng.Assert;
 import org.testng.annotations.DataProvider;
 import org.testng.annotations.Test;
-import java.io.File;
-import java.io.FileInputStream;
+import utils.BaseTest;
+import utils.JsonExpectations;
+import utils.PayloadTemplate;
+import utils.RunState;
+import utils.SyntheticDataProvider;
+import utils.TypedDataSet;
+
 import java.io.IOException;
+import java.lang.reflect.Method;
 import java.util.Iterator;
-import org.apache.poi.ss.usermodel.*;
-import org.apache.poi.xssf.usermodel.XSSFWorkbook;
 
-import static io.restassured.RestAssured.given;
+public class ReqresApiTest extends BaseTest {
 
-public class ReqresApiTest {
+    private static final PayloadTemplate USER = PayloadTemplate.compile("{\"name\": \"${name}\", \"job\": \"${job}\"}");
+    private static final JsonExpectations USER_FIELDS = JsonExpectations.builder().expect("name").expect("job").build();
+    // Column types of excelData as testCreateUserPositive takes them, for replaying outside TestNG.
+    private static final Class<?>[] POST_TYPES = {String.class, String.class, int.class};
+    private static final JsonExpectations NO_JOB_USER = JsonExpectations.builder().expect("name", "NoJobUser").expect("job", null).build();
 
-    @DataProvider(name = "excelData")
-    public Object[][] excelDataProvider() throws IOException {
-        String excelPath = "src/test/resources/reqres/reqres_testdata.xlsx";
-        FileInputStream fis = new FileInputStream(new File(excelPath));
-        Workbook workbook = new XSSFWorkbook(fis);
-        Sheet sheet = workbook.getSheetAt(0);
-        int rowCount = sheet.getPhysicalNumberOfRows();
-        int colCount = sheet.getRow(0).getPhysicalNumberOfCells();
-        Object[][] data = new Object[rowCount - 1][colCount];
-        Iterator<Row> rowIterator = sheet.iterator();
-        rowIterator.next(); // skip header
-        int i = 0;
-        while (rowIterator.hasNext()) {
-            Row row = rowIterator.next();
-            for (int j = 0; j < colCount; j++) {
-                Cell cell = row.getCell(j);
-                data[i][j] = cell != null ? cell.toString() : "";
-            }
-            i++;
-        }
-        workbook.close();
-        fis.close();
-        return data;
+    @Override
+    protected String baseUri() {
+        return target("reqres", "https://reqres.in/api");
+    }
+
+    @DataProvider(name = "excelData", parallel = true)
+    public Iterator<Object[]> excelDataProvider(Method testMethod) throws IOException {
+        return RunState.rowsToRun(testMethod, postRows(testMethod.getParameterTypes()));
+    }
+
+    /**
+     * Every excelData row, for replaying outside TestNG.
+     */
+    public Iterator<Object[]> excelDataProvider() throws IOException {
+        return postRows(POST_TYPES);
+    }
+
+    private static Iterator<Object[]> postRows(Class<?>[] types) throws IOException {
+        // The sheet also holds the PUT and DELETE rows ReqresApiCrudTest runs; this test only POSTs.
+        return TypedDataSet.fromXlsx("src/test/resources/reqres/reqres_testdata.xlsx", "users")
+                .rowsWhere("method", "POST", types, "name", "job", "expectedStatus");
     }
 
     @Test(dataProvider = "excelData", description = "Positive: Create user with valid data")
-    public void testCreateUserPositive(String name, String job, String expectedStatus) {
-        String payload = String.format("{\"name\":\"%s\",\"job\":\"%s\"}", name, job);
-        Response response = given()
-                .baseUri("https://reqres.in/api")
-                .contentType(ContentType.JSON)
-                .body(payload)
-                .when()
-                .post("/users");
-        if ("201".equals(expectedStatus)) {
+    public void testCreateUserPositive(String name, String job, int expectedStatus) {
+        Response response = createUser(name, job);
+        if (expectedStatus == 201) {
             response.then().statusCode(201);
-            Assert.assertEquals(response.jsonPath().getString("name"), name);
-            Assert.assertEquals(response.jsonPath().getString("job"), job);
+            USER_FIELDS.verify(response, name, job);
         } else {
-            response.then().statusCode(Integer.parseInt(expectedStatus));
+            response.then().statusCode(expectedStatus);
         }
     }
 
+    @Test(dataProvider = "syntheticUsers", dataProviderClass = SyntheticDataProvider.class, groups = "synthetic", description = "Positive: Create generated users")
+    public void testCreateSyntheticUser(String name, String job) {
+        Response response = createUser(name, job);
+        response.then().statusCode(201);
+        USER_FIELDS.verify(response, name, job);
+    }
+
+    /**
+     * POSTs one excelData row.
+     */
+    public Response createUser(String name, String job) {
+        return given()
+                .contentType(ContentType.JSON)
+                .body(USER.render(name, job))
+                .when()
+                .post("/users");
+    }
+
     @Test(description = "Negative: Create user with empty payload")
     public void testCreateUserNegativeEmptyPayload() {
         given()
-                .baseUri("https://reqres.in/api")
                 .contentType(ContentType.JSON)
                 .body("{}")
                 .when()
@@ -75,13 +90,11 @@ public class ReqresApiTest {
     public void testCreateUserNegativeMissingJob() {
         String payload = "{\"name\":\"NoJobUser\"}";
         Response response = given()
-                .baseUri("https://reqres.in/api")
                 .contentType(ContentType.JSON)
                 .body(payload)
                 .when()
                 .post("/users");
         response.then().statusCode(201);
-        Assert.assertEquals(response.jsonPath().getString("name"), "NoJobUser");
-        Assert.assertNull(response.jsonPath().getString("job"));
+        NO_JOB_USER.verify(response);
     }
 }
@@ -1,47 +1,43 @@
 package reqres;
 
-import org.apache.poi.ss.usermodel.*;
-import org.apache.poi.xssf.usermodel.XSSFWorkbook;
 import org.testng.annotations.DataProvider;
+import utils.RunState;
+import utils.TypedDataSet;
 
-import java.io.File;
-import java.io.FileInputStream;
 import java.io.IOException;
-import java.util.ArrayList;
+import java.lang.reflect.Method;
 import java.util.Iterator;
-import java.util.List;
 
 public class ReqresExcelDataProvider {
-    @DataProvider(name = "reqresUsersData")
-    public static Object[][] usersData() throws IOException {
-        return readSheet("src/test/resources/reqres/reqres_testdata.xlsx", "users");
+    // Column types of each sheet as ReqresApiCrudTest takes them, for replaying outside TestNG.
+    private static final Class<?>[] USERS_TYPES = {String.class, String.class, int.class, String.class, String.class};
+    private static final Class<?>[] GET_USERS_TYPES = {String.class, int.class};
+
+    @DataProvider(name = "reqresUsersData", parallel = true)
+    public static Iterator<Object[]> usersData(Method testMethod) throws IOException {
+        return RunState.rowsToRun(testMethod, readSheet("users", testMethod.getParameterTypes()));
+    }
+
+    @DataProvider(name = "reqresGetUsersData", parallel = true)
+    public static Iterator<Object[]> getUsersData(Method testMethod) throws IOException {
+        return RunState.rowsToRun(testMethod, readSheet("get_users", testMethod.getParameterTypes()));
+    }
+
+    /**
+     * Every row of the users sheet, for replaying outside TestNG.
+     */
+    public static Iterator<Object[]> usersData() throws IOException {
+        return readSheet("users", USERS_TYPES);
     }
 
-    @DataProvider(name = "reqresGetUsersData")
-    public static Object[][] getUsersData() throws IOException {
-        return readSheet("src/test/resources/reqres/reqres_testdata.xlsx", "get_users");
+    /**
+     * Every row of the get_users sheet, for replaying outside TestNG.
+     */
+    public static Iterator<Object[]> getUsersData() throws IOException {
+        return readSheet("get_users", GET_USERS_TYPES);
     }
 
-    private static Object[][] readSheet(String filePath, String sheetName) throws IOException {
-        FileInputStream fis = new FileInputStream(new File(filePath));
-        Workbook workbook = new XSSFWorkbook(fis);
-        Sheet sheet = workbook.getSheet(sheetName);
-        int rowCount = sheet.getPhysicalNumberOfRows();
-        int colCount = sheet.getRow(0).getPhysicalNumberOfCells();
-        List<Object[]> data = new ArrayList<>();
-        Iterator<Row> rowIterator = sheet.iterator();
-        rowIterator.next(); // skip header
-        while (rowIterator.hasNext()) {
-            Row row = rowIterator.next();
-            Object[] rowData = new Object[colCount];
-            for (int j = 0; j < colCount; j++) {
-                Cell cell = row.getCell(j);
-                rowData[j] = cell != null ? cell.toString() : "";
-            }
-            data.add(rowData);
-        }
-        workbook.close();
-        fis.close();
-        return data.toArray(new Object[0][0]);
+    private static Iterator<Object[]> readSheet(String sheetName, Class<?>[] types) throws IOException {
+        return TypedDataSet.fromXlsx("src/test/resources/reqres/reqres_testdata.xlsx", sheetName).rows(types);
     }
 }
@@ -0,0 +1,87 @@
+package tests;
+
+import io.qameta.allure.Allure;
+import io.qameta.allure.Description;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+import reqres.ReqresApiCrudTest;
+import reqres.ReqresApiTest;
+import reqres.ReqresExcelDataProvider;
+import utils.CsvDataProvider;
+import utils.LoadGenerator;
+import utils.TestConfig;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Replays the functional data providers as a throughput run, sending each row through the same
+ * request builders the functional tests use. Run it with {@code mvn test -Pload}; see
+ * {@link LoadGenerator} for the {@code load.*} switches. {@code -Dload.scenarios} picks providers
+ * (default: all four) and {@code -Dload.maxErrorRate} fails the run above a fraction of unexpected
+ * responses. The report is logged, attached to Allure and written to {@code target/load-report.txt}.
+ */
+public class LoadTest {
+
+    private static final Logger logger = LoggerFactory.getLogger(LoadTest.class);
+
+    @Test(description = "Replay data-provider rows as load and report latency percentiles per endpoint")
+    @Description("Replay data-provider rows as load and report latency percentiles per endpoint")
+    public void replayDataProviders() throws IOException, InterruptedException {
+        List<String> selected = Arrays.asList(TestConfig.getString("load.scenarios",
+                "csvData,reqresUsersData,reqresGetUsersData,excelData").split("\\s*,\\s*"));
+        PostsApiTest posts = new PostsApiTest();
+        ReqresApiCrudTest crud = new ReqresApiCrudTest();
+        ReqresApiTest reqres = new ReqresApiTest();
+
+        List<LoadGenerator.Scenario> scenarios = new ArrayList<>();
+        if (selected.contains("csvData")) {
+            scenarios.add(LoadGenerator.scenario("csvData", CsvDataProvider.csvDataProvider(),
+                    row -> posts.createObject((String) row[0], (String) row[1]),
+                    row -> "POST /objects",
+                    (row, response) -> response.statusCode() == 200));
+        }
+        if (selected.contains("reqresUsersData")) {
+            scenarios.add(LoadGenerator.scenario("reqresUsersData", ReqresExcelDataProvider.usersData(),
+                    row -> crud.sendUser((String) row[3], (String) row[0], (String) row[1], (String) row[4]),
+                    row -> ((String) row[3]).toUpperCase() + usersPath((String) row[4]),
+                    (row, response) -> response.statusCode() == (Integer) row[2]));
+        }
+        if (selected.contains("reqresGetUsersData")) {
+            scenarios.add(LoadGenerator.scenario("reqresGetUsersData", ReqresExcelDataProvider.getUsersData(),
+                    row -> crud.getUsers((String) row[0]),
+                    row -> "GET" + usersPath((String) row[0]),
+                    (row, response) -> response.statusCode() == (Integer) row[1]));
+        }
+        if (selected.contains("excelData")) {
+            scenarios.add(LoadGenerator.scenario("excelData", reqres.excelDataProvider(),
+                    row -> reqres.createUser((String) row[0], (String) row[1]),
+                    row -> "POST /users",
+                    (row, response) -> response.statusCode() == 201));
+        }
+
+        LoadGenerator.Result result = LoadGenerator.fromConfig().run(scenarios);
+        String report = result.report();
+        logger.info("Load results:\n{}", result.summary());
+        Allure.addAttachment("Load report", "text/plain", report);
+        Path file = Paths.get("target", "load-report.txt");
+        Files.createDirectories(file.getParent());
+        Files.write(file, report.getBytes(StandardCharsets.UTF_8));
+
+        double maxErrorRate = TestConfig.getDouble("load.maxErrorRate", 0.01);
+        Assert.assertTrue(result.errorRate() <= maxErrorRate,
+                String.format("Error rate %.2f%% exceeds %.2f%%", result.errorRate() * 100, maxErrorRate * 100));
+    }
+
+    private static String usersPath(String userId) {
+        return userId == null || userId.isEmpty() ? " /users" : " /users/{id}";
+    }
+}
@@ -0,0 +1,505 @@
+package utils;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.eclipse.jetty.http.spi.JettyHttpServer;
+import org.eclipse.jetty.http2.server.HTTP2CServerConnectionFactory;
+import org.eclipse.jetty.io.SelectorManager;
+import org.eclipse.jetty.server.HttpConfiguration;
+import org.eclipse.jetty.server.HttpConnectionFactory;
+import org.eclipse.jetty.server.Server;
+import org.eclipse.jetty.server.ServerConnector;
+import org.eclipse.jetty.server.handler.ContextHandlerCollection;
+import org.eclipse.jetty.util.thread.QueuedThreadPool;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.channels.SelectableChannel;
+import java.time.Instant;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.zip.CRC32;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * In-process stand-in for the two APIs the suite exercises, built on the JDK's
+ * {@code com.sun.net.httpserver}. It serves:
+ * <ul>
+ *   <li>{@code /objects} with the restful-api.dev contract: POST creates with a fresh id, GET
+ *       lists or fetches, PUT replaces, PATCH merges, DELETE removes and later reads return 404;</li>
+ *   <li>{@code /api/users} with the reqres.in contract: twelve seeded users, paged GET, POST 201,
+ *       PUT/PATCH 200 echoing the body and DELETE 204.</li>
+ * </ul>
+ * State lives in memory for the life of the JVM. Tests reach it through {@code -Dapi.target=stub}
+ * (see {@link BaseTest}); {@code -Dstub.port} fixes the port, {@code -Dstub.threads} sizes the
+ * handler pool, {@code -Dstub.latencyMillis} delays every response to mimic a network round trip and
+ * {@code -Dstub.rejectRate} (0.0 to 1.0) answers that fraction of the shared stub's requests with
+ * a 429, as a rate-limited server would. Successful GETs carry an {@code ETag} and are answered
+ * with a 304 when the request's {@code If-None-Match} still matches. {@code -Dstub.gzip=true} (or
+ * {@link #withGzip()}) gzips responses for clients that accept it; it is off by default because
+ * RestAssured accepts gzip on every request. {@code -Dstub.h2c=true} serves through Jetty instead, which also
+ * speaks HTTP/2 over cleartext (h2c), by upgrade or with prior knowledge.
+ */
+public final class ApiStubServer {
+
+    private static final Logger logger = LoggerFactory.getLogger(ApiStubServer.class);
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+    private static final byte[] EMPTY_OBJECT = {'{', '}'};
+    private static final int USERS_PER_PAGE = 6;
+
+    private static ApiStubServer shared;
+
+    private final HttpServer server;
+    private final ExecutorService executor;
+    private final LongAdder http2Streams = new LongAdder();
+    private final LongAdder connections = new LongAdder();
+    private final long latencyMillis = TestConfig.getLong("stub.latencyMillis", 0);
+    private final double rejectRate;
+    private volatile boolean gzip = TestConfig.getBoolean("stub.gzip", false);
+    private final ConcurrentMap<String, ObjectNode> objects = new ConcurrentSkipListMap<>();
+    private final ConcurrentMap<Integer, ObjectNode> users = new ConcurrentHashMap<>();
+    private final AtomicLong nextObjectId = new AtomicLong(0xff80818190000000L);
+    private final AtomicInteger nextUserId = new AtomicInteger(100);
+
+    private ApiStubServer(int port, int threads, double rejectRate, boolean http2) throws IOException {
+        this.rejectRate = rejectRate;
+        seed();
+        InetSocketAddress address = new InetSocketAddress(InetAddress.getLoopbackAddress(), port);
+        if (http2) {
+            executor = null;
+            server = startH2c(address, threads);
+        } else {
+            AtomicInteger threadNumber = new AtomicInteger();
+            executor = Executors.newFixedThreadPool(threads, runnable -> {
+                Thread thread = new Thread(runnable, "api-stub-" + threadNumber.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            });
+            server = HttpServer.create(address, 1024);
+            server.setExecutor(executor);
+            server.createContext("/", this::handle);
+            server.start();
+        }
+    }
+
+    /**
+     * Jetty's {@code HttpServer} on a connector that takes HTTP/1.1 and h2c; {@code bind} picks up a
+     * connector already on the port. Handlers run on Jetty's own pool, which also holds a thread for
+     * the acceptor and each selector.
+     */
+    private HttpServer startH2c(InetSocketAddress address, int threads) throws IOException {
+        QueuedThreadPool pool = new QueuedThreadPool(threads + 8);
+        pool.setName("api-stub-h2c");
+        pool.setDaemon(true);
+        Server jetty = new Server(pool);
+        jetty.setHandler(new ContextHandlerCollection());
+        HttpConfiguration config = new HttpConfiguration();
+        ServerConnector connector = new ServerConnector(jetty,
+                new HttpConnectionFactory(config), new HTTP2CServerConnectionFactory(config));
+        connector.setHost(address.getAddress().getHostAddress());
+        connector.setPort(address.getPort());
+        connector.setAcceptQueueSize(1024);
+        connector.getSelectorManager().addEventListener(new SelectorManager.AcceptListener() {
+            @Override
+            public void onAccepted(SelectableChannel channel) {
+                connections.increment();
+            }
+        });
+        jetty.addConnector(connector);
+        HttpServer h2c = new JettyHttpServer(jetty, false);
+        h2c.bind(address, 1024);
+        h2c.createContext("/", this::handle);
+        h2c.start();
+        return h2c;
+    }
+
+    /**
+     * Starts a stub on the given port (0 for any free port).
+     */
+    public static ApiStubServer start(int port) throws IOException {
+        return start(port, 0, false);
+    }
+
+    /**
+     * Starts a stub that also speaks HTTP/2 over cleartext, by upgrade or with prior knowledge.
+     */
+    public static ApiStubServer startHttp2(int port) throws IOException {
+        return start(port, 0, true);
+    }
+
+    private static ApiStubServer start(int port, double rejectRate, boolean http2) throws IOException {
+        // Without TCP_NODELAY small keep-alive responses stall on delayed ACKs (~40 ms each).
+        if (System.getProperty("sun.net.httpserver.nodelay") == null) {
+            System.setProperty("sun.net.httpserver.nodelay", "true");
+        }
+        return new ApiStubServer(port, TestConfig.getInt("stub.threads", Math.max(4, Runtime.getRuntime().availableProcessors() * 2)), rejectRate, http2);
+    }
+
+    /**
+     * The JVM-wide stub used by {@code -Dapi.target=stub}, started on first use.
+     */
+    public static synchronized ApiStubServer shared() {
+        if (shared == null) {
+            try {
+                shared = start(TestConfig.getInt("stub.port", 0), TestConfig.getDouble("stub.rejectRate", 0),
+                        TestConfig.getBoolean("stub.h2c", false));
+            } catch (IOException e) {
+                throw new UncheckedIOException("Unable to start the API stub server", e);
+            }
+            logger.info("API stub server listening on {}", shared.baseUri());
+        }
+        return shared;
+    }
+
+    /**
+     * Stops the shared stub if one was started.
+     */
+    public static synchronized void stopShared() {
+        if (shared != null) {
+            shared.stop();
+            shared = null;
+        }
+    }
+
+    /**
+     * Gzips this stub's responses for clients that accept it, as {@code -Dstub.gzip=true} does.
+     */
+    public ApiStubServer withGzip() {
+        gzip = true;
+        return this;
+    }
+
+    /**
+     * Root URI without a trailing slash, e.g. {@code http://127.0.0.1:41234}.
+     */
+    public String baseUri() {
+        InetSocketAddress address = server.getAddress();
+        return "http://" + address.getAddress().getHostAddress() + ":" + address.getPort();
+    }
+
+    /**
+     * Requests this stub has answered over HTTP/2.
+     */
+    long http2Streams() {
+        return http2Streams.sum();
+    }
+
+    /**
+     * Connections accepted by a stub started with {@link #startHttp2(int)}.
+     */
+    long connections() {
+        return connections.sum();
+    }
+
+    public void stop() {
+        server.stop(0);
+        if (executor != null) {
+            executor.shutdownNow();
+        }
+    }
+
+    private void seed() {
+        String[][] seededObjects = {
+                {"Google Pixel 6 Pro", "color", "Cloudy White", "capacity", "128 GB"},
+                {"Apple iPhone 12 Mini, 256GB, Blue", null, null, null, null},
+                {"Apple iPhone 12 Pro Max", "color", "Cloudy White", "capacity GB", "512"},
+        };
+        for (int i = 0; i < seededObjects.length; i++) {
+            ObjectNode object = MAPPER.createObjectNode().put("id", String.valueOf(i + 1)).put("name", seededObjects[i][0]);
+            if (seededObjects[i][1] == null) {
+                object.putNull("data");
+            } else {
+                object.putObject("data").put(seededObjects[i][1], seededObjects[i][2]).put(seededObjects[i][3], seededObjects[i][4]);
+            }
+            objects.put(object.get("id").asText(), object);
+        }
+        String[][] names = {{"George", "Bluth"}, {"Janet", "Weaver"}, {"Emma", "Wong"}, {"Eve", "Holt"},
+                {"Charles", "Morris"}, {"Tracey", "Ramos"}, {"Michael", "Lawson"}, {"Lindsay", "Ferguson"},
+                {"Tobias", "Funke"}, {"Byron", "Fields"}, {"George", "Edwards"}, {"Rachel", "Howell"}};
+        for (int i = 0; i < names.length; i++) {
+            int id = i + 1;
+            users.put(id, MAPPER.createObjectNode()
+                    .put("id", id)
+                    .put("email", names[i][0].toLowerCase() + "." + names[i][1].toLowerCase() + "@reqres.in")
+                    .put("first_name", names[i][0])
+                    .put("last_name", names[i][1])
+                    .put("avatar", "https://reqres.in/img/faces/" + id + "-image.jpg"));
+        }
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        if (exchange.getProtocol().startsWith("HTTP/2")) {
+            http2Streams.increment();
+        }
+        try (InputStream in = exchange.getRequestBody()) {
+            byte[] body = in.readAllBytes();
+            if (latencyMillis > 0) {
+                Thread.sleep(latencyMillis);
+            }
+            if (rejectRate > 0 && ThreadLocalRandom.current().nextDouble() < rejectRate) {
+                send(exchange, 429, error("Too Many Requests"));
+                return;
+            }
+            String path = exchange.getRequestURI().getPath();
+            String method = exchange.getRequestMethod();
+            if (path.equals("/objects") || path.startsWith("/objects/")) {
+                handleObjects(exchange, method, segment(path, "/objects"), body);
+            } else if (path.equals("/api/users") || path.startsWith("/api/users/")) {
+                handleUsers(exchange, method, segment(path, "/api/users"), body);
+            } else {
+                send(exchange, 404, error("Not found: " + path));
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            send(exchange, 503, error("Stub stopping"));
+        } catch (IllegalArgumentException e) {
+            send(exchange, 400, error(e.getMessage()));
+        } catch (RuntimeException e) {
+            logger.warn("Stub request failed", e);
+            send(exchange, 500, error("Internal Server Error"));
+        } finally {
+            exchange.close();
+        }
+    }
+
+    private void handleObjects(HttpExchange exchange, String method, String id, byte[] body) throws IOException {
+        if (id == null) {
+            switch (method) {
+                case "GET":
+                    ArrayNode list = MAPPER.createArrayNode();
+                    objects.values().forEach(list::add);
+                    send(exchange, 200, list);
+                    return;
+                case "POST":
+                    ObjectNode created = objectFrom(body, Long.toHexString(nextObjectId.getAndIncrement()));
+                    created.put("createdAt", Instant.now().toString());
+                    objects.put(created.get("id").asText(), created.deepCopy().without("createdAt"));
+                    send(exchange, 200, created);
+                    return;
+                default:
+                    send(exchange, 405, error("Method " + method + " not allowed"));
+                    return;
+            }
+        }
+        ObjectNode existing = objects.get(id);
+        if (existing == null) {
+            send(exchange, 404, error("Object with id=" + id + " was not found."));
+            return;
+        }
+        switch (method) {
+            case "GET":
+                send(exchange, 200, existing);
+                break;
+            case "PUT":
+                ObjectNode replaced = objectFrom(body, id);
+                objects.put(id, replaced);
+                send(exchange, 200, replaced.deepCopy().put("updatedAt", Instant.now().toString()));
+                break;
+            case "PATCH":
+                JsonNode patch = parse(body);
+                ObjectNode patched = objects.computeIfPresent(id, (key, current) -> {
+                    ObjectNode copy = current.deepCopy();
+                    merge(copy, patch);
+                    return copy.put("id", key);
+                });
+                if (patched == null) {
+                    send(exchange, 404, error("Object with id=" + id + " was not found."));
+                } else {
+                    send(exchange, 200, patched.deepCopy().put("updatedAt", Instant.now().toString()));
+                }
+                break;
+            case "DELETE":
+                objects.remove(id);
+                send(exchange, 200, MAPPER.createObjectNode().put("message", "Object with id = " + id + " has been deleted."));
+                break;
+            default:
+                send(exchange, 405, error("Method " + method + " not allowed"));
+        }
+    }
+
+    private void handleUsers(HttpExchange exchange, String method, String id, byte[] body) throws IOException {
+        if (id == null) {
+            switch (method) {
+                case "GET":
+                    send(exchange, 200, userPage(pageParameter(exchange.getRequestURI().getQuery())));
+                    return;
+                case "POST":
+                    ObjectNode created = parse(body);
+                    created.put("id", String.valueOf(nextUserId.getAndIncrement())).put("createdAt", Instant.now().toString());
+                    send(exchange, 201, created);
+                    return;
+                default:
+                    send(exchange, 405, error("Method " + method + " not allowed"));
+                    return;
+            }
+        }
+        switch (method) {
+            case "GET":
+                ObjectNode user = parseUserId(id) == null ? null : users.get(parseUserId(id));
+                if (user == null) {
+                    send(exchange, 404, EMPTY_OBJECT);
+                } else {
+                    send(exchange, 200, MAPPER.createObjectNode().set("data", user));
+                }
+                break;
+            case "PUT":
+            case "PATCH":
+                send(exchange, 200, parse(body).put("updatedAt", Instant.now().toString()));
+                break;
+            case "DELETE":
+                send(exchange, 204, null);
+                break;
+            default:
+                send(exchange, 405, error("Method " + method + " not allowed"));
+        }
+    }
+
+    private ObjectNode userPage(int page) {
+        int total = users.size();
+        ObjectNode result = MAPPER.createObjectNode()
+                .put("page", page)
+                .put("per_page", USERS_PER_PAGE)
+                .put("total", total)
+                .put("total_pages", (total + USERS_PER_PAGE - 1) / USERS_PER_PAGE);
+        ArrayNode data = result.putArray("data");
+        for (int id = (page - 1) * USERS_PER_PAGE + 1; id <= Math.min(total, page * USERS_PER_PAGE); id++) {
+            ObjectNode user = users.get(id);
+            if (user != null) {
+                data.add(user);
+            }
+        }
+        return result;
+    }
+
+    private static int pageParameter(String query) {
+        if (query != null) {
+            for (String parameter : query.split("&")) {
+                if (parameter.startsWith("page=")) {
+                    try {
+                        return Math.max(1, Integer.parseInt(parameter.substring(5)));
+                    } catch (NumberFormatException e) {
+                        return 1;
+                    }
+                }
+            }
+        }
+        return 1;
+    }
+
+    private static Integer parseUserId(String id) {
+        try {
+            return Integer.valueOf(id);
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Returns the path segment after {@code prefix}, or null for the collection itself.
+     */
+    private static String segment(String path, String prefix) {
+        String rest = path.substring(prefix.length());
+        while (rest.startsWith("/")) {
+            rest = rest.substring(1);
+        }
+        int slash = rest.indexOf('/');
+        return rest.isEmpty() ? null : slash < 0 ? rest : rest.substring(0, slash);
+    }
+
+    private static ObjectNode objectFrom(byte[] body, String id) {
+        JsonNode request = parse(body);
+        ObjectNode object = MAPPER.createObjectNode().put("id", id);
+        object.set("name", request.path("name").isMissingNode() ? null : request.get("name"));
+        object.set("data", request.path("data").isMissingNode() ? null : request.get("data"));
+        return object;
+    }
+
+    private static ObjectNode parse(byte[] body) {
+        if (body.length == 0) {
+            return MAPPER.createObjectNode();
+        }
+        try {
+            JsonNode node = MAPPER.readTree(body);
+            if (node == null || !node.isObject()) {
+                throw new IllegalArgumentException("Request body must be a JSON object");
+            }
+            return (ObjectNode) node;
+        } catch (IOException e) {
+            throw new IllegalArgumentException("Invalid JSON: " + e.getMessage());
+        }
+    }
+
+    private static void merge(ObjectNode target, JsonNode patch) {
+        Iterator<Map.Entry<String, JsonNode>> fields = patch.fields();
+        while (fields.hasNext()) {
+            Map.Entry<String, JsonNode> field = fields.next();
+            JsonNode current = target.get(field.getKey());
+            if (current instanceof ObjectNode && field.getValue().isObject()) {
+                merge((ObjectNode) current, field.getValue());
+            } else {
+                target.set(field.getKey(), field.getValue());
+            }
+        }
+    }
+
+    private static ObjectNode error(String message) {
+        return MAPPER.createObjectNode().put("error", message);
+    }
+
+    private void send(HttpExchange exchange, int status, Object body) throws IOException {
+        if (body == null) {
+            exchange.sendResponseHeaders(status, -1);
+            return;
+        }
+        byte[] bytes = body instanceof byte[] ? (byte[]) body : MAPPER.writeValueAsBytes(body);
+        exchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+        if (status == 200 && "GET".equals(exchange.getRequestMethod())) {
+            CRC32 crc = new CRC32();
+            crc.update(bytes);
+            String etag = "\"" + Long.toHexString(crc.getValue()) + "-" + bytes.length + (gzipped(exchange) ? "-gzip" : "") + "\"";
+            exchange.getResponseHeaders().set("ETag", etag);
+            if (etag.equals(exchange.getRequestHeaders().getFirst("If-None-Match"))) {
+                exchange.sendResponseHeaders(304, -1);
+                return;
+            }
+        }
+        if (gzipped(exchange)) {
+            ByteArrayOutputStream compressed = new ByteArrayOutputStream(bytes.length / 4 + 32);
+            try (GZIPOutputStream out = new GZIPOutputStream(compressed)) {
+                out.write(bytes);
+            }
+            bytes = compressed.toByteArray();
+            exchange.getResponseHeaders().set("Content-Encoding", "gzip");
+            exchange.getResponseHeaders().set("Vary", "Accept-Encoding");
+        }
+        exchange.sendResponseHeaders(status, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+
+    private boolean gzipped(HttpExchange exchange) {
+        String accepted = exchange.getRequestHeaders().getFirst("Accept-Encoding");
+        return gzip && accepted != null && accepted.toLowerCase().contains("gzip");
+    }
+}
@@ -0,0 +1,80 @@
+package utils;
+
+import io.restassured.RestAssured;
+import io.restassured.http.ContentType;
+import io.restassured.response.Response;
+import io.restassured.specification.RequestSpecification;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+
+import static org.hamcrest.Matchers.equalTo;
+
+public class ApiStubServerTest extends StubServerTest {
+
+    @Test(description = "Objects get distinct ids, PATCH merges, PUT replaces and reads after DELETE return 404")
+    public void testObjectsLifecycle() {
+        String body = "{\"name\": \"Dup\", \"data\": {\"userId\": \"u1\", \"color\": \"red\"}}";
+        String first = request().contentType(ContentType.JSON).body(body).post("/objects")
+                .then().statusCode(200).body("name", equalTo("Dup")).extract().path("id");
+        String second = request().contentType(ContentType.JSON).body(body).post("/objects")
+                .then().statusCode(200).extract().path("id");
+        Assert.assertNotEquals(first, second);
+
+        request().contentType(ContentType.JSON).body("{\"data\": {\"color\": \"blue\"}}").patch("/objects/" + first)
+                .then().statusCode(200).body("data.userId", equalTo("u1")).body("data.color", equalTo("blue"));
+        request().contentType(ContentType.JSON).body("{\"name\": \"Replaced\"}").put("/objects/" + first)
+                .then().statusCode(200).body("name", equalTo("Replaced"));
+        request().get("/objects/" + first).then().statusCode(200).body("data", equalTo(null));
+
+        request().delete("/objects/" + first).then().statusCode(200);
+        request().get("/objects/" + first).then().statusCode(404);
+        request().get("/objects/invalid").then().statusCode(404);
+        Assert.assertTrue(request().get("/objects").then().statusCode(200).extract().jsonPath().getList("id").contains(second));
+    }
+
+    @Test(description = "Users follow the reqres status codes and echo request fields")
+    public void testUsersContract() {
+        request().get("/api/users/2").then().statusCode(200).body("data.id", equalTo(2));
+        request().get("/api/users/23").then().statusCode(404);
+        request().get("/api/users?page=2").then().statusCode(200).body("data[0].id", equalTo(7));
+        Response created = request().contentType(ContentType.JSON).body("{\"name\": \"Neo\", \"job\": \"The One\"}").post("/api/users");
+        created.then().statusCode(201).body("name", equalTo("Neo")).body("job", equalTo("The One"));
+        Assert.assertNotNull(created.path("id"));
+        request().contentType(ContentType.JSON).body("{\"name\": \"Neo\", \"job\": \"Architect\"}").put("/api/users/2")
+                .then().statusCode(200).body("job", equalTo("Architect"));
+        request().delete("/api/users/2").then().statusCode(204);
+    }
+
+    @Test(description = "Responses are only gzipped when the stub is asked to")
+    public void testGzipIsOptIn() throws IOException, InterruptedException {
+        Assert.assertEquals(contentEncoding(stub), TestConfig.getBoolean("stub.gzip", false) ? "gzip" : "identity");
+        ApiStubServer gzipping = ApiStubServer.start(0).withGzip();
+        try {
+            Assert.assertEquals(contentEncoding(gzipping), "gzip");
+        } finally {
+            gzipping.stop();
+        }
+    }
+
+    @Test(description = "Malformed JSON is rejected with 400")
+    public void testMalformedBody() {
+        request().contentType(ContentType.JSON).body("{\"name\": ").post("/objects").then().statusCode(400);
+    }
+
+    private static String contentEncoding(ApiStubServer server) throws IOException, InterruptedException {
+        HttpRequest request = HttpRequest.newBuilder(URI.create(server.baseUri() + "/objects/1"))
+                .header("Accept-Encoding", "gzip, deflate").build();
+        return HttpClient.newHttpClient().send(request, HttpResponse.BodyHandlers.discarding())
+                .headers().firstValue("Content-Encoding").orElse("identity");
+    }
+
+    private RequestSpecification request() {
+        return RestAssured.given().baseUri(stub.baseUri());
+    }
+}
@@ -1,15 +1,101 @@
 package utils;
 
 import io.restassured.RestAssured;
-import io.restassured.filter.log.LogDetail;
-import io.restassured.filter.log.RequestLoggingFilter;
-import io.restassured.filter.log.ResponseLoggingFilter;
-import org.testng.annotations.BeforeClass;
-
-public class BaseTest {
-    @BeforeClass
-    public void setup() {
-        RestAssured.baseURI = "https://api.restful-api.dev/";
-        RestAssured.filters(new RequestLoggingFilter(LogDetail.ALL), new ResponseLoggingFilter(LogDetail.ALL));
+import io.restassured.builder.RequestSpecBuilder;
+import io.restassured.specification.RequestSpecification;
+import org.testng.IHookCallBack;
+import org.testng.IHookable;
+import org.testng.ITestResult;
+import org.testng.annotations.AfterSuite;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.net.URI;
+
+/**
+ * Base class for API tests. Each thread gets its own {@link RequestSpecification} carrying the
+ * base URI and filters, so data-provider rows can run in parallel without touching RestAssured's
+ * global state. When rows are fanned out to virtual threads by {@link VirtualThreadRowInterceptor},
+ * the recorded outcome is replayed here instead of running the body a second time. Request and
+ * response logging follows {@code -Dlog.mode} (see {@link ExchangeRecorder}), and every call's
+ * latency is recorded by {@link LatencyRecorder} and reported at the end of the suite. Transient
+ * failures are retried with backoff by {@link RetryFilter}, and repeated GETs can be served by
+ * {@link ResponseCache}. Every response is checked against its JSON schema by
+ * {@link SchemaValidator}. {@code -Dhttp.transport=jdk} sends requests over HTTP/2 with
+ * {@link JdkHttpTransport}.
+ */
+public class BaseTest implements IHookable {
+
+    private static final Logger logger = LoggerFactory.getLogger(BaseTest.class);
+
+    private final ThreadLocal<RequestSpecification> requestSpec = ThreadLocal.withInitial(this::buildRequestSpec);
+
+    /**
+     * Base URI for this test class; override to target another API.
+     */
+    protected String baseUri() {
+        return target("objects", "https://api.restful-api.dev/");
+    }
+
+    /**
+     * Resolves the base URI of a named API. {@code -Dapi.<name>.baseUri} wins; otherwise
+     * {@code -Dapi.target=stub} points at the in-process {@link ApiStubServer}, keeping the live
+     * URI's path, and the default {@code live} uses {@code liveUri} as is.
+     */
+    protected static String target(String name, String liveUri) {
+        String override = TestConfig.getString("api." + name + ".baseUri", null);
+        if (override != null) {
+            return override;
+        }
+        if ("stub".equalsIgnoreCase(TestConfig.getString("api.target", "live"))) {
+            return ApiStubServer.shared().baseUri() + URI.create(liveUri).getPath();
+        }
+        return liveUri;
+    }
+
+    /**
+     * Starts a request from the current thread's specification.
+     */
+    protected RequestSpecification given() {
+        return RestAssured.given(requestSpec.get());
+    }
+
+    @Override
+    public void run(IHookCallBack callBack, ITestResult testResult) {
+        VirtualThreadRowInterceptor.RowOutcome outcome = VirtualThreadRowInterceptor.takeOutcome(testResult);
+        if (outcome == null) {
+            callBack.runTestMethod(testResult);
+        } else {
+            outcome.replay(testResult);
+        }
+    }
+
+    protected RequestSpecification buildRequestSpec() {
+        RequestSpecBuilder builder = new RequestSpecBuilder()
+                .setBaseUri(baseUri())
+                .setConfig(HttpClientPool.config())
+                .addFilters(ExchangeRecorder.loggingFilters())
+                .addFilter(EndpointThrottle.INSTANCE)
+                .addFilter(LatencyRecorder.INSTANCE)
+                .addFilter(RetryFilter.INSTANCE)
+                .addFilter(ResponseCache.INSTANCE)
+                .addFilter(SchemaValidator.INSTANCE);
+        if (JdkHttpTransport.selected()) {
+            builder.addFilter(JdkHttpTransport.INSTANCE);
+        }
+        return builder.build();
+    }
+
+    @AfterSuite(alwaysRun = true)
+    public void reportConnectionReuse() {
+        logger.info("HTTP connection reuse: {} requests over {} new connections ({}% reused)",
+                HttpClientPool.requestCount(), HttpClientPool.connectionCount(),
+                String.format("%.1f", HttpClientPool.reuseRatio() * 100));
+        LatencyRecorder.publish();
+        RetryFilter.publish();
+        ResponseCache.publish();
+        JdkHttpTransport.publish();
+        SchemaValidator.publish();
+        ApiStubServer.stopShared();
     }
 }
@@ -2,19 +2,24 @@ package utils;
 
 import org.testng.annotations.DataProvider;
 import java.io.IOException;
-import java.nio.file.Files;
+import java.lang.reflect.Method;
 import java.nio.file.Paths;
 import java.util.Iterator;
-import java.util.List;
-import java.util.stream.Collectors;
 
 public class CsvDataProvider {
-    @DataProvider(name = "csvData")
+    @DataProvider(name = "csvData", parallel = true)
+    public static Iterator<Object[]> csvDataProvider(Method testMethod) throws IOException {
+        return RunState.rowsToRun(testMethod, csvDataProvider());
+    }
+
+    /**
+     * Every row, for replaying outside TestNG.
+     */
     public static Iterator<Object[]> csvDataProvider() throws IOException {
-        List<String> lines = Files.readAllLines(Paths.get("src/test/resources/testdata.csv"));
-        return lines.stream().skip(1) // skip header
-                .map(line -> line.split(","))
-                .map(arr -> new Object[]{arr[0], arr[1]})
-                .collect(Collectors.toList()).iterator();
+        MappedCsvReader rows = MappedCsvReader.open(Paths.get("src/test/resources/testdata.csv"));
+        if (rows.hasNext()) {
+            rows.next(); // skip header
+        }
+        return rows;
     }
 }
@@ -0,0 +1,53 @@
+package utils;
+
+import io.restassured.filter.FilterContext;
+import io.restassured.filter.OrderedFilter;
+import io.restassured.response.Response;
+import io.restassured.specification.FilterableRequestSpecification;
+import io.restassured.specification.FilterableResponseSpecification;
+
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Semaphore;
+
+/**
+ * Caps the number of in-flight requests per resource so parallel data providers stay under
+ * server-side rate limits. Limits come from {@code -Dconcurrency.<resource>=N}
+ * (e.g. {@code -Dconcurrency.objects=4}), falling back to {@code -Dconcurrency.default};
+ * a limit of 0 or less means unlimited. Permits are shared JVM-wide across test classes.
+ */
+public final class EndpointThrottle implements OrderedFilter {
+
+    public static final EndpointThrottle INSTANCE = new EndpointThrottle();
+
+    private final ConcurrentMap<String, Optional<Semaphore>> permits = new ConcurrentHashMap<>();
+
+    private EndpointThrottle() {
+    }
+
+    @Override
+    public Response filter(FilterableRequestSpecification requestSpec, FilterableResponseSpecification responseSpec, FilterContext ctx) {
+        Optional<Semaphore> limit = permits.computeIfAbsent(Endpoints.resource(requestSpec.getUserDefinedPath()), EndpointThrottle::limitFor);
+        if (!limit.isPresent()) {
+            return ctx.next(requestSpec, responseSpec);
+        }
+        Semaphore semaphore = limit.get();
+        semaphore.acquireUninterruptibly();
+        try {
+            return ctx.next(requestSpec, responseSpec);
+        } finally {
+            semaphore.release();
+        }
+    }
+
+    @Override
+    public int getOrder() {
+        return OrderedFilter.LOWEST_PRECEDENCE - 100;
+    }
+
+    private static Optional<Semaphore> limitFor(String resource) {
+        int limit = TestConfig.getInt("concurrency." + resource, TestConfig.getInt("concurrency.default", 0));
+        return limit > 0 ? Optional.of(new Semaphore(limit, true)) : Optional.empty();
+    }
+}
@@ -0,0 +1,63 @@
+package utils;
+
+/**
+ * Naming helpers that group requests by the resource they target.
+ */
+public final class Endpoints {
+
+    private Endpoints() {
+    }
+
+    /**
+     * Returns the first segment of a request path, e.g. "objects" for "/objects/42".
+     */
+    public static String resource(String path) {
+        if (path == null) {
+            return "";
+        }
+        int start = 0;
+        while (start < path.length() && path.charAt(start) == '/') {
+            start++;
+        }
+        int end = start;
+        while (end < path.length() && path.charAt(end) != '/' && path.charAt(end) != '?') {
+            end++;
+        }
+        return path.substring(start, end);
+    }
+
+    /**
+     * Names a request for reporting by its method and path, with every segment that contains a
+     * digit replaced by {@code {id}}, e.g. "GET /users/{id}" for GET "/users/2?page=1".
+     */
+    public static String template(String method, String path) {
+        StringBuilder out = new StringBuilder(method.length() + 16).append(method).append(' ');
+        int end = path == null ? 0 : path.indexOf('?');
+        end = end < 0 ? path.length() : end;
+        int start = 0;
+        while (start < end) {
+            while (start < end && path.charAt(start) == '/') {
+                start++;
+            }
+            int segmentEnd = start;
+            boolean id = false;
+            while (segmentEnd < end && path.charAt(segmentEnd) != '/') {
+                id |= Character.isDigit(path.charAt(segmentEnd));
+                segmentEnd++;
+            }
+            if (segmentEnd > start) {
+                out.append('/');
+                if (id) {
+                    out.append("{id}");
+                } else {
+                    out.append(path, start, segmentEnd);
+                }
+            }
+            start = segmentEnd;
+        }
+        if (out.charAt(out.length() - 1) == ' ') {
+            out.append('/');
+        }
+        return out.toString();
+    }
+}
@@ -0,0 +1,189 @@
+package utils;
+
+import io.restassured.filter.Filter;
+import io.restassured.filter.FilterContext;
+import io.restassured.filter.OrderedFilter;
+import io.restassured.filter.log.LogDetail;
+import io.restassured.filter.log.RequestLoggingFilter;
+import io.restassured.filter.log.ResponseLoggingFilter;
+import io.restassured.response.Response;
+import io.restassured.specification.FilterableRequestSpecification;
+import io.restassured.specification.FilterableResponseSpecification;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Keeps the last few HTTP exchanges of each thread in a bounded ring buffer without rendering
+ * them. Only references to the request body and the (already buffered) response are held, so a
+ * passing test allocates next to nothing for logging; {@link FailureLogListener} renders the buffer
+ * when a test fails.
+ *
+ * <p>{@code -Dlog.mode} selects the behaviour: {@code failure} (default) records exchanges and logs
+ * them on failure, {@code all} restores full request/response logging for every call, and
+ * {@code off} disables both. {@code -Dlog.buffer.size} (16) bounds the exchanges kept per thread
+ * and {@code -Dlog.maxBodyChars} (2000) truncates rendered bodies.
+ */
+public final class ExchangeRecorder implements OrderedFilter {
+
+    public static final ExchangeRecorder INSTANCE = new ExchangeRecorder();
+
+    private static final int CAPACITY = Math.max(1, TestConfig.getInt("log.buffer.size", 16));
+    private static final int MAX_BODY_CHARS = TestConfig.getInt("log.maxBodyChars", 2000);
+    private static final long MAX_RESPONSE_BYTES = 1 << 20;
+    private static final ThreadLocal<Ring> RING = ThreadLocal.withInitial(Ring::new);
+
+    private ExchangeRecorder() {
+    }
+
+    /**
+     * Request/response filters for the configured {@code -Dlog.mode}.
+     */
+    public static List<Filter> loggingFilters() {
+        String mode = TestConfig.getString("log.mode", "failure");
+        if ("all".equalsIgnoreCase(mode)) {
+            return Arrays.asList(new RequestLoggingFilter(LogDetail.ALL), new ResponseLoggingFilter(LogDetail.ALL));
+        }
+        if ("off".equalsIgnoreCase(mode)) {
+            return Collections.emptyList();
+        }
+        return Collections.singletonList(INSTANCE);
+    }
+
+    @Override
+    public Response filter(FilterableRequestSpecification requestSpec, FilterableResponseSpecification responseSpec, FilterContext ctx) {
+        long start = System.nanoTime();
+        try {
+            Response response = ctx.next(requestSpec, responseSpec);
+            RING.get().add(new Exchange(requestSpec.getMethod(), requestSpec.getURI(), requestSpec.getBody(), response, null,
+                    System.nanoTime() - start));
+            return response;
+        } catch (Throwable e) {
+            RING.get().add(new Exchange(requestSpec.getMethod(), requestSpec.getURI(), requestSpec.getBody(), null, e,
+                    System.nanoTime() - start));
+            throw e;
+        }
+    }
+
+    @Override
+    public int getOrder() {
+        return OrderedFilter.HIGHEST_PRECEDENCE;
+    }
+
+    /**
+     * Removes and returns the current thread's recorded exchanges, oldest first.
+     */
+    public static List<Exchange> drain() {
+        return RING.get().drain();
+    }
+
+    /**
+     * Appends exchanges recorded on another thread, e.g. a virtual thread that ran a row.
+     */
+    public static void adopt(List<Exchange> exchanges) {
+        Ring ring = RING.get();
+        exchanges.forEach(ring::add);
+    }
+
+    public static void clear() {
+        RING.get().drain();
+    }
+
+    /**
+     * Renders exchanges for a log message or report attachment, truncating bodies.
+     */
+    public static String render(List<Exchange> exchanges) {
+        StringBuilder out = new StringBuilder();
+        for (Exchange exchange : exchanges) {
+            exchange.appendTo(out);
+        }
+        return out.toString();
+    }
+
+    /**
+     * One recorded request and its outcome.
+     */
+    public static final class Exchange {
+        private final String method;
+        private final String uri;
+        private final Object requestBody;
+        private final Response response;
+        private final Throwable failure;
+        private final long elapsedNanos;
+
+        Exchange(String method, String uri, Object requestBody, Response response, Throwable failure, long elapsedNanos) {
+            this.method = method;
+            this.uri = uri;
+            this.requestBody = requestBody;
+            this.response = response;
+            this.failure = failure;
+            this.elapsedNanos = elapsedNanos;
+        }
+
+        void appendTo(StringBuilder out) {
+            out.append(method).append(' ').append(uri).append(" (").append(elapsedNanos / 1_000_000).append(" ms)\n");
+            if (requestBody != null) {
+                out.append("  Request body: ").append(truncate(bodyText(requestBody))).append('\n');
+            }
+            if (response != null) {
+                out.append("  Response: ").append(response.getStatusLine()).append('\n');
+                out.append("  Response body: ").append(truncate(responseText())).append('\n');
+            } else {
+                out.append("  Failed: ").append(failure).append('\n');
+            }
+        }
+
+        private String responseText() {
+            String length = response.getHeader("Content-Length");
+            if (length != null && Long.parseLong(length) > MAX_RESPONSE_BYTES) {
+                // Probably streamed by the test; reading it here could exhaust the heap.
+                return "<" + length + " bytes, not shown>";
+            }
+            try {
+                return response.asString();
+            } catch (RuntimeException e) {
+                return "<unavailable: " + e.getMessage() + ">";
+            }
+        }
+
+        private static String bodyText(Object body) {
+            return body instanceof byte[] ? new String((byte[]) body, StandardCharsets.UTF_8) : String.valueOf(body);
+        }
+
+        private static String truncate(String text) {
+            if (MAX_BODY_CHARS <= 0 || text.length() <= MAX_BODY_CHARS) {
+                return text;
+            }
+            return text.substring(0, MAX_BODY_CHARS) + "... [" + (text.length() - MAX_BODY_CHARS) + " more chars]";
+        }
+    }
+
+    private static final class Ring {
+        private final Exchange[] slots = new Exchange[CAPACITY];
+        private int next;
+        private int size;
+
+        void add(Exchange exchange) {
+            slots[next] = exchange;
+            next = (next + 1) % slots.length;
+            size = Math.min(size + 1, slots.length);
+        }
+
+        List<Exchange> drain() {
+            if (size == 0) {
+                return Collections.emptyList();
+            }
+            List<Exchange> result = new ArrayList<>(size);
+            for (int i = size; i > 0; i--) {
+                int index = (next - i + slots.length) % slots.length;
+                result.add(slots[index]);
+                slots[index] = null;
+            }
+            size = 0;
+            return result;
+        }
+    }
+}
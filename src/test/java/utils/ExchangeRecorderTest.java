@@ -0,0 +1,41 @@
+package utils;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.io.IOException;
+import java.net.ConnectException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+public class ExchangeRecorderTest {
+
+    @Test(description = "Only the most recent exchanges are kept, oldest first, and draining empties the buffer")
+    public void testRingKeepsLatestExchanges() {
+        ExchangeRecorder.clear();
+        List<ExchangeRecorder.Exchange> recorded = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            recorded.add(exchange("/objects/" + i, "{}"));
+        }
+        ExchangeRecorder.adopt(recorded);
+
+        List<ExchangeRecorder.Exchange> drained = ExchangeRecorder.drain();
+        Assert.assertEquals(drained, recorded.subList(4, 20));
+        Assert.assertTrue(ExchangeRecorder.drain().isEmpty());
+    }
+
+    @Test(description = "Rendering shows the request line and failure, and truncates long bodies")
+    public void testRenderTruncatesBodies() {
+        String body = String.join("", Collections.nCopies(2500, "x"));
+        String rendered = ExchangeRecorder.render(Collections.singletonList(exchange("/objects", body.getBytes())));
+        Assert.assertTrue(rendered.startsWith("POST http://localhost/objects (3 ms)"), rendered);
+        Assert.assertTrue(rendered.contains("... [500 more chars]"), rendered);
+        Assert.assertTrue(rendered.contains("Failed: java.net.ConnectException: refused"), rendered);
+    }
+
+    private static ExchangeRecorder.Exchange exchange(String path, Object body) {
+        IOException failure = new ConnectException("refused");
+        return new ExchangeRecorder.Exchange("POST", "http://localhost" + path, body, null, failure, 3_000_000);
+    }
+}
@@ -0,0 +1,47 @@
+package utils;
+
+import io.qameta.allure.Allure;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.testng.IInvokedMethod;
+import org.testng.IInvokedMethodListener;
+import org.testng.ITestResult;
+
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Logs the HTTP exchanges captured by {@link ExchangeRecorder} when a test fails, and attaches them
+ * to the Allure report. {@code -Dlog.sampleRate} (0.0 to 1.0, default 0) also logs that fraction of
+ * passing tests for spot checks.
+ */
+public class FailureLogListener implements IInvokedMethodListener {
+
+    private static final Logger logger = LoggerFactory.getLogger(FailureLogListener.class);
+    private static final double SAMPLE_RATE = TestConfig.getDouble("log.sampleRate", 0);
+
+    @Override
+    public void beforeInvocation(IInvokedMethod method, ITestResult testResult) {
+        if (method.isTestMethod()) {
+            ExchangeRecorder.clear();
+        }
+    }
+
+    @Override
+    public void afterInvocation(IInvokedMethod method, ITestResult testResult) {
+        if (!method.isTestMethod()) {
+            return;
+        }
+        List<ExchangeRecorder.Exchange> exchanges = ExchangeRecorder.drain();
+        if (exchanges.isEmpty()) {
+            return;
+        }
+        if (testResult.getStatus() == ITestResult.FAILURE) {
+            String rendered = ExchangeRecorder.render(exchanges);
+            logger.warn("{} failed; last {} HTTP exchange(s):\n{}", testResult.getName(), exchanges.size(), rendered);
+            Allure.addAttachment("HTTP exchanges", "text/plain", rendered);
+        } else if (SAMPLE_RATE > 0 && ThreadLocalRandom.current().nextDouble() < SAMPLE_RATE) {
+            logger.info("Sampled HTTP exchange(s) for {}:\n{}", testResult.getName(), ExchangeRecorder.render(exchanges));
+        }
+    }
+}
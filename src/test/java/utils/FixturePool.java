@@ -0,0 +1,223 @@
+package utils;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+/**
+ * Throwaway server-side objects that tests only need for their id. {@link #start} creates
+ * {@code -Dfixtures.<name>.size} of them concurrently on {@link TestExecutors#requests()}, so the
+ * setup POSTs are off the tests' path, and {@link #lease()} hands them out to any thread. A test
+ * that leaves its fixture in place {@link Lease#close() returns} it and the next lease reuses it
+ * instead of creating another, which is a setup call saved; a test that deletes its fixture marks
+ * it {@link Lease#consumed() consumed}. When the pool runs dry a lease creates on demand.
+ *
+ * <p>{@link #close()} deletes every fixture that still exists, returned or not, with all deletes in
+ * flight at once, and logs how many setup calls the pool saved. The counts are also set as
+ * {@code fixtures.<name>.*} system properties for the surefire XML.
+ */
+public final class FixturePool {
+
+    private static final Logger logger = LoggerFactory.getLogger(FixturePool.class);
+    private static final long CLEANUP_TIMEOUT_SECONDS = TestConfig.getLong("fixtures.cleanupTimeoutSeconds", 30);
+
+    private final String name;
+    private final Supplier<String> create;
+    private final Consumer<String> delete;
+    private final Executor executor;
+    private final Queue<CompletableFuture<String>> prepared = new ConcurrentLinkedQueue<>();
+    private final Deque<String> returned = new ConcurrentLinkedDeque<>();
+    private final Set<String> live = ConcurrentHashMap.newKeySet();
+    private final AtomicInteger leases = new AtomicInteger();
+    private final AtomicInteger reused = new AtomicInteger();
+    private final AtomicInteger createdAhead = new AtomicInteger();
+    private final AtomicInteger createdOnDemand = new AtomicInteger();
+    private final AtomicInteger undeleted = new AtomicInteger();
+    private final AtomicBoolean closed = new AtomicBoolean();
+
+    private FixturePool(String name, Supplier<String> create, Consumer<String> delete, Executor executor) {
+        this.name = name;
+        this.create = create;
+        this.delete = delete;
+        this.executor = executor;
+    }
+
+    /**
+     * Starts creating {@code -Dfixtures.<name>.size} fixtures ({@code defaultSize} if unset) and
+     * returns at once. {@code create} makes one fixture and returns its id; {@code delete} removes one.
+     */
+    public static FixturePool start(String name, int defaultSize, Supplier<String> create, Consumer<String> delete) {
+        return start(name, TestConfig.getInt("fixtures." + name + ".size", defaultSize), create, delete, TestExecutors.requests());
+    }
+
+    static FixturePool start(String name, int size, Supplier<String> create, Consumer<String> delete, Executor executor) {
+        FixturePool pool = new FixturePool(name, create, delete, executor);
+        for (int i = 0; i < size; i++) {
+            pool.prepared.add(CompletableFuture.supplyAsync(pool::createAhead, executor));
+        }
+        return pool;
+    }
+
+    /**
+     * Checks out a fixture: a returned one if there is one, else one created at start (waiting for
+     * its POST if it is still in flight), else a new one created on the calling thread.
+     */
+    public Lease lease() {
+        if (closed.get()) {
+            throw new IllegalStateException("Fixture pool '" + name + "' is closed");
+        }
+        leases.incrementAndGet();
+        String id = returned.pollFirst();
+        if (id != null) {
+            reused.incrementAndGet();
+            return new Lease(id);
+        }
+        for (CompletableFuture<String> next = prepared.poll(); next != null; next = prepared.poll()) {
+            try {
+                id = next.join();
+                live.add(id);
+                return new Lease(id);
+            } catch (CompletionException | CancellationException e) {
+                // Already logged by createAhead; a fixture made on demand fails in the test instead.
+            }
+        }
+        createdOnDemand.incrementAndGet();
+        id = create.get();
+        live.add(id);
+        return new Lease(id);
+    }
+
+    /**
+     * Setup calls the pool saved: leases served by a fixture another test had returned.
+     */
+    public int setupCallsSaved() {
+        return reused.get();
+    }
+
+    /**
+     * Fixtures the pool has created, at start and on demand.
+     */
+    public int created() {
+        return createdAhead.get() + createdOnDemand.get();
+    }
+
+    public int leases() {
+        return leases.get();
+    }
+
+    /**
+     * Deletes every fixture that was not consumed, concurrently, and waits up to
+     * {@code -Dfixtures.cleanupTimeoutSeconds} (30) for the deletes before reporting.
+     */
+    public void close() {
+        if (!closed.compareAndSet(false, true)) {
+            return;
+        }
+        List<CompletableFuture<?>> deletes = new ArrayList<>();
+        for (CompletableFuture<String> next = prepared.poll(); next != null; next = prepared.poll()) {
+            // A failed creation was logged by createAhead and leaves nothing to delete.
+            deletes.add(next.thenAcceptAsync(this::deleteQuietly, executor).exceptionally(failure -> null));
+        }
+        for (String id : live) {
+            deletes.add(CompletableFuture.runAsync(() -> deleteQuietly(id), executor));
+        }
+        try {
+            CompletableFuture.allOf(deletes.toArray(new CompletableFuture<?>[0])).get(CLEANUP_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException | TimeoutException e) {
+            logger.warn("Fixture pool '{}' did not finish cleaning up within {}s", name, CLEANUP_TIMEOUT_SECONDS);
+        }
+        report();
+    }
+
+    private String createAhead() {
+        try {
+            String id = create.get();
+            createdAhead.incrementAndGet();
+            return id;
+        } catch (RuntimeException | AssertionError e) {
+            logger.warn("Fixture pool '{}' could not create a fixture ahead of time: {}", name, e.toString());
+            throw e;
+        } finally {
+            // Nothing joins these threads' recordings, so keep them out of the next test's.
+            ExchangeRecorder.clear();
+            LatencyRecorder.clear();
+            RetryFilter.clear();
+        }
+    }
+
+    private void deleteQuietly(String id) {
+        try {
+            delete.accept(id);
+            live.remove(id);
+        } catch (RuntimeException | AssertionError e) {
+            undeleted.incrementAndGet();
+            logger.warn("Fixture pool '{}' could not delete fixture {}: {}", name, id, e.toString());
+        } finally {
+            ExchangeRecorder.clear();
+            LatencyRecorder.clear();
+            RetryFilter.clear();
+        }
+    }
+
+    private void report() {
+        logger.info("Fixture pool '{}': {} leases, {} setup calls saved by reuse, {} created at start, {} on demand, {} left undeleted",
+                name, leases.get(), reused.get(), createdAhead.get(), createdOnDemand.get(), undeleted.get());
+        String prefix = "fixtures." + name + ".";
+        System.setProperty(prefix + "leases", String.valueOf(leases.get()));
+        System.setProperty(prefix + "setupCallsSaved", String.valueOf(reused.get()));
+        System.setProperty(prefix + "created", String.valueOf(created()));
+    }
+
+    /**
+     * One checked-out fixture. Closing it returns it to the pool unless it was consumed.
+     */
+    public final class Lease implements AutoCloseable {
+        private final String id;
+        private final AtomicBoolean done = new AtomicBoolean();
+
+        private Lease(String id) {
+            this.id = id;
+        }
+
+        public String id() {
+            return id;
+        }
+
+        /**
+         * Records that the test deleted the fixture, so it is neither reused nor cleaned up.
+         */
+        public void consumed() {
+            if (done.compareAndSet(false, true)) {
+                live.remove(id);
+            }
+        }
+
+        @Override
+        public void close() {
+            if (done.compareAndSet(false, true) && !closed.get()) {
+                returned.offerFirst(id);
+            }
+        }
+    }
+}
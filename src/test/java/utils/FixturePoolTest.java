@@ -0,0 +1,78 @@
+package utils;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class FixturePoolTest {
+
+    @Test(description = "Fixtures are created up front, returned ones are reused first, and a dry pool creates on demand")
+    public void testLeasesReuseReturnedFixtures() {
+        AtomicInteger ids = new AtomicInteger();
+        FixturePool pool = FixturePool.start("unit", 2, () -> "id-" + ids.incrementAndGet(), id -> { }, Runnable::run);
+        Assert.assertEquals(ids.get(), 2, "created at start");
+
+        FixturePool.Lease first = pool.lease();
+        FixturePool.Lease second = pool.lease();
+        first.close();
+        FixturePool.Lease reused = pool.lease();
+        FixturePool.Lease extra = pool.lease();
+
+        Assert.assertEquals(reused.id(), first.id());
+        Assert.assertNotEquals(second.id(), first.id());
+        Assert.assertEquals(extra.id(), "id-3");
+        Assert.assertEquals(pool.leases(), 4);
+        Assert.assertEquals(pool.created(), 3);
+        Assert.assertEquals(pool.setupCallsSaved(), 1);
+    }
+
+    @Test(description = "Closing deletes every fixture that was not consumed, including ones never leased")
+    public void testCloseDeletesUnconsumedFixtures() {
+        AtomicInteger ids = new AtomicInteger();
+        List<String> deleted = Collections.synchronizedList(new ArrayList<>());
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            FixturePool pool = FixturePool.start("unit", 3, () -> "id-" + ids.incrementAndGet(), deleted::add, executor);
+            FixturePool.Lease kept = pool.lease();
+            FixturePool.Lease consumed = pool.lease();
+            consumed.consumed();
+            consumed.close();
+            pool.close();
+
+            Set<String> expected = new HashSet<>(Arrays.asList("id-1", "id-2", "id-3"));
+            expected.remove(consumed.id());
+            Assert.assertTrue(expected.contains(kept.id()));
+            Assert.assertEquals(deleted.size(), 2, "each fixture is deleted once");
+            Assert.assertEquals(new HashSet<>(deleted), expected);
+            Assert.expectThrows(IllegalStateException.class, pool::lease);
+        } finally {
+            executor.shutdownNow();
+            System.clearProperty("fixtures.unit.leases");
+            System.clearProperty("fixtures.unit.setupCallsSaved");
+            System.clearProperty("fixtures.unit.created");
+        }
+    }
+
+    @Test(description = "A fixture that failed to be created up front is replaced by one created on demand")
+    public void testFailedCreationFallsBackToOnDemand() {
+        AtomicInteger calls = new AtomicInteger();
+        FixturePool pool = FixturePool.start("unit", 1, () -> {
+            if (calls.incrementAndGet() == 1) {
+                throw new AssertionError("Expected status code <200> but was <503>.");
+            }
+            return "id-" + calls.get();
+        }, id -> { }, Runnable::run);
+
+        Assert.assertEquals(pool.lease().id(), "id-2");
+        Assert.assertEquals(pool.created(), 1);
+    }
+}
@@ -0,0 +1,204 @@
+package utils;
+
+import io.restassured.config.HttpClientConfig;
+import io.restassured.config.RestAssuredConfig;
+import org.apache.http.HttpConnection;
+import org.apache.http.HttpRequestInterceptor;
+import org.apache.http.HttpResponseInterceptor;
+import org.apache.http.conn.ConnectionKeepAliveStrategy;
+import org.apache.http.conn.DnsResolver;
+import org.apache.http.conn.HttpInetSocketAddress;
+import org.apache.http.conn.scheme.PlainSocketFactory;
+import org.apache.http.conn.scheme.Scheme;
+import org.apache.http.conn.scheme.SchemeLayeredSocketFactory;
+import org.apache.http.conn.scheme.SchemeRegistry;
+import org.apache.http.conn.scheme.SchemeSocketFactory;
+import org.apache.http.conn.ssl.SSLSocketFactory;
+import org.apache.http.impl.client.DefaultConnectionKeepAliveStrategy;
+import org.apache.http.impl.client.DefaultHttpClient;
+import org.apache.http.impl.conn.PoolingClientConnectionManager;
+import org.apache.http.impl.conn.SystemDefaultDnsResolver;
+import org.apache.http.params.HttpParams;
+import org.apache.http.protocol.ExecutionContext;
+import org.apache.http.ssl.SSLContexts;
+
+import javax.net.ssl.SSLContext;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * One pool of keep-alive HTTP connections shared by every test class and thread. RestAssured
+ * normally builds a fresh client per request, which costs a TCP and TLS handshake each time; here
+ * connections stay in a pool between requests, idle ones are evicted in the background, and a
+ * single SSL context lets new connections resume cached TLS sessions. Each thread has its own
+ * client on top of the pool, because RestAssured removes and re-adds a client's decompression
+ * interceptors on every request and a shared client would let another thread's request through
+ * undecoded in between. DNS lookups, TCP connects, TLS handshakes and time to first byte are
+ * reported to {@link LatencyRecorder}.
+ *
+ * <p>Tunable with {@code -Dhttp.pool.maxTotal} (200), {@code -Dhttp.pool.maxPerRoute} (50),
+ * {@code -Dhttp.pool.idleSeconds} (30), {@code -Dhttp.keepAliveSeconds} (30, used when the server
+ * does not send a Keep-Alive timeout) and {@code -Dhttp.tls.sessionCacheSize} (1000).
+ */
+// RestAssured's HTTPBuilder only accepts an AbstractHttpClient, which the HttpClient 4.3+ builders do not produce.
+@SuppressWarnings("deprecation")
+public final class HttpClientPool {
+
+    private static final LongAdder REQUESTS = new LongAdder();
+    private static final LongAdder NEW_CONNECTIONS = new LongAdder();
+    private static final PoolingClientConnectionManager MANAGER = createManager();
+    private static final ThreadLocal<DefaultHttpClient> CLIENTS = ThreadLocal.withInitial(HttpClientPool::createClient);
+    // Not reuseHttpClientInstance(): that caches one client in the config for every thread.
+    private static final RestAssuredConfig CONFIG = RestAssuredConfig.config().httpClient(
+            HttpClientConfig.httpClientConfig().httpClientFactory(CLIENTS::get));
+
+    static {
+        long idleSeconds = TestConfig.getLong("http.pool.idleSeconds", 30);
+        ScheduledExecutorService evictor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "http-pool-evictor");
+            thread.setDaemon(true);
+            return thread;
+        });
+        evictor.scheduleWithFixedDelay(() -> {
+            MANAGER.closeExpiredConnections();
+            MANAGER.closeIdleConnections(idleSeconds, TimeUnit.SECONDS);
+        }, idleSeconds, Math.max(1, idleSeconds / 2), TimeUnit.SECONDS);
+    }
+
+    private HttpClientPool() {
+    }
+
+    /**
+     * RestAssured configuration that routes requests through the calling thread's client and the
+     * shared pool.
+     */
+    public static RestAssuredConfig config() {
+        return CONFIG;
+    }
+
+    public static long requestCount() {
+        return REQUESTS.sum();
+    }
+
+    public static long connectionCount() {
+        return NEW_CONNECTIONS.sum();
+    }
+
+    /**
+     * Fraction of requests that were served on an already open connection.
+     */
+    public static double reuseRatio() {
+        long requests = requestCount();
+        return requests == 0 ? 0 : 1 - (double) connectionCount() / requests;
+    }
+
+    private static PoolingClientConnectionManager createManager() {
+        SSLContext sslContext = SSLContexts.createDefault();
+        sslContext.getClientSessionContext().setSessionCacheSize(TestConfig.getInt("http.tls.sessionCacheSize", 1000));
+        SchemeRegistry schemes = new SchemeRegistry();
+        schemes.register(new Scheme("http", 80, new TimedSocketFactory()));
+        schemes.register(new Scheme("https", 443, new TimedTlsSocketFactory(new SSLSocketFactory(sslContext))));
+        DnsResolver dns = host -> {
+            long start = System.nanoTime();
+            try {
+                return SystemDefaultDnsResolver.INSTANCE.resolve(host);
+            } finally {
+                LatencyRecorder.phase(LatencyRecorder.Phase.DNS, System.nanoTime() - start);
+            }
+        };
+        PoolingClientConnectionManager manager = new PoolingClientConnectionManager(schemes, dns);
+        manager.setMaxTotal(TestConfig.getInt("http.pool.maxTotal", 200));
+        manager.setDefaultMaxPerRoute(TestConfig.getInt("http.pool.maxPerRoute", 50));
+        return manager;
+    }
+
+    private static DefaultHttpClient createClient() {
+        DefaultHttpClient client = new DefaultHttpClient(MANAGER);
+        long defaultKeepAlive = TimeUnit.SECONDS.toMillis(TestConfig.getLong("http.keepAliveSeconds", 30));
+        ConnectionKeepAliveStrategy serverKeepAlive = DefaultConnectionKeepAliveStrategy.INSTANCE;
+        client.setKeepAliveStrategy((response, context) -> {
+            long keepAlive = serverKeepAlive.getKeepAliveDuration(response, context);
+            return keepAlive > 0 ? keepAlive : defaultKeepAlive;
+        });
+        client.addRequestInterceptor((HttpRequestInterceptor) (request, context) -> LatencyRecorder.requestSent());
+        client.addResponseInterceptor((HttpResponseInterceptor) (response, context) -> {
+            LatencyRecorder.responseHeadersReceived();
+            REQUESTS.increment();
+            HttpConnection connection = (HttpConnection) context.getAttribute(ExecutionContext.HTTP_CONNECTION);
+            if (connection != null && connection.getMetrics().getRequestCount() <= 1) {
+                NEW_CONNECTIONS.increment();
+            }
+        });
+        return client;
+    }
+
+    /**
+     * Connects plain sockets, timing the TCP connect.
+     */
+    private static class TimedSocketFactory implements SchemeSocketFactory {
+        private final PlainSocketFactory plain = PlainSocketFactory.getSocketFactory();
+
+        @Override
+        public Socket createSocket(HttpParams params) {
+            return plain.createSocket(params);
+        }
+
+        @Override
+        public Socket connectSocket(Socket socket, InetSocketAddress remoteAddress, InetSocketAddress localAddress,
+                                    HttpParams params) throws IOException {
+            long start = System.nanoTime();
+            try {
+                return plain.connectSocket(socket, remoteAddress, localAddress, params);
+            } finally {
+                LatencyRecorder.phase(LatencyRecorder.Phase.CONNECT, System.nanoTime() - start);
+            }
+        }
+
+        @Override
+        public boolean isSecure(Socket socket) {
+            return false;
+        }
+    }
+
+    /**
+     * Connects a plain socket, then layers TLS on top, so the connect and the handshake are timed
+     * separately.
+     */
+    private static final class TimedTlsSocketFactory extends TimedSocketFactory implements SchemeLayeredSocketFactory {
+        private final SSLSocketFactory tls;
+
+        TimedTlsSocketFactory(SSLSocketFactory tls) {
+            this.tls = tls;
+        }
+
+        @Override
+        public Socket connectSocket(Socket socket, InetSocketAddress remoteAddress, InetSocketAddress localAddress,
+                                    HttpParams params) throws IOException {
+            Socket connected = super.connectSocket(socket, remoteAddress, localAddress, params);
+            String host = remoteAddress instanceof HttpInetSocketAddress
+                    ? ((HttpInetSocketAddress) remoteAddress).getHttpHost().getHostName()
+                    : remoteAddress.getHostName();
+            return createLayeredSocket(connected, host, remoteAddress.getPort(), params);
+        }
+
+        @Override
+        public Socket createLayeredSocket(Socket socket, String target, int port, HttpParams params) throws IOException {
+            long start = System.nanoTime();
+            try {
+                return tls.createLayeredSocket(socket, target, port, params);
+            } finally {
+                LatencyRecorder.phase(LatencyRecorder.Phase.TLS, System.nanoTime() - start);
+            }
+        }
+
+        @Override
+        public boolean isSecure(Socket socket) {
+            return tls.isSecure(socket);
+        }
+    }
+}
@@ -0,0 +1,60 @@
+package utils;
+
+import io.restassured.RestAssured;
+import org.apache.http.client.HttpClient;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.hamcrest.Matchers.equalTo;
+
+public class HttpClientPoolTest extends StubServerTest {
+
+    @Override
+    protected ApiStubServer startStub() throws IOException {
+        return ApiStubServer.start(0).withGzip();
+    }
+
+    @Test(description = "Each thread gets its own client, all on the one connection pool")
+    @SuppressWarnings("deprecation")
+    public void testClientPerThread() throws Exception {
+        HttpClient mine = client();
+        Assert.assertSame(client(), mine);
+        ExecutorService pool = Executors.newSingleThreadExecutor();
+        try {
+            HttpClient other = pool.submit(HttpClientPoolTest::client).get();
+            Assert.assertNotSame(other, mine);
+            Assert.assertSame(other.getConnectionManager(), mine.getConnectionManager());
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test(description = "Concurrent compressed responses are all decoded")
+    public void testConcurrentCompressedResponses() throws Exception {
+        ExecutorService pool = Executors.newFixedThreadPool(16);
+        try {
+            List<Future<?>> calls = new ArrayList<>();
+            for (int i = 0; i < 400; i++) {
+                calls.add(pool.submit(() -> RestAssured.given().config(HttpClientPool.config()).baseUri(stub.baseUri())
+                        .header("Accept-Encoding", "gzip").get("/objects/1")
+                        .then().statusCode(200).body("name", equalTo("Google Pixel 6 Pro"))));
+            }
+            for (Future<?> call : calls) {
+                call.get();
+            }
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    private static HttpClient client() {
+        return HttpClientPool.config().getHttpClientConfig().httpClientInstance();
+    }
+}
@@ -0,0 +1,394 @@
+package utils;
+
+import io.restassured.authentication.AuthenticationScheme;
+import io.restassured.authentication.ExplicitNoAuthScheme;
+import io.restassured.authentication.NoAuthScheme;
+import io.restassured.builder.ResponseBuilder;
+import io.restassured.config.EncoderConfig;
+import io.restassured.filter.FilterContext;
+import io.restassured.filter.OrderedFilter;
+import io.restassured.http.Header;
+import io.restassured.http.Headers;
+import io.restassured.response.Response;
+import io.restassured.specification.FilterableRequestSpecification;
+import io.restassured.specification.FilterableResponseSpecification;
+import org.apache.http.impl.EnglishReasonPhraseCatalog;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.StringJoiner;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.Inflater;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * Sends requests with the JDK's {@link HttpClient} instead of RestAssured's Apache client when
+ * {@code -Dhttp.transport=jdk} is set. Over HTTP/2 every request to a host shares one multiplexed
+ * connection, so hundreds of concurrent rows no longer need hundreds of sockets; cleartext servers
+ * are asked to upgrade ({@code h2c}) and servers that only speak HTTP/1.1 still work.
+ * {@code -Dhttp.jdk.version=HTTP_1_1} turns HTTP/2 off, {@code -Dhttp.jdk.compression} (true)
+ * asks for gzip or deflate responses and {@code -Dhttp.jdk.connectTimeoutSeconds} (30) bounds
+ * connecting.
+ *
+ * <p>It is the innermost filter: it sends the request RestAssured has built instead of passing it
+ * on, and returns a RestAssured {@link Response}, so {@code then()}, {@code jsonPath()} and the
+ * other filters work unchanged. Bodies of up to {@code -Dhttp.jdk.bufferBytes} (1 MiB) are read
+ * at once; longer or unsized ones are streamed. Multipart and form requests, and requests with a
+ * RestAssured auth scheme, still go to the Apache client; cookies are sent as a {@code Cookie}
+ * header. The send itself is asynchronous ({@link #sendAsync}); only the filter waits for it.
+ * {@link LatencyRecorder} gets the total and time to first byte but no connect or TLS timings,
+ * which the JDK client does not expose.
+ */
+public final class JdkHttpTransport implements OrderedFilter {
+
+    public static final JdkHttpTransport INSTANCE = new JdkHttpTransport(
+            HttpClient.Version.valueOf(TestConfig.getString("http.jdk.version", "HTTP_2")),
+            TestConfig.getBoolean("http.jdk.compression", true),
+            TestConfig.getLong("http.jdk.bufferBytes", 1 << 20),
+            Duration.ofSeconds(TestConfig.getLong("http.jdk.connectTimeoutSeconds", 30)));
+
+    private static final Logger logger = LoggerFactory.getLogger(JdkHttpTransport.class);
+    // Headers the JDK client sets itself and refuses from callers.
+    private static final Set<String> RESTRICTED = new HashSet<>(Arrays.asList(
+            "connection", "content-length", "expect", "host", "upgrade"));
+
+    private final HttpClient client;
+    private final boolean compression;
+    private final long bufferBytes;
+    private final LongAdder requests = new LongAdder();
+    private final LongAdder http2Responses = new LongAdder();
+    // Per origin, completes once the first request has been answered.
+    private final ConcurrentMap<String, CompletableFuture<Void>> firstRequests = new ConcurrentHashMap<>();
+    private final boolean http2;
+
+    JdkHttpTransport(HttpClient.Version version, boolean compression, long bufferBytes, Duration connectTimeout) {
+        this.client = HttpClient.newBuilder()
+                .version(version)
+                .followRedirects(HttpClient.Redirect.NORMAL)
+                .connectTimeout(connectTimeout)
+                .build();
+        this.compression = compression;
+        this.bufferBytes = bufferBytes;
+        this.http2 = version == HttpClient.Version.HTTP_2;
+    }
+
+    /**
+     * Whether {@code -Dhttp.transport=jdk} selects this transport for {@link BaseTest}.
+     */
+    public static boolean selected() {
+        String transport = TestConfig.getString("http.transport", "apache").toLowerCase(Locale.ROOT);
+        if (!transport.equals("apache") && !transport.equals("jdk")) {
+            throw new IllegalArgumentException("Expected -Dhttp.transport=apache|jdk, got: " + transport);
+        }
+        return transport.equals("jdk");
+    }
+
+    @Override
+    public Response filter(FilterableRequestSpecification requestSpec, FilterableResponseSpecification responseSpec, FilterContext ctx) {
+        if (!requestSpec.getMultiPartParams().isEmpty() || !requestSpec.getFormParams().isEmpty() || authenticated(requestSpec)) {
+            return ctx.next(requestSpec, responseSpec);
+        }
+        long[] headersAt = new long[1];
+        long start = System.nanoTime();
+        try {
+            Response response = sendAsync(requestSpec, headersAt).join();
+            LatencyRecorder.phase(LatencyRecorder.Phase.TTFB, headersAt[0] - start);
+            return response;
+        } catch (CompletionException e) {
+            // Rethrow the IOException itself, as the Apache client would, so RetryFilter sees it.
+            throw JdkHttpTransport.<RuntimeException>sneaky(e.getCause());
+        }
+    }
+
+    @Override
+    public int getOrder() {
+        // Innermost: everything else wraps the actual send.
+        return OrderedFilter.LOWEST_PRECEDENCE;
+    }
+
+    /**
+     * Sends the request without blocking; the future completes with the adapted response. A
+     * specification that has not been sent yet has no method and is sent as a GET.
+     */
+    public CompletableFuture<Response> sendAsync(FilterableRequestSpecification requestSpec) {
+        return sendAsync(requestSpec, new long[1]);
+    }
+
+    /**
+     * Requests sent, and how many were answered over HTTP/2.
+     */
+    public long requestCount() {
+        return requests.sum();
+    }
+
+    public long http2Count() {
+        return http2Responses.sum();
+    }
+
+    /**
+     * Logs how many requests went over HTTP/2, if the transport was used.
+     */
+    public static void publish() {
+        long requests = INSTANCE.requestCount();
+        if (requests > 0) {
+            logger.info("JDK HTTP transport: {} requests, {} over HTTP/2", requests, INSTANCE.http2Count());
+        }
+    }
+
+    private CompletableFuture<Response> sendAsync(FilterableRequestSpecification requestSpec, long[] headersAt) {
+        HttpRequest request = toRequest(requestSpec);
+        requests.increment();
+        HttpResponse.BodyHandler<InputStream> handler = info -> {
+            headersAt[0] = System.nanoTime();
+            long length = info.headers().firstValueAsLong("Content-Length").orElse(-1);
+            if (length >= 0 && length <= bufferBytes) {
+                return HttpResponse.BodySubscribers.mapping(HttpResponse.BodySubscribers.ofByteArray(), ByteArrayInputStream::new);
+            }
+            return HttpResponse.BodySubscribers.ofInputStream();
+        };
+        // Until a connection to an origin has become HTTP/2 the client opens a new one for every
+        // concurrent request, so 32 rows starting at once would open 32. The first request goes
+        // alone; the rest wait for its answer, successful or not, and then share its connection.
+        CompletableFuture<Void> opened = http2 ? new CompletableFuture<>() : null;
+        CompletableFuture<Void> first = http2 ? firstRequests.putIfAbsent(origin(request.uri()), opened) : null;
+        if (first != null) {
+            return first.thenCompose(ignored -> client.sendAsync(request, handler)).thenApply(this::toResponse);
+        }
+        if (opened == null) {
+            return client.sendAsync(request, handler).thenApply(this::toResponse);
+        }
+        CompletableFuture<HttpResponse<InputStream>> sent = upgrade(request).thenCompose(ignored -> client.sendAsync(request, handler));
+        sent.whenComplete((response, error) -> opened.complete(null));
+        return sent.thenApply(this::toResponse);
+    }
+
+    /**
+     * Servers switch to h2c only on a request without a body, so a first request that has one is
+     * preceded by an {@code OPTIONS} to the same URI; its answer, or failure, does not matter.
+     */
+    private CompletableFuture<?> upgrade(HttpRequest request) {
+        if (request.bodyPublisher().map(HttpRequest.BodyPublisher::contentLength).orElse(0L) == 0) {
+            return CompletableFuture.completedFuture(null);
+        }
+        HttpRequest options = HttpRequest.newBuilder(request.uri()).method("OPTIONS", HttpRequest.BodyPublishers.noBody()).build();
+        return client.sendAsync(options, HttpResponse.BodyHandlers.discarding()).handle((response, error) -> null);
+    }
+
+    /**
+     * Whether the request uses a RestAssured auth scheme, which the Apache client applies when it
+     * sends and so never shows up in the specification's headers.
+     */
+    private static boolean authenticated(FilterableRequestSpecification requestSpec) {
+        AuthenticationScheme auth = requestSpec.getAuthenticationScheme();
+        return auth != null && !(auth instanceof NoAuthScheme) && !(auth instanceof ExplicitNoAuthScheme);
+    }
+
+    private static String origin(URI uri) {
+        return uri.getScheme() + "://" + uri.getRawAuthority();
+    }
+
+    private HttpRequest toRequest(FilterableRequestSpecification requestSpec) {
+        HttpRequest.Builder builder = HttpRequest.newBuilder(URI.create(requestSpec.getURI()));
+        boolean acceptEncoding = false;
+        for (Header header : requestSpec.getHeaders()) {
+            String name = header.getName().toLowerCase(Locale.ROOT);
+            acceptEncoding |= name.equals("accept-encoding");
+            if (!RESTRICTED.contains(name) && !name.equals("content-type")) {
+                builder.header(header.getName(), header.getValue());
+            }
+        }
+        if (compression && !acceptEncoding) {
+            builder.header("Accept-Encoding", "gzip, deflate");
+        }
+        if (requestSpec.getCookies().exist()) {
+            StringJoiner cookies = new StringJoiner("; ");
+            requestSpec.getCookies().forEach(cookie -> cookies.add(cookie.hasValue() ? cookie.getName() + "=" + cookie.getValue() : cookie.getName()));
+            builder.header("Cookie", cookies.toString());
+        }
+        Object body = requestSpec.getBody();
+        String contentType = contentType(requestSpec, body);
+        if (contentType != null) {
+            builder.header("Content-Type", contentType);
+        }
+        String method = requestSpec.getMethod() == null ? "GET" : requestSpec.getMethod();
+        return builder.method(method, publisher(body, contentType, requestSpec.getConfig().getEncoderConfig())).build();
+    }
+
+    /**
+     * The Content-Type RestAssured would send: with the encoder's default charset appended to
+     * text bodies that do not name one.
+     */
+    private static String contentType(FilterableRequestSpecification requestSpec, Object body) {
+        String contentType = requestSpec.getContentType();
+        if (contentType == null || contentType.isEmpty() || !(body instanceof String) || contentType.toLowerCase(Locale.ROOT).contains("charset=")) {
+            return contentType == null || contentType.isEmpty() ? null : contentType;
+        }
+        EncoderConfig encoder = requestSpec.getConfig().getEncoderConfig();
+        return encoder.shouldAppendDefaultContentCharsetToContentTypeIfUndefined()
+                ? contentType + "; charset=" + encoder.defaultCharsetForContentType(contentType)
+                : contentType;
+    }
+
+    private static HttpRequest.BodyPublisher publisher(Object body, String contentType, EncoderConfig encoder) {
+        if (body == null) {
+            return HttpRequest.BodyPublishers.noBody();
+        }
+        if (body instanceof String) {
+            return HttpRequest.BodyPublishers.ofString((String) body, charset(contentType, encoder));
+        }
+        if (body instanceof byte[]) {
+            return HttpRequest.BodyPublishers.ofByteArray((byte[]) body);
+        }
+        if (body instanceof LargeJsonBody) {
+            // Known length: sent with Content-Length rather than chunked.
+            LargeJsonBody large = (LargeJsonBody) body;
+            return HttpRequest.BodyPublishers.fromPublisher(HttpRequest.BodyPublishers.ofInputStream(() -> large), large.length());
+        }
+        if (body instanceof InputStream) {
+            InputStream stream = (InputStream) body;
+            return HttpRequest.BodyPublishers.ofInputStream(() -> stream);
+        }
+        if (body instanceof File) {
+            try {
+                return HttpRequest.BodyPublishers.ofFile(((File) body).toPath());
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+        throw new IllegalArgumentException("Unsupported request body type: " + body.getClass().getName());
+    }
+
+    private static Charset charset(String contentType, EncoderConfig encoder) {
+        if (contentType != null) {
+            for (String parameter : contentType.split(";")) {
+                String trimmed = parameter.trim();
+                if (trimmed.toLowerCase(Locale.ROOT).startsWith("charset=")) {
+                    return Charset.forName(trimmed.substring(8).replace("\"", "").trim());
+                }
+            }
+        }
+        return contentType == null ? StandardCharsets.UTF_8 : Charset.forName(encoder.defaultCharsetForContentType(contentType));
+    }
+
+    private Response toResponse(HttpResponse<InputStream> response) {
+        if (response.version() == HttpClient.Version.HTTP_2) {
+            http2Responses.increment();
+        }
+        String encoding = response.headers().firstValue("Content-Encoding").orElse("").trim().toLowerCase(Locale.ROOT);
+        boolean decode = encoding.equals("gzip") || encoding.equals("x-gzip") || encoding.equals("deflate");
+        List<Header> headers = new ArrayList<>();
+        String contentType = null;
+        for (Map.Entry<String, List<String>> header : response.headers().map().entrySet()) {
+            String name = header.getKey();
+            if (name.startsWith(":") || decode && (name.equalsIgnoreCase("Content-Encoding") || name.equalsIgnoreCase("Content-Length"))) {
+                // Decoded bodies no longer match these, as with the Apache client's decompression.
+                continue;
+            }
+            for (String value : header.getValue()) {
+                headers.add(new Header(name, value));
+                if (name.equalsIgnoreCase("Content-Type")) {
+                    contentType = value;
+                }
+            }
+        }
+        String version = response.version() == HttpClient.Version.HTTP_2 ? "HTTP/2" : "HTTP/1.1";
+        String reason = EnglishReasonPhraseCatalog.INSTANCE.getReason(response.statusCode(), Locale.ENGLISH);
+        ResponseBuilder builder = new ResponseBuilder()
+                .setStatusCode(response.statusCode())
+                .setStatusLine(version + " " + response.statusCode() + (reason == null ? "" : " " + reason))
+                .setHeaders(new Headers(headers))
+                .setBody(decode ? new DecodingInputStream(response.body(), encoding) : response.body());
+        if (contentType != null) {
+            builder.setContentType(contentType);
+        }
+        return builder.build();
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T extends Throwable> T sneaky(Throwable throwable) throws T {
+        throw (T) throwable;
+    }
+
+    /**
+     * A gzip or deflate body decoded on first read. Opening the decoder reads the body's first
+     * bytes, which for a streamed body would block the client's executor if done when the
+     * response arrives; deferred, it happens on the thread that reads the body.
+     */
+    private static final class DecodingInputStream extends InputStream {
+        private final InputStream body;
+        private final String encoding;
+        private InputStream decoded;
+
+        DecodingInputStream(InputStream body, String encoding) {
+            this.body = body;
+            this.encoding = encoding;
+        }
+
+        @Override
+        public int read() throws IOException {
+            return decoded().read();
+        }
+
+        @Override
+        public int read(byte[] buffer, int off, int len) throws IOException {
+            return decoded().read(buffer, off, len);
+        }
+
+        @Override
+        public int available() throws IOException {
+            return decoded == null ? 0 : decoded.available();
+        }
+
+        @Override
+        public void close() throws IOException {
+            (decoded == null ? body : decoded).close();
+        }
+
+        private InputStream decoded() throws IOException {
+            if (decoded == null) {
+                decoded = open();
+            }
+            return decoded;
+        }
+
+        private InputStream open() throws IOException {
+            if (!encoding.equals("deflate")) {
+                return new GZIPInputStream(body);
+            }
+            // "deflate" should be zlib-wrapped, but some servers send raw deflate.
+            InputStream buffered = body.markSupported() ? body : new BufferedInputStream(body);
+            buffered.mark(2);
+            int cmf = buffered.read();
+            int flg = buffered.read();
+            buffered.reset();
+            boolean zlib = cmf >= 0 && flg >= 0 && (cmf & 0x0f) == 8 && ((cmf << 8) | flg) % 31 == 0;
+            return new InflaterInputStream(buffered, new Inflater(!zlib));
+        }
+    }
+}
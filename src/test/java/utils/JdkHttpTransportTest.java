@@ -0,0 +1,156 @@
+package utils;
+
+import com.sun.net.httpserver.HttpServer;
+import io.restassured.RestAssured;
+import io.restassured.http.ContentType;
+import io.restassured.response.Response;
+import io.restassured.specification.FilterableRequestSpecification;
+import io.restassured.specification.RequestSpecification;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.http.HttpClient;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.hasSize;
+
+public class JdkHttpTransportTest extends StubServerTest {
+
+    @Override
+    protected ApiStubServer startStub() throws IOException {
+        return ApiStubServer.startHttp2(0).withGzip();
+    }
+
+    @Test(description = "Concurrent CRUD flows share a handful of HTTP/2 connections")
+    public void testConcurrentFlowsAreMultiplexed() throws Exception {
+        JdkHttpTransport transport = transport(HttpClient.Version.HTTP_2);
+        long streamsBefore = stub.http2Streams();
+        long connectionsBefore = stub.connections();
+        ExecutorService pool = Executors.newFixedThreadPool(32);
+        try {
+            List<Future<?>> flows = new ArrayList<>();
+            for (int i = 0; i < 200; i++) {
+                String name = "Multiplexed " + i;
+                flows.add(pool.submit(() -> {
+                    String id = request(stub, transport).contentType(ContentType.JSON).body("{\"name\": \"" + name + "\"}")
+                            .post("/objects").then().statusCode(200).extract().path("id");
+                    request(stub, transport).get("/objects/" + id).then().statusCode(200).body("name", equalTo(name));
+                    request(stub, transport).contentType(ContentType.JSON).body("{\"name\": \"" + name + " (patched)\"}")
+                            .patch("/objects/" + id).then().statusCode(200).body("name", equalTo(name + " (patched)"));
+                    request(stub, transport).delete("/objects/" + id).then().statusCode(200);
+                    request(stub, transport).get("/objects/" + id).then().statusCode(404);
+                }));
+            }
+            for (Future<?> flow : flows) {
+                flow.get();
+            }
+        } finally {
+            pool.shutdown();
+        }
+
+        Assert.assertEquals(transport.requestCount(), 1000);
+        Assert.assertEquals(transport.http2Count(), 1000);
+        Assert.assertEquals(stub.http2Streams() - streamsBefore, 1000);
+        long connections = stub.connections() - connectionsBefore;
+        Assert.assertEquals(connections, 1, "Expected every flow to share one connection");
+    }
+
+    @Test(description = "gzip responses are decoded and lose their Content-Encoding, as with the Apache client")
+    public void testCompressedResponseIsDecoded() {
+        Response response = request(stub, transport(HttpClient.Version.HTTP_2)).get("/api/users?page=1");
+
+        response.then().statusCode(200).contentType(ContentType.JSON).body("data", hasSize(6));
+        Assert.assertEquals(response.statusLine(), "HTTP/2 200 OK");
+        Assert.assertNull(response.header("Content-Encoding"));
+        Assert.assertNull(response.header("Content-Length"));
+        Assert.assertEquals(response.header("Vary"), "Accept-Encoding");
+
+        Response identity = request(stub, transport(HttpClient.Version.HTTP_2)).header("Accept-Encoding", "identity").get("/api/users?page=1");
+        Assert.assertEquals(identity.asString(), response.asString());
+
+        // Nothing buffered: the body stays a stream and is decoded when the test reads it.
+        JdkHttpTransport streaming = new JdkHttpTransport(HttpClient.Version.HTTP_2, true, 0, Duration.ofSeconds(5));
+        Response streamed = streaming.sendAsync((FilterableRequestSpecification) RestAssured.given()
+                .baseUri(stub.baseUri()).basePath("/api/users").queryParam("page", 1)).join();
+        Assert.assertEquals(streamed.asString(), response.asString());
+    }
+
+    @Test(description = "Cookies are sent as a Cookie header, and auth schemes are left to the Apache client")
+    public void testCookiesAndAuth() throws IOException {
+        List<String> cookies = new CopyOnWriteArrayList<>();
+        List<String> authorizations = new CopyOnWriteArrayList<>();
+        HttpServer echo = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        echo.createContext("/", exchange -> {
+            cookies.add(String.valueOf(exchange.getRequestHeaders().getFirst("Cookie")));
+            authorizations.add(String.valueOf(exchange.getRequestHeaders().getFirst("Authorization")));
+            exchange.sendResponseHeaders(204, -1);
+            exchange.close();
+        });
+        echo.start();
+        try {
+            JdkHttpTransport transport = transport(HttpClient.Version.HTTP_1_1);
+            RequestSpecification request = RestAssured.given().baseUri("http://127.0.0.1:" + echo.getAddress().getPort()).filter(transport);
+            request.cookie("session", "abc").cookie("theme", "dark").get("/").then().statusCode(204);
+            Assert.assertEquals(transport.requestCount(), 1);
+            Assert.assertEquals(cookies.get(0), "session=abc; theme=dark");
+
+            RestAssured.given().baseUri("http://127.0.0.1:" + echo.getAddress().getPort()).filter(transport)
+                    .auth().preemptive().basic("user", "secret").get("/").then().statusCode(204);
+            Assert.assertEquals(transport.requestCount(), 2, "a preemptive header is sent by the JDK client");
+            Assert.assertEquals(authorizations.get(1), "Basic dXNlcjpzZWNyZXQ=");
+
+            RestAssured.given().baseUri("http://127.0.0.1:" + echo.getAddress().getPort()).filter(transport)
+                    .auth().basic("user", "secret").get("/").then().statusCode(204);
+            Assert.assertEquals(transport.requestCount(), 2, "a challenged scheme is left to the Apache client");
+        } finally {
+            echo.stop(0);
+        }
+    }
+
+    @Test(description = "Servers without HTTP/2 are still answered over HTTP/1.1")
+    public void testHttp1Fallback() throws IOException {
+        ApiStubServer http1Stub = ApiStubServer.start(0);
+        try {
+            JdkHttpTransport transport = transport(HttpClient.Version.HTTP_2);
+            Response response = request(http1Stub, transport).queryParam("page", 2).get("/api/users");
+
+            response.then().statusCode(200).body("page", equalTo(2));
+            Assert.assertEquals(response.statusLine(), "HTTP/1.1 200 OK");
+            Assert.assertEquals(transport.http2Count(), 0);
+        } finally {
+            http1Stub.stop();
+        }
+    }
+
+    @Test(description = "sendAsync completes without the caller blocking on the filter chain")
+    public void testSendAsync() {
+        JdkHttpTransport transport = transport(HttpClient.Version.HTTP_2);
+        List<CompletableFuture<Response>> responses = new ArrayList<>();
+        for (int i = 1; i <= 10; i++) {
+            responses.add(transport.sendAsync((FilterableRequestSpecification) RestAssured.given()
+                    .baseUri(stub.baseUri()).basePath("/objects/" + (i % 3 + 1))));
+        }
+        for (CompletableFuture<Response> response : responses) {
+            response.join().then().statusCode(200);
+        }
+    }
+
+    private static JdkHttpTransport transport(HttpClient.Version version) {
+        return new JdkHttpTransport(version, true, 1 << 20, Duration.ofSeconds(5));
+    }
+
+    private static RequestSpecification request(ApiStubServer stub, JdkHttpTransport transport) {
+        return RestAssured.given().baseUri(stub.baseUri()).filter(transport);
+    }
+}
@@ -0,0 +1,539 @@
+package utils;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.LongNode;
+import com.fasterxml.jackson.databind.node.MissingNode;
+import com.fasterxml.jackson.databind.node.TextNode;
+import io.restassured.response.Response;
+
+import java.io.ByteArrayInputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.function.Predicate;
+
+/**
+ * A table of response-body expectations compiled once and checked with a single streaming parse.
+ * Paths use the GPath subset the tests already use ({@code data.year}, {@code data['CPU model']},
+ * {@code [0].id}); the parser only materialises the values those paths reach, skips every other
+ * subtree, and stops reading once all paths are resolved. All mismatches are reported together,
+ * one line per field:
+ *
+ * <pre>
+ * private static final JsonExpectations CREATED = JsonExpectations.builder()
+ *         .expect("name")
+ *         .expect("data.userId")
+ *         .expect("data.year", 2019)
+ *         .build();
+ *
+ * CREATED.verify(response, title, userId);
+ * </pre>
+ *
+ * Expected strings are compared with the value's text, as {@code jsonPath().getString} does;
+ * numbers are compared numerically, so {@code 999.99f} matches {@code 999.99}. Paths given
+ * without a value take theirs from {@link #verify(Response, Object...)}, in declaration order.
+ *
+ * <p>{@link #verifyStreaming(Response, Object...)} reads the body straight off the connection
+ * instead of buffering it, and {@link Builder#expectTextLength} counts the characters of a string
+ * (or an array of strings, see {@link LargeJsonBody}) as its bytes go by while the parser skips
+ * it, so a response of any size is checked in constant memory as long as the other paths reach
+ * small values.
+ */
+public final class JsonExpectations {
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+    private static final Object PARAMETER = new Object();
+
+    private final List<Expectation> expectations;
+    private final PathNode root;
+    private final int parameterCount;
+
+    private JsonExpectations(List<Expectation> expectations) {
+        this.expectations = expectations;
+        this.root = new PathNode();
+        int parameters = 0;
+        for (int i = 0; i < expectations.size(); i++) {
+            PathNode node = root;
+            for (Object step : expectations.get(i).steps) {
+                node = node.child(step);
+            }
+            node.targets.add(i);
+            if (expectations.get(i).measured) {
+                node.measured.add(i);
+            }
+            if (expectations.get(i).expected == PARAMETER) {
+                parameters++;
+            }
+        }
+        this.parameterCount = parameters;
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * Checks the response body, taking values for parameter paths from {@code values} in order.
+     *
+     * @throws AssertionError listing every field that did not match
+     */
+    public void verify(Response response, Object... values) {
+        verify(response.asByteArray(), values);
+    }
+
+    /**
+     * Checks a raw JSON body; see {@link #verify(Response, Object...)}.
+     */
+    public void verify(byte[] body, Object... values) {
+        check(read(body), values);
+    }
+
+    /**
+     * Checks the response body as it arrives, without buffering it. The body can only be read
+     * once, so the response's body is not available afterwards (e.g. to failure logging).
+     */
+    public void verifyStreaming(Response response, Object... values) {
+        verify(response.asInputStream(), values);
+    }
+
+    /**
+     * Checks a JSON stream, reading only as far as the last expected path; closes the stream.
+     */
+    public void verify(InputStream body, Object... values) {
+        check(read(body), values);
+    }
+
+    private void check(JsonNode[] actual, Object[] values) {
+        if (values.length != parameterCount) {
+            throw new IllegalArgumentException("Expected " + parameterCount + " values but got " + values.length);
+        }
+        StringBuilder failures = new StringBuilder();
+        int parameter = 0;
+        for (int i = 0; i < expectations.size(); i++) {
+            Expectation expectation = expectations.get(i);
+            Object expected = expectation.expected == PARAMETER ? values[parameter++] : expectation.expected;
+            JsonNode node = actual[i] == null ? MissingNode.getInstance() : actual[i];
+            String mismatch;
+            if (expectation.measured) {
+                mismatch = node.isNumber() && node.longValue() == (Long) expected ? null
+                        : "expected " + expected + " chars of text but was "
+                        + (node.isNumber() ? node.longValue() + " chars" : node.isMissingNode() ? "missing" : node.asText());
+            } else if (expectation.check != null) {
+                mismatch = expectation.check.test(node) ? null : "expected " + expected + " but was " + describe(node);
+            } else {
+                mismatch = compare(expected, node);
+            }
+            if (mismatch != null) {
+                failures.append("\n  ").append(expectation.path).append(": ").append(mismatch);
+            }
+        }
+        if (failures.length() > 0) {
+            throw new AssertionError("Response body did not match:" + failures);
+        }
+    }
+
+    /**
+     * Returns the value at each expectation's path, in declaration order; unresolved paths are null.
+     */
+    JsonNode[] read(byte[] body) {
+        return read(new ByteArrayInputStream(body));
+    }
+
+    private JsonNode[] read(InputStream body) {
+        StringLengths lengths = new StringLengths(body);
+        try (JsonParser parser = MAPPER.getFactory().createParser(lengths)) {
+            JsonNode[] actual = new JsonNode[expectations.size()];
+            if (parser.nextToken() != null) {
+                walk(parser, lengths, root, actual, new int[]{expectations.size()});
+            }
+            lengths.finish(actual);
+            return actual;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Response body is not valid JSON", e);
+        }
+    }
+
+    /**
+     * Walks the value at the parser's current token. Returns false once every path is resolved, so
+     * callers can stop reading the rest of the document.
+     */
+    private static boolean walk(JsonParser parser, StringLengths lengths, PathNode node, JsonNode[] actual, int[] remaining)
+            throws IOException {
+        if (node.measureOnly()) {
+            long[] total = {0};
+            JsonNode notText = measure(parser, lengths, total);
+            for (int target : node.targets) {
+                if (notText == null) {
+                    lengths.report(target, total);
+                } else {
+                    actual[target] = notText;
+                }
+                remaining[0]--;
+            }
+            return remaining[0] > 0;
+        }
+        if (!node.targets.isEmpty()) {
+            JsonNode value = MAPPER.readTree(parser);
+            resolve(node, value, actual, remaining);
+            return remaining[0] > 0;
+        }
+        JsonToken token = parser.currentToken();
+        if (token == JsonToken.START_OBJECT && !node.fields.isEmpty()) {
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                PathNode child = node.fields.get(parser.currentName());
+                parser.nextToken();
+                if (child == null) {
+                    parser.skipChildren();
+                } else if (!walk(parser, lengths, child, actual, remaining)) {
+                    return false;
+                }
+            }
+        } else if (token == JsonToken.START_ARRAY && !node.indexes.isEmpty()) {
+            int index = 0;
+            while (parser.nextToken() != JsonToken.END_ARRAY) {
+                PathNode child = node.indexes.get(index++);
+                if (child == null) {
+                    parser.skipChildren();
+                } else if (!walk(parser, lengths, child, actual, remaining)) {
+                    return false;
+                }
+            }
+        } else {
+            parser.skipChildren();
+        }
+        return true;
+    }
+
+    /**
+     * Adds the length of the string, or of the array of strings, at the parser's current token to
+     * {@code total} as {@code lengths} counts it, without the parser reading the text. Returns a
+     * {@link TextNode} describing the value if it is neither, otherwise null.
+     */
+    private static JsonNode measure(JsonParser parser, StringLengths lengths, long[] total) throws IOException {
+        JsonToken token = parser.currentToken();
+        if (token == JsonToken.VALUE_STRING) {
+            lengths.add(parser.currentTokenLocation().getByteOffset(), total);
+            return null;
+        }
+        if (token != JsonToken.START_ARRAY) {
+            JsonNode value = MAPPER.readTree(parser);
+            return TextNode.valueOf("not text: " + describe(value));
+        }
+        for (token = parser.nextToken(); token != JsonToken.END_ARRAY; token = parser.nextToken()) {
+            if (token != JsonToken.VALUE_STRING) {
+                parser.skipChildren();
+                skipToEndOfArray(parser);
+                return TextNode.valueOf("not text: an array holding " + token);
+            }
+            lengths.add(parser.currentTokenLocation().getByteOffset(), total);
+        }
+        return null;
+    }
+
+    private static void skipToEndOfArray(JsonParser parser) throws IOException {
+        for (JsonToken token = parser.nextToken(); token != JsonToken.END_ARRAY; token = parser.nextToken()) {
+            parser.skipChildren();
+        }
+    }
+
+    private static JsonNode measure(JsonNode value) {
+        if (value.isTextual()) {
+            return LongNode.valueOf(value.textValue().length());
+        }
+        if (value.isArray()) {
+            long length = 0;
+            for (JsonNode element : value) {
+                if (!element.isTextual()) {
+                    return TextNode.valueOf("not text: an array holding " + element.getNodeType());
+                }
+                length += element.textValue().length();
+            }
+            return LongNode.valueOf(length);
+        }
+        return value.isMissingNode() ? value : TextNode.valueOf("not text: " + describe(value));
+    }
+
+    /**
+     * Assigns an already materialised subtree to this node's targets and those of its descendants.
+     */
+    private static void resolve(PathNode node, JsonNode value, JsonNode[] actual, int[] remaining) {
+        for (int target : node.targets) {
+            actual[target] = node.measured.contains(target) ? measure(value) : value;
+            remaining[0]--;
+        }
+        node.fields.forEach((name, child) -> resolve(child, value.path(name), actual, remaining));
+        node.indexes.forEach((index, child) -> resolve(child, value.path(index), actual, remaining));
+    }
+
+    private static String compare(Object expected, JsonNode node) {
+        boolean matches;
+        if (expected == null) {
+            matches = node.isMissingNode() || node.isNull();
+        } else if (node.isMissingNode() || node.isNull()) {
+            matches = false;
+        } else if (expected instanceof Number) {
+            matches = node.isNumber() && node.decimalValue().compareTo(new BigDecimal(expected.toString())) == 0;
+        } else if (expected instanceof Boolean) {
+            matches = node.isBoolean() && node.booleanValue() == (Boolean) expected;
+        } else if (expected instanceof CharSequence) {
+            matches = node.isValueNode() && node.asText().contentEquals((CharSequence) expected);
+        } else {
+            matches = Objects.equals(MAPPER.valueToTree(expected), node);
+        }
+        return matches ? null : "expected " + (expected instanceof CharSequence ? "\"" + expected + "\"" : expected)
+                + " but was " + describe(node);
+    }
+
+    private static String describe(JsonNode node) {
+        if (node.isMissingNode()) {
+            return "missing";
+        }
+        String text = node.toString();
+        return text.length() > 200 ? text.substring(0, 200) + "..." : text;
+    }
+
+    /**
+     * Splits {@code data['CPU model'][0].id} into field-name and index steps.
+     */
+    static List<Object> parsePath(String path) {
+        List<Object> steps = new ArrayList<>();
+        int i = 0;
+        while (i < path.length()) {
+            char c = path.charAt(i);
+            if (c == '.') {
+                i++;
+            } else if (c == '[') {
+                int close = path.indexOf(']', i);
+                if (close < 0) {
+                    throw new IllegalArgumentException("Unclosed '[' in path: " + path);
+                }
+                String inner = path.substring(i + 1, close).trim();
+                if (inner.length() >= 2 && (inner.charAt(0) == '\'' || inner.charAt(0) == '"')) {
+                    steps.add(inner.substring(1, inner.length() - 1));
+                } else {
+                    try {
+                        steps.add(Integer.parseInt(inner));
+                    } catch (NumberFormatException e) {
+                        throw new IllegalArgumentException("Invalid index '" + inner + "' in path: " + path, e);
+                    }
+                }
+                i = close + 1;
+            } else {
+                int end = i;
+                while (end < path.length() && path.charAt(end) != '.' && path.charAt(end) != '[') {
+                    end++;
+                }
+                steps.add(path.substring(i, end));
+                i = end;
+            }
+        }
+        return steps;
+    }
+
+    public static final class Builder {
+        private final List<Expectation> expectations = new ArrayList<>();
+
+        private Builder() {
+        }
+
+        /**
+         * Expects the value at {@code path} to equal {@code expected}.
+         */
+        public Builder expect(String path, Object expected) {
+            expectations.add(new Expectation(path, expected, null, false));
+            return this;
+        }
+
+        /**
+         * Expects the value at {@code path} to equal the next value passed to {@code verify}.
+         */
+        public Builder expect(String path) {
+            expectations.add(new Expectation(path, PARAMETER, null, false));
+            return this;
+        }
+
+        /**
+         * Expects the value at {@code path} (a {@code MissingNode} if absent) to satisfy {@code check}.
+         */
+        public Builder expect(String path, Predicate<JsonNode> check, String description) {
+            expectations.add(new Expectation(path, description, check, false));
+            return this;
+        }
+
+        /**
+         * Expects the string at {@code path}, or the strings in the array at {@code path}, to
+         * hold {@code length} characters in total. The value is measured token by token and never
+         * held in memory as a whole, unless another path reaches the same value or one inside it.
+         */
+        public Builder expectTextLength(String path, long length) {
+            expectations.add(new Expectation(path, length, null, true));
+            return this;
+        }
+
+        public JsonExpectations build() {
+            return new JsonExpectations(new ArrayList<>(expectations));
+        }
+    }
+
+    /**
+     * Counts the characters of each JSON string in the bytes passing through to the parser, so a
+     * string the parser skips unread can still be measured: the parser says where the string
+     * starts, and its length is known once this stream has passed the closing quote. Strings are
+     * remembered only as long as the parser could still be behind them.
+     */
+    private static final class StringLengths extends FilterInputStream {
+        // Far more than the parser buffers ahead of its current token.
+        private static final long WINDOW = 1 << 16;
+
+        // {start offset, chars} of recently ended strings, oldest first.
+        private final ArrayDeque<long[]> ended = new ArrayDeque<>();
+        private final Map<Integer, long[]> totals = new HashMap<>();
+        private long position;
+        private long openStart = -1;
+        private long openChars;
+        private long[] openTotal;
+        private boolean escaped;
+        private int hexDigits;
+
+        StringLengths(InputStream in) {
+            super(in);
+        }
+
+        /**
+         * Adds the length of the string starting at byte {@code start} to {@code total}, now or
+         * when the string ends.
+         */
+        void add(long start, long[] total) throws IOException {
+            if (start == openStart) {
+                openTotal = total;
+                return;
+            }
+            while (!ended.isEmpty() && ended.peekFirst()[0] < start) {
+                ended.removeFirst();
+            }
+            long[] string = ended.peekFirst();
+            if (string == null || string[0] != start) {
+                throw new IOException("No JSON string starts at byte " + start);
+            }
+            total[0] += string[1];
+        }
+
+        void report(int target, long[] total) {
+            totals.put(target, total);
+        }
+
+        /**
+         * Reads to the end of a string still being measured, then fills in the reported lengths.
+         */
+        void finish(JsonNode[] actual) throws IOException {
+            byte[] skipped = new byte[8192];
+            while (openTotal != null && read(skipped, 0, skipped.length) >= 0) {
+                // Counted as it is read.
+            }
+            totals.forEach((target, total) -> actual[target] = LongNode.valueOf(total[0]));
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = super.read();
+            if (b >= 0) {
+                scan(b);
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] buffer, int offset, int length) throws IOException {
+            int read = super.read(buffer, offset, length);
+            for (int i = offset; i < offset + read; i++) {
+                scan(buffer[i] & 0xff);
+            }
+            return read;
+        }
+
+        @Override
+        public boolean markSupported() {
+            return false;
+        }
+
+        private void scan(int b) {
+            if (openStart < 0) {
+                if (b == '"') {
+                    openStart = position;
+                    openChars = 0;
+                }
+            } else if (hexDigits > 0) {
+                hexDigits--;
+            } else if (escaped) {
+                escaped = false;
+                hexDigits = b == 'u' ? 4 : 0;
+            } else if (b == '\\') {
+                escaped = true;
+                openChars++;
+            } else if (b == '"') {
+                if (openTotal != null) {
+                    openTotal[0] += openChars;
+                    openTotal = null;
+                }
+                ended.addLast(new long[]{openStart, openChars});
+                while (ended.peekFirst()[0] < position - WINDOW && ended.size() > 1) {
+                    ended.removeFirst();
+                }
+                openStart = -1;
+            } else if ((b & 0xc0) != 0x80) {
+                // A UTF-8 lead byte; four-byte sequences are surrogate pairs in Java.
+                openChars += (b & 0xf8) == 0xf0 ? 2 : 1;
+            }
+            position++;
+        }
+    }
+
+    private static final class Expectation {
+        final String path;
+        final List<Object> steps;
+        final Object expected;
+        final Predicate<JsonNode> check;
+        final boolean measured;
+
+        Expectation(String path, Object expected, Predicate<JsonNode> check, boolean measured) {
+            this.path = path;
+            this.steps = parsePath(path);
+            this.expected = expected;
+            this.check = check;
+            this.measured = measured;
+        }
+    }
+
+    private static final class PathNode {
+        final Map<String, PathNode> fields = new HashMap<>();
+        final Map<Integer, PathNode> indexes = new HashMap<>();
+        final List<Integer> targets = new ArrayList<>(1);
+        final Set<Integer> measured = new HashSet<>(1);
+
+        /**
+         * True when every target here only needs the value's text length and nothing lies below.
+         */
+        boolean measureOnly() {
+            return !targets.isEmpty() && measured.size() == targets.size() && fields.isEmpty() && indexes.isEmpty();
+        }
+
+        PathNode child(Object step) {
+            return step instanceof Integer
+                    ? indexes.computeIfAbsent((Integer) step, index -> new PathNode())
+                    : fields.computeIfAbsent((String) step, name -> new PathNode());
+        }
+    }
+}
@@ -0,0 +1,125 @@
+package utils;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+public class JsonExpectationsTest {
+
+    private static final byte[] OBJECT = ("{\"id\": \"ff80\", \"name\": \"Apple MacBook Pro 16\", \"data\": {\"year\": 2019,"
+            + " \"price\": 1849.99, \"CPU model\": \"Intel Core i9\", \"tags\": [\"a\", {\"b\": true}], \"note\": null}}")
+            .getBytes(StandardCharsets.UTF_8);
+
+    @Test(description = "Dotted, bracketed and indexed paths are split into field and index steps")
+    public void testParsePath() {
+        Assert.assertEquals(JsonExpectations.parsePath("data['CPU model'][1].b"), Arrays.asList("data", "CPU model", 1, "b"));
+        Assert.assertEquals(JsonExpectations.parsePath("[0].id"), Arrays.asList(0, "id"));
+    }
+
+    @Test(description = "Strings, numbers, booleans, nulls and parameters all match in one pass")
+    public void testMatchingBody() {
+        JsonExpectations.builder()
+                .expect("name")
+                .expect("data.year", 2019)
+                .expect("data.year", "2019")
+                .expect("data.price", 1849.99f)
+                .expect("data['CPU model']", "Intel Core i9")
+                .expect("data.tags[1].b", true)
+                .expect("data.note", null)
+                .expect("data.missing", null)
+                .expect("data.tags", node -> node.size() == 2, "two tags")
+                .build()
+                .verify(OBJECT, "Apple MacBook Pro 16");
+    }
+
+    @Test(description = "Every mismatching field is reported, not just the first")
+    public void testReportsEachMismatch() {
+        JsonExpectations expectations = JsonExpectations.builder()
+                .expect("name", "Other")
+                .expect("data.year", 2020)
+                .expect("data['Hard disk size']", "1 TB")
+                .expect("id", "ff80")
+                .build();
+        try {
+            expectations.verify(OBJECT);
+            Assert.fail("Expected an AssertionError");
+        } catch (AssertionError e) {
+            Assert.assertEquals(e.getMessage(), "Response body did not match:"
+                    + "\n  name: expected \"Other\" but was \"Apple MacBook Pro 16\""
+                    + "\n  data.year: expected 2020 but was 2019"
+                    + "\n  data['Hard disk size']: expected \"1 TB\" but was missing");
+        }
+    }
+
+    @Test(description = "Nested paths under a materialised subtree and array elements resolve")
+    public void testNestedAndArrayPaths() {
+        JsonNode[] values = JsonExpectations.builder()
+                .expect("data", node -> true, "any")
+                .expect("data.tags[0]", "a")
+                .expect("[0].id", null)
+                .build()
+                .read(OBJECT);
+        Assert.assertEquals(values[1].asText(), "a");
+        Assert.assertNull(values[2]);
+
+        JsonNode[] list = JsonExpectations.builder().expect("[1].id", "2").build()
+                .read("[{\"id\": \"1\"}, {\"id\": \"2\"}, {\"id\": \"3\"}]".getBytes(StandardCharsets.UTF_8));
+        Assert.assertEquals(list[0].asText(), "2");
+    }
+
+    @Test(description = "Text lengths are summed over string chunks read from a stream, and mismatches name the length")
+    public void testTextLengthFromStream() {
+        long chars = LargeJsonBody.CHUNK_CHARS * 2L + 5;
+        JsonExpectations.builder()
+                .expect("name", "LargePayload")
+                .expectTextLength("data.bigField", chars)
+                .build()
+                .verify(LargeJsonBody.of("{\"name\": \"LargePayload\", \"data\": {\"bigField\": ", 'A', chars, "}}"));
+        JsonExpectations.builder()
+                .expectTextLength("data.bigField", chars)
+                .build()
+                .verify(LargeJsonBody.of("{\"data\": {\"bigField\": ", 'A', chars, LargeJsonBody.CHUNK_CHARS, "}}"));
+
+        JsonExpectations tooShort = JsonExpectations.builder()
+                .expectTextLength("data.year", 4)
+                .expectTextLength("data['CPU model']", 20)
+                .expectTextLength("data.tags", 1)
+                .build();
+        AssertionError error = Assert.expectThrows(AssertionError.class, () -> tooShort.verify(new ByteArrayInputStream(OBJECT)));
+        Assert.assertTrue(error.getMessage().contains("data.year: expected 4 chars of text but was not text: 2019"), error.getMessage());
+        Assert.assertTrue(error.getMessage().contains("data['CPU model']: expected 20 chars of text but was 13 chars"), error.getMessage());
+        Assert.assertTrue(error.getMessage().contains("data.tags: expected 1 chars of text but was not text: an array holding START_OBJECT"), error.getMessage());
+    }
+
+    @Test(description = "Streamed text lengths count escapes and multi-byte characters as the parsed string does")
+    public void testTextLengthOfEscapedText() {
+        String text = "caf\u00e9 \u2713 \ud83d\ude00";
+        String json = "{\"plain\": \"" + text + "\", \"escaped\": \"caf\\u00e9 \\\"q\\\"\\n\\u2713 \\ud83d\\ude00\", "
+                + "\"parts\": [\"\u00e9\", \"\\t\"], \"last\": \"" + "x".repeat(100_000) + "\"}";
+        JsonExpectations.builder()
+                .expectTextLength("plain", text.length())
+                .expectTextLength("escaped", text.length() + 4)
+                .expectTextLength("parts", 2)
+                .expectTextLength("last", 100_000)
+                .build()
+                .verify(new ByteArrayInputStream(json.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    @Test(description = "A text length under a path that is also materialised is measured from the tree")
+    public void testTextLengthBesideMaterialisedValue() {
+        JsonExpectations.builder()
+                .expect("data", node -> node.has("CPU model"), "an object with a CPU model")
+                .expectTextLength("data['CPU model']", 13)
+                .build()
+                .verify(OBJECT);
+    }
+
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public void testWrongParameterCount() {
+        JsonExpectations.builder().expect("name").build().verify(OBJECT);
+    }
+}
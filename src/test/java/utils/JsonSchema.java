@@ -0,0 +1,578 @@
+package utils;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Pattern;
+
+/**
+ * A JSON Schema (draft-07 subset) compiled into a tree of checks that validates a document in one
+ * pass over Jackson's token stream, without building a {@link JsonNode}: fields without a schema
+ * are skipped, strings are only measured or matched when a keyword asks for it, and the JSON
+ * pointer of a violation is only rendered when one is found.
+ *
+ * <p>Supported keywords: {@code type} (one or a list), {@code properties}, {@code required},
+ * {@code additionalProperties} (boolean or schema), {@code minProperties}/{@code maxProperties},
+ * {@code items} (one schema), {@code minItems}/{@code maxItems}, {@code minLength}/
+ * {@code maxLength}, {@code pattern}, {@code minimum}/{@code maximum}, {@code enum} and
+ * {@code const} of scalars, and {@code $ref} to {@code #/definitions/...} in the same file.
+ * {@code format}, {@code title}, {@code description} and similar annotations are accepted and not
+ * checked. Any other keyword fails compilation rather than being silently ignored.
+ *
+ * <p>{@link #forResource(String)} compiles a schema from the test classpath once per JVM, e.g.
+ * {@code JsonSchema.forResource("schemas/objects.json#/definitions/object")}.
+ */
+public final class JsonSchema {
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+    private static final JsonFactory FACTORY = MAPPER.getFactory();
+    private static final Map<String, JsonSchema> CACHE = new ConcurrentHashMap<>();
+    // At most this many violations are listed; the rest are counted.
+    private static final int MAX_VIOLATIONS = 20;
+
+    private static final Set<String> ANNOTATIONS = new HashSet<>(Arrays.asList(
+            "$schema", "$id", "$comment", "title", "description", "definitions", "examples", "default", "format"));
+
+    private static final int NULL = 1;
+    private static final int BOOLEAN = 1 << 1;
+    private static final int OBJECT = 1 << 2;
+    private static final int ARRAY = 1 << 3;
+    private static final int NUMBER = 1 << 4;
+    private static final int STRING = 1 << 5;
+    private static final int INTEGER = 1 << 6;
+    private static final int ANY = NULL | BOOLEAN | OBJECT | ARRAY | NUMBER | STRING | INTEGER;
+    private static final String[] TYPE_NAMES = {"null", "boolean", "object", "array", "number", "string", "integer"};
+    private static final Object NULL_VALUE = new Object() {
+        @Override
+        public String toString() {
+            return "null";
+        }
+    };
+
+    private final String name;
+    private final Node root;
+
+    private JsonSchema(String name, Node root) {
+        this.name = name;
+        this.root = root;
+    }
+
+    /**
+     * The schema at {@code resource[#pointer]} on the classpath, compiled on first use and cached
+     * for the rest of the JVM.
+     */
+    public static JsonSchema forResource(String reference) {
+        return CACHE.computeIfAbsent(reference, JsonSchema::load);
+    }
+
+    /**
+     * Compiles the schema at {@code pointer} (empty for the whole document) of {@code document}.
+     */
+    public static JsonSchema compile(String name, JsonNode document, String pointer) {
+        JsonNode schema = document.at(pointer);
+        if (schema.isMissingNode()) {
+            throw new IllegalArgumentException("No schema at " + name);
+        }
+        return new JsonSchema(name, new Compiler(name, document).compile(schema, pointer));
+    }
+
+    private static JsonSchema load(String reference) {
+        int hash = reference.indexOf('#');
+        String resource = hash < 0 ? reference : reference.substring(0, hash);
+        try (InputStream in = JsonSchema.class.getClassLoader().getResourceAsStream(resource)) {
+            if (in == null) {
+                throw new IllegalArgumentException("Schema not found on the classpath: " + resource);
+            }
+            return compile(reference, MAPPER.readTree(in), hash < 0 ? "" : reference.substring(hash + 1));
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not read schema " + resource, e);
+        }
+    }
+
+    public String name() {
+        return name;
+    }
+
+    /**
+     * Validates a document and returns its violations, one {@code "<pointer>: <problem>"} line
+     * each; an empty list means it matches.
+     */
+    public List<String> validate(byte[] json) {
+        try (JsonParser parser = FACTORY.createParser(json)) {
+            return validate(parser);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    List<String> validate(JsonParser parser) throws IOException {
+        Violations violations = new Violations();
+        try {
+            if (parser.nextToken() == null) {
+                violations.add(parser, "expected a JSON document but the body is empty");
+            } else {
+                root.validate(parser, violations);
+            }
+        } catch (JsonParseException e) {
+            violations.add(parser, "not valid JSON: " + e.getOriginalMessage());
+        }
+        return violations.list();
+    }
+
+    @Override
+    public String toString() {
+        return name;
+    }
+
+    /**
+     * One compiled (sub)schema. Fields are filled in by {@link Compiler} and not changed after.
+     */
+    private static final class Node {
+        int types = ANY;
+        Map<String, Property> properties = Collections.emptyMap();
+        long requiredMask;
+        boolean additionalAllowed = true;
+        Node additional;
+        int minProperties;
+        int maxProperties = Integer.MAX_VALUE;
+        Node items;
+        int minItems;
+        int maxItems = Integer.MAX_VALUE;
+        int minLength;
+        int maxLength = Integer.MAX_VALUE;
+        Pattern pattern;
+        BigDecimal minimum;
+        BigDecimal maximum;
+        Set<Object> allowed;
+
+        void validate(JsonParser parser, Violations violations) throws IOException {
+            JsonToken token = parser.currentToken();
+            int type = typeOf(token);
+            if (type == NUMBER && (types & NUMBER) == 0 && isWhole(parser.getDecimalValue())) {
+                // 1.0 has no fractional part, so it is an integer too.
+                type = INTEGER;
+            }
+            if ((types & type) == 0) {
+                violations.add(parser, "expected " + typeNames(types) + " but was " + typeNames(type));
+                parser.skipChildren();
+                return;
+            }
+            switch (token) {
+                case START_OBJECT:
+                    validateObject(parser, violations);
+                    return;
+                case START_ARRAY:
+                    validateArray(parser, violations);
+                    return;
+                case VALUE_STRING:
+                    if (minLength > 0 || maxLength < Integer.MAX_VALUE || pattern != null || allowed != null) {
+                        validateString(parser.getText(), parser, violations);
+                    }
+                    return;
+                case VALUE_NUMBER_INT:
+                case VALUE_NUMBER_FLOAT:
+                    if (minimum != null || maximum != null || allowed != null) {
+                        validateNumber(parser.getDecimalValue(), parser, violations);
+                    }
+                    return;
+                default:
+                    if (allowed != null) {
+                        Object value = token == JsonToken.VALUE_NULL ? NULL_VALUE : token == JsonToken.VALUE_TRUE;
+                        if (!allowed.contains(value)) {
+                            violations.add(parser, "expected one of " + allowed + " but was " + parser.getText());
+                        }
+                    }
+            }
+        }
+
+        private void validateObject(JsonParser parser, Violations violations) throws IOException {
+            long seen = 0;
+            int count = 0;
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String field = parser.currentName();
+                parser.nextToken();
+                count++;
+                Property property = properties.get(field);
+                if (property != null) {
+                    seen |= property.requiredBit;
+                    if (property.schema != null) {
+                        property.schema.validate(parser, violations);
+                    } else {
+                        parser.skipChildren();
+                    }
+                } else if (additional != null) {
+                    additional.validate(parser, violations);
+                } else {
+                    if (!additionalAllowed) {
+                        violations.add(parser, "unexpected property");
+                    }
+                    parser.skipChildren();
+                }
+            }
+            if (seen != requiredMask) {
+                for (Map.Entry<String, Property> property : properties.entrySet()) {
+                    if ((requiredMask & ~seen & property.getValue().requiredBit) != 0) {
+                        violations.add(parser, "missing required property '" + property.getKey() + "'");
+                    }
+                }
+            }
+            if (count < minProperties || count > maxProperties) {
+                violations.add(parser, "expected " + range(minProperties, maxProperties) + " properties but had " + count);
+            }
+        }
+
+        private void validateArray(JsonParser parser, Violations violations) throws IOException {
+            int count = 0;
+            while (parser.nextToken() != JsonToken.END_ARRAY) {
+                count++;
+                if (items != null) {
+                    items.validate(parser, violations);
+                } else {
+                    parser.skipChildren();
+                }
+            }
+            if (count < minItems || count > maxItems) {
+                violations.add(parser, "expected " + range(minItems, maxItems) + " items but had " + count);
+            }
+        }
+
+        private void validateString(String text, JsonParser parser, Violations violations) throws IOException {
+            if (minLength > 0 || maxLength < Integer.MAX_VALUE) {
+                int length = text.codePointCount(0, text.length());
+                if (length < minLength || length > maxLength) {
+                    violations.add(parser, "expected " + range(minLength, maxLength) + " characters but had " + length);
+                }
+            }
+            if (pattern != null && !pattern.matcher(text).find()) {
+                violations.add(parser, "expected to match /" + pattern + "/ but was \"" + abbreviate(text) + "\"");
+            }
+            if (allowed != null && !allowed.contains(text)) {
+                violations.add(parser, "expected one of " + allowed + " but was \"" + abbreviate(text) + "\"");
+            }
+        }
+
+        private void validateNumber(BigDecimal value, JsonParser parser, Violations violations) throws IOException {
+            if (minimum != null && value.compareTo(minimum) < 0) {
+                violations.add(parser, "expected at least " + minimum.toPlainString() + " but was " + value.toPlainString());
+            }
+            if (maximum != null && value.compareTo(maximum) > 0) {
+                violations.add(parser, "expected at most " + maximum.toPlainString() + " but was " + value.toPlainString());
+            }
+            if (allowed != null && !allowed.contains(value.stripTrailingZeros())) {
+                violations.add(parser, "expected one of " + allowed + " but was " + value.toPlainString());
+            }
+        }
+    }
+
+    private static final class Property {
+        final Node schema;
+        final long requiredBit;
+
+        Property(Node schema, long requiredBit) {
+            this.schema = schema;
+            this.requiredBit = requiredBit;
+        }
+    }
+
+    /**
+     * Turns schema JSON into {@link Node}s. Each {@code $ref} target is compiled once, and a
+     * reference back to a schema still being compiled gets the same (later filled) node, so
+     * recursive schemas work.
+     */
+    private static final class Compiler {
+
+        private final String name;
+        private final JsonNode document;
+        private final Map<String, Node> references = new HashMap<>();
+
+        Compiler(String name, JsonNode document) {
+            this.name = name;
+            this.document = document;
+        }
+
+        Node compile(JsonNode schema, String pointer) {
+            if (schema.isBoolean()) {
+                Node node = new Node();
+                node.types = schema.booleanValue() ? ANY : 0;
+                return node;
+            }
+            if (!schema.isObject()) {
+                throw invalid(pointer, "a schema must be an object or a boolean");
+            }
+            JsonNode ref = schema.get("$ref");
+            if (ref != null) {
+                return reference(ref.asText(), pointer);
+            }
+            Node node = new Node();
+            fill(node, schema, pointer);
+            return node;
+        }
+
+        private Node reference(String ref, String pointer) {
+            if (!ref.startsWith("#/")) {
+                throw invalid(pointer, "only references within the same file (#/...) are supported, got " + ref);
+            }
+            Node node = references.get(ref);
+            if (node == null) {
+                JsonNode target = document.at(ref.substring(1));
+                if (target.isMissingNode()) {
+                    throw invalid(pointer, "unresolved reference " + ref);
+                }
+                if (target.has("$ref")) {
+                    return compile(target, ref.substring(1));
+                }
+                node = new Node();
+                references.put(ref, node);
+                fill(node, target, ref.substring(1));
+            }
+            return node;
+        }
+
+        private void fill(Node node, JsonNode schema, String pointer) {
+            Iterator<Map.Entry<String, JsonNode>> fields = schema.fields();
+            while (fields.hasNext()) {
+                Map.Entry<String, JsonNode> field = fields.next();
+                String keyword = field.getKey();
+                JsonNode value = field.getValue();
+                String at = pointer + "/" + keyword;
+                switch (keyword) {
+                    case "type":
+                        node.types = types(value, at);
+                        break;
+                    case "properties":
+                    case "required":
+                        break;
+                    case "additionalProperties":
+                        if (value.isBoolean()) {
+                            node.additionalAllowed = value.booleanValue();
+                        } else {
+                            node.additional = compile(value, at);
+                        }
+                        break;
+                    case "minProperties":
+                        node.minProperties = count(value, at);
+                        break;
+                    case "maxProperties":
+                        node.maxProperties = count(value, at);
+                        break;
+                    case "items":
+                        if (value.isArray()) {
+                            throw invalid(at, "tuple items are not supported");
+                        }
+                        node.items = compile(value, at);
+                        break;
+                    case "minItems":
+                        node.minItems = count(value, at);
+                        break;
+                    case "maxItems":
+                        node.maxItems = count(value, at);
+                        break;
+                    case "minLength":
+                        node.minLength = count(value, at);
+                        break;
+                    case "maxLength":
+                        node.maxLength = count(value, at);
+                        break;
+                    case "pattern":
+                        node.pattern = Pattern.compile(value.asText());
+                        break;
+                    case "minimum":
+                        node.minimum = number(value, at);
+                        break;
+                    case "maximum":
+                        node.maximum = number(value, at);
+                        break;
+                    case "enum":
+                        if (!value.isArray() || value.size() == 0) {
+                            throw invalid(at, "must be a non-empty array");
+                        }
+                        node.allowed = new LinkedHashSet<>();
+                        for (JsonNode allowed : value) {
+                            node.allowed.add(scalar(allowed, at));
+                        }
+                        break;
+                    case "const":
+                        node.allowed = Collections.singleton(scalar(value, at));
+                        break;
+                    default:
+                        if (!ANNOTATIONS.contains(keyword)) {
+                            throw invalid(at, "unsupported keyword");
+                        }
+                }
+            }
+            properties(node, schema, pointer);
+        }
+
+        private void properties(Node node, JsonNode schema, String pointer) {
+            JsonNode properties = schema.path("properties");
+            JsonNode required = schema.path("required");
+            if (properties.isMissingNode() && required.isMissingNode()) {
+                return;
+            }
+            Map<String, Node> schemas = new HashMap<>();
+            Iterator<Map.Entry<String, JsonNode>> fields = properties.fields();
+            while (fields.hasNext()) {
+                Map.Entry<String, JsonNode> field = fields.next();
+                schemas.put(field.getKey(), compile(field.getValue(), pointer + "/properties/" + field.getKey()));
+            }
+            Map<String, Property> compiled = new HashMap<>();
+            long mask = 0;
+            for (JsonNode requiredName : required) {
+                String name = requiredName.asText();
+                if (compiled.containsKey(name)) {
+                    // Listed twice: a second bit would never be set and always be reported missing.
+                    continue;
+                }
+                if (mask == -1L) {
+                    throw invalid(pointer + "/required", "at most " + Long.SIZE + " required properties are supported");
+                }
+                long bit = 1L << Long.numberOfTrailingZeros(~mask);
+                mask |= bit;
+                compiled.put(name, new Property(schemas.remove(name), bit));
+            }
+            for (Map.Entry<String, Node> optional : schemas.entrySet()) {
+                compiled.put(optional.getKey(), new Property(optional.getValue(), 0));
+            }
+            node.properties = compiled;
+            node.requiredMask = mask;
+        }
+
+        private int types(JsonNode value, String at) {
+            int types = 0;
+            Iterable<JsonNode> names = value.isArray() ? value : Collections.singletonList(value);
+            for (JsonNode type : names) {
+                int index = Arrays.asList(TYPE_NAMES).indexOf(type.asText());
+                if (index < 0) {
+                    throw invalid(at, "unknown type " + type);
+                }
+                types |= 1 << index;
+            }
+            // An integer is also a number.
+            return (types & NUMBER) != 0 ? types | INTEGER : types;
+        }
+
+        private int count(JsonNode value, String at) {
+            if (!value.canConvertToInt() || value.intValue() < 0) {
+                throw invalid(at, "must be a non-negative integer");
+            }
+            return value.intValue();
+        }
+
+        private BigDecimal number(JsonNode value, String at) {
+            if (!value.isNumber()) {
+                throw invalid(at, "must be a number");
+            }
+            return value.decimalValue();
+        }
+
+        private Object scalar(JsonNode value, String at) {
+            if (value.isNull()) {
+                return NULL_VALUE;
+            }
+            if (value.isTextual()) {
+                return value.textValue();
+            }
+            if (value.isBoolean()) {
+                return value.booleanValue();
+            }
+            if (value.isNumber()) {
+                return value.decimalValue().stripTrailingZeros();
+            }
+            throw invalid(at, "only strings, numbers, booleans and null are supported");
+        }
+
+        private IllegalArgumentException invalid(String at, String problem) {
+            return new IllegalArgumentException("Invalid schema " + name + " at " + (at.isEmpty() ? "/" : at) + ": " + problem);
+        }
+    }
+
+    /**
+     * Violations found so far; the JSON pointer is taken from the parser's position.
+     */
+    private static final class Violations {
+        private final List<String> lines = new ArrayList<>();
+        private int count;
+
+        void add(JsonParser parser, String problem) {
+            count++;
+            if (lines.size() < MAX_VIOLATIONS) {
+                String pointer = parser.getParsingContext().pathAsPointer().toString();
+                lines.add((pointer.isEmpty() ? "/" : pointer) + ": " + problem);
+            }
+        }
+
+        List<String> list() {
+            if (count > lines.size()) {
+                lines.add("... and " + (count - lines.size()) + " more");
+            }
+            return lines;
+        }
+    }
+
+    private static boolean isWhole(BigDecimal value) {
+        return value.signum() == 0 || value.stripTrailingZeros().scale() <= 0;
+    }
+
+    private static int typeOf(JsonToken token) {
+        switch (token) {
+            case START_OBJECT:
+                return OBJECT;
+            case START_ARRAY:
+                return ARRAY;
+            case VALUE_STRING:
+                return STRING;
+            case VALUE_NUMBER_INT:
+                return INTEGER;
+            case VALUE_NUMBER_FLOAT:
+                return NUMBER;
+            case VALUE_TRUE:
+            case VALUE_FALSE:
+                return BOOLEAN;
+            default:
+                return NULL;
+        }
+    }
+
+    private static String typeNames(int types) {
+        if ((types & NUMBER) != 0) {
+            types &= ~INTEGER;
+        }
+        StringBuilder names = new StringBuilder();
+        for (int i = 0; i < TYPE_NAMES.length; i++) {
+            if ((types & (1 << i)) != 0) {
+                names.append(names.length() == 0 ? "" : " or ").append(TYPE_NAMES[i]);
+            }
+        }
+        return names.length() == 0 ? "nothing" : names.toString();
+    }
+
+    private static String range(int min, int max) {
+        if (max == Integer.MAX_VALUE) {
+            return "at least " + min;
+        }
+        return min == max ? String.valueOf(min) : min + " to " + max;
+    }
+
+    private static String abbreviate(String text) {
+        return text.length() <= 40 ? text : text.substring(0, 40) + "...";
+    }
+}
@@ -0,0 +1,104 @@
+package utils;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+public class JsonSchemaTest {
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    @Test(description = "Valid documents pass; every violation is reported with its JSON pointer")
+    public void testViolationsAreReportedWithPointers() throws IOException {
+        JsonSchema schema = compile("{\"type\": \"object\", \"required\": [\"id\", \"tags\"], \"additionalProperties\": false,"
+                + " \"properties\": {"
+                + "  \"id\": {\"type\": \"integer\", \"minimum\": 1},"
+                + "  \"name\": {\"type\": [\"string\", \"null\"], \"maxLength\": 5, \"pattern\": \"^[A-Z]\"},"
+                + "  \"kind\": {\"enum\": [\"a\", 2, null]},"
+                + "  \"tags\": {\"type\": \"array\", \"maxItems\": 2, \"items\": {\"type\": \"string\"}}}}");
+
+        Assert.assertEquals(validate(schema, "{\"id\": 1, \"name\": \"Ab\", \"kind\": 2.0, \"tags\": [\"x\"]}"), Collections.emptyList());
+        Assert.assertEquals(validate(schema, "{\"id\": 7, \"name\": null, \"kind\": null, \"tags\": []}"), Collections.emptyList());
+
+        Assert.assertEquals(validate(schema, "{\"id\": 0, \"name\": \"abcdef\", \"kind\": \"b\", \"tags\": [\"x\", 3, {\"y\": 1}], \"extra\": {\"deep\": [1]}}"),
+                Arrays.asList(
+                        "/id: expected at least 1 but was 0",
+                        "/name: expected 0 to 5 characters but had 6",
+                        "/name: expected to match /^[A-Z]/ but was \"abcdef\"",
+                        "/kind: expected one of [a, 2, null] but was \"b\"",
+                        "/tags/1: expected string but was integer",
+                        "/tags/2: expected string but was object",
+                        "/tags: expected 0 to 2 items but had 3",
+                        "/extra: unexpected property"));
+        Assert.assertEquals(validate(schema, "{\"id\": 1.5}"),
+                Arrays.asList("/id: expected integer but was number", "/: missing required property 'tags'"));
+        Assert.assertEquals(validate(schema, "[1]"), Collections.singletonList("/: expected object but was array"));
+        Assert.assertEquals(validate(schema, ""), Collections.singletonList("/: expected a JSON document but the body is empty"));
+        Assert.assertTrue(validate(schema, "{\"id\": 1, ").get(0).contains("not valid JSON"));
+    }
+
+    @Test(description = "Numbers without a fractional part are integers, and a name listed twice in required is required once")
+    public void testWholeNumbersAndRepeatedRequiredNames() throws IOException {
+        JsonSchema schema = compile("{\"type\": \"object\", \"required\": [\"id\", \"name\", \"id\"], \"properties\": {"
+                + "  \"id\": {\"type\": \"integer\", \"maximum\": 10},"
+                + "  \"name\": {\"type\": \"string\"}}}");
+
+        Assert.assertEquals(validate(schema, "{\"id\": 1.0, \"name\": \"a\"}"), Collections.emptyList());
+        Assert.assertEquals(validate(schema, "{\"id\": 2e0, \"name\": \"a\"}"), Collections.emptyList());
+        Assert.assertEquals(validate(schema, "{\"id\": 0.0, \"name\": \"a\"}"), Collections.emptyList());
+        Assert.assertEquals(validate(schema, "{\"id\": 20.0, \"name\": \"a\"}"), Collections.singletonList("/id: expected at most 10 but was 20.0"));
+        Assert.assertEquals(validate(schema, "{\"id\": 1.25, \"name\": \"a\"}"), Collections.singletonList("/id: expected integer but was number"));
+        Assert.assertEquals(validate(schema, "{\"name\": \"a\"}"), Collections.singletonList("/: missing required property 'id'"));
+    }
+
+    @Test(description = "$ref resolves within the file, including recursive definitions")
+    public void testReferences() throws IOException {
+        JsonNode document = MAPPER.readTree("{\"definitions\": {"
+                + "\"node\": {\"type\": \"object\", \"required\": [\"value\"], \"properties\": {"
+                + "  \"value\": {\"$ref\": \"#/definitions/value\"},"
+                + "  \"children\": {\"type\": \"array\", \"items\": {\"$ref\": \"#/definitions/node\"}}}},"
+                + "\"value\": {\"type\": \"number\", \"maximum\": 10}}}");
+        JsonSchema tree = JsonSchema.compile("tree", document, "/definitions/node");
+
+        Assert.assertEquals(validate(tree, "{\"value\": 1, \"children\": [{\"value\": 2.5, \"children\": [{\"value\": 3}]}]}"), Collections.emptyList());
+        Assert.assertEquals(validate(tree, "{\"value\": 1, \"children\": [{\"value\": 2, \"children\": [{\"value\": 11}, {}]}]}"),
+                Arrays.asList("/children/0/children/0/value: expected at most 10 but was 11",
+                        "/children/0/children/1: missing required property 'value'"));
+    }
+
+    @Test(description = "Unsupported keywords and bad references fail compilation instead of being ignored")
+    public void testInvalidSchemasAreRejected() {
+        IllegalArgumentException unsupported = Assert.expectThrows(IllegalArgumentException.class,
+                () -> compile("{\"type\": \"object\", \"properties\": {\"id\": {\"oneOf\": [{\"type\": \"string\"}]}}}"));
+        Assert.assertTrue(unsupported.getMessage().contains("/properties/id/oneOf: unsupported keyword"), unsupported.getMessage());
+
+        IllegalArgumentException unresolved = Assert.expectThrows(IllegalArgumentException.class,
+                () -> compile("{\"$ref\": \"#/definitions/missing\"}"));
+        Assert.assertTrue(unresolved.getMessage().contains("unresolved reference #/definitions/missing"), unresolved.getMessage());
+
+        Assert.expectThrows(IllegalArgumentException.class, () -> compile("{\"type\": \"text\"}"));
+        Assert.expectThrows(IllegalArgumentException.class, () -> JsonSchema.forResource("schemas/missing.json"));
+    }
+
+    @Test(description = "Classpath schemas are compiled once per JVM")
+    public void testResourceSchemasAreCached() {
+        JsonSchema first = JsonSchema.forResource("schemas/objects.json#/definitions/object");
+        Assert.assertSame(JsonSchema.forResource("schemas/objects.json#/definitions/object"), first);
+        Assert.assertEquals(validate(first, "{\"id\": \"7\", \"name\": \"Pixel\", \"data\": {\"color\": \"black\"}}"), Collections.emptyList());
+    }
+
+    private static JsonSchema compile(String schema) throws IOException {
+        return JsonSchema.compile("test", MAPPER.readTree(schema), "");
+    }
+
+    private static List<String> validate(JsonSchema schema, String json) {
+        return schema.validate(json.getBytes(StandardCharsets.UTF_8));
+    }
+}
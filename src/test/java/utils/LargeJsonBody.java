@@ -0,0 +1,185 @@
+package utils;
+
+import com.fasterxml.jackson.core.StreamReadConstraints;
+import io.restassured.config.EncoderConfig;
+import io.restassured.config.RestAssuredConfig;
+import io.restassured.http.ContentType;
+
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * A JSON request body of any size, generated while it is sent: {@code prefix}, then a value of
+ * {@code chars} copies of an ASCII fill character, then {@code suffix}. The value is written by
+ * repeating one {@link #CHUNK_CHARS} buffer, so a test can POST hundreds of megabytes with a small
+ * heap:
+ *
+ * <pre>
+ * given().config(LargeJsonBody.config())
+ *         .contentType(ContentType.JSON)
+ *         .body(LargeJsonBody.of("{\"data\": {\"bigField\": ", 'A', 300_000_000L, "}}"))
+ * </pre>
+ *
+ * The value is one JSON string unless it is longer than {@link #MAX_STRING_CHARS}, the most a JSON
+ * parser accepts in a single string (Jackson's default limit), or than the {@code maxStringChars} a
+ * test passes; then it is an array of strings of at most that length, and
+ * {@link JsonExpectations.Builder#expectTextLength} sums them back up. RestAssured only streams an
+ * {@code InputStream} body, chunked, when it encodes it as binary; its JSON encoder reads the whole
+ * stream into memory first, hence {@link #config()}.
+ */
+public final class LargeJsonBody extends InputStream {
+
+    public static final int CHUNK_CHARS = 64 * 1024;
+    public static final int MAX_STRING_CHARS = StreamReadConstraints.DEFAULT_MAX_STRING_LEN;
+
+    private static final RestAssuredConfig STREAMING_CONFIG = HttpClientPool.config().encoderConfig(
+            EncoderConfig.encoderConfig().encodeContentTypeAs(ContentType.JSON.toString(), ContentType.BINARY));
+
+    private final byte[] prefix;
+    private final byte[] suffix;
+    private final long chars;
+    private final int stringChars;
+    private final boolean split;
+    private final byte[] chunk;
+    private final long length;
+    private final byte[] single = new byte[1];
+
+    // Position in the section being read: 0 prefix, 1 value, 2 suffix, 3 end.
+    private int section;
+    private long offset;
+
+    private LargeJsonBody(String prefix, char fill, long chars, int maxStringChars, String suffix) {
+        if (fill < 0x20 || fill > 0x7e || fill == '"' || fill == '\\') {
+            throw new IllegalArgumentException("Fill character must be printable ASCII that JSON does not escape: " + fill);
+        }
+        if (chars < 0) {
+            throw new IllegalArgumentException("Negative length: " + chars);
+        }
+        if (maxStringChars < 1) {
+            throw new IllegalArgumentException("Strings must hold at least one character: " + maxStringChars);
+        }
+        this.prefix = prefix.getBytes(StandardCharsets.UTF_8);
+        this.suffix = suffix.getBytes(StandardCharsets.UTF_8);
+        this.chars = chars;
+        this.stringChars = maxStringChars;
+        this.split = chars > maxStringChars;
+        this.chunk = new byte[(int) Math.min(chars, CHUNK_CHARS)];
+        Arrays.fill(chunk, (byte) fill);
+        this.length = this.prefix.length + valueLength() + this.suffix.length;
+    }
+
+    public static LargeJsonBody of(String prefix, char fill, long chars, String suffix) {
+        return new LargeJsonBody(prefix, fill, chars, MAX_STRING_CHARS, suffix);
+    }
+
+    /**
+     * Like {@link #of(String, char, long, String)}, but a value longer than {@code maxStringChars}
+     * is split into an array of strings of at most that length.
+     */
+    public static LargeJsonBody of(String prefix, char fill, long chars, int maxStringChars, String suffix) {
+        return new LargeJsonBody(prefix, fill, chars, maxStringChars, suffix);
+    }
+
+    /**
+     * {@link HttpClientPool#config()} with JSON bodies encoded as binary, so this body is streamed.
+     */
+    public static RestAssuredConfig config() {
+        return STREAMING_CONFIG;
+    }
+
+    /**
+     * Total size of the body in bytes.
+     */
+    public long length() {
+        return length;
+    }
+
+    @Override
+    public int read() {
+        return read(single, 0, 1) < 0 ? -1 : single[0] & 0xff;
+    }
+
+    @Override
+    public int read(byte[] buffer, int off, int len) {
+        if (len == 0) {
+            return 0;
+        }
+        while (section < 3) {
+            int copied;
+            if (section == 0) {
+                copied = copy(prefix, buffer, off, len);
+            } else if (section == 1) {
+                copied = readValue(buffer, off, len);
+            } else {
+                copied = copy(suffix, buffer, off, len);
+            }
+            if (copied > 0) {
+                offset += copied;
+                return copied;
+            }
+            section++;
+            offset = 0;
+        }
+        return -1;
+    }
+
+    @Override
+    public String toString() {
+        return "<generated JSON body, " + length + " bytes>";
+    }
+
+    private int copy(byte[] source, byte[] buffer, int off, int len) {
+        int count = (int) Math.min(len, source.length - offset);
+        System.arraycopy(source, (int) offset, buffer, off, count);
+        return count;
+    }
+
+    /**
+     * Writes the value from {@code offset}: each string is {@code "AAA..."} and, when split, the
+     * strings are separated by commas and wrapped in brackets.
+     */
+    private int readValue(byte[] buffer, int off, int len) {
+        long valueLength = valueLength();
+        if (offset >= valueLength) {
+            return 0;
+        }
+        long position = offset;
+        if (split) {
+            if (position == 0) {
+                buffer[off] = '[';
+                return 1;
+            }
+            if (position == valueLength - 1) {
+                buffer[off] = ']';
+                return 1;
+            }
+            position--;
+        }
+        // Each full string takes stringChars + 3 bytes: quote, fill, quote, comma.
+        long stride = stringChars + 3L;
+        long index = position / stride;
+        int within = (int) (position % stride);
+        int length = (int) Math.min(stringChars, chars - index * stringChars);
+        if (within == 0 || within == length + 1) {
+            buffer[off] = '"';
+            return 1;
+        }
+        if (within == length + 2) {
+            buffer[off] = ',';
+            return 1;
+        }
+        int count = Math.min(Math.min(len, length + 1 - within), chunk.length);
+        System.arraycopy(chunk, 0, buffer, off, count);
+        return count;
+    }
+
+    private long valueLength() {
+        if (!split) {
+            return chars + 2;
+        }
+        long strings = (chars + stringChars - 1) / stringChars;
+        // Brackets, a pair of quotes per string and a comma between strings.
+        return 2 + chars + 2 * strings + (strings - 1);
+    }
+}
@@ -0,0 +1,65 @@
+package utils;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+public class LargeJsonBodyTest {
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    @Test(description = "A short value is a single JSON string")
+    public void testShortValueIsOneString() throws IOException {
+        LargeJsonBody body = LargeJsonBody.of("{\"bigField\": ", 'A', 5, "}");
+        byte[] bytes = body.readAllBytes();
+        Assert.assertEquals(new String(bytes, StandardCharsets.UTF_8), "{\"bigField\": \"AAAAA\"}");
+        Assert.assertEquals(body.length(), bytes.length);
+        Assert.assertEquals(body.read(), -1);
+    }
+
+    @Test(description = "A value longer than the fill buffer is still one string, whatever size the reads are")
+    public void testLongValueIsOneString() throws IOException {
+        long chars = LargeJsonBody.CHUNK_CHARS * 2L + 7;
+        LargeJsonBody body = LargeJsonBody.of("{\"bigField\": ", 'x', chars, "}");
+        byte[] bytes = readInOddSizes(body);
+        Assert.assertEquals(bytes.length, body.length());
+
+        JsonNode value = MAPPER.readTree(bytes).get("bigField");
+        Assert.assertTrue(value.isTextual());
+        Assert.assertEquals(value.textValue(), "x".repeat((int) chars));
+    }
+
+    @Test(description = "A value over the string limit is split into an array of strings")
+    public void testValueOverLimitIsSplit() throws IOException {
+        LargeJsonBody body = LargeJsonBody.of("{\"bigField\": ", 'x', LargeJsonBody.CHUNK_CHARS * 2L + 7, LargeJsonBody.CHUNK_CHARS + 4, "}");
+        byte[] bytes = readInOddSizes(body);
+        Assert.assertEquals(bytes.length, body.length());
+
+        JsonNode strings = MAPPER.readTree(bytes).get("bigField");
+        Assert.assertEquals(strings.size(), 2);
+        Assert.assertEquals(strings.get(0).textValue().length(), LargeJsonBody.CHUNK_CHARS + 4);
+        Assert.assertEquals(strings.get(1).textValue().length(), LargeJsonBody.CHUNK_CHARS + 3);
+        Assert.assertEquals(new String(LargeJsonBody.of("", 'x', 5, 2, "").readAllBytes(), StandardCharsets.UTF_8),
+                "[\"xx\",\"xx\",\"x\"]");
+    }
+
+    @Test(description = "Characters JSON would have to escape cannot be used as the fill")
+    public void testRejectsEscapedFill() {
+        Assert.expectThrows(IllegalArgumentException.class, () -> LargeJsonBody.of("", '"', 1, ""));
+        Assert.expectThrows(IllegalArgumentException.class, () -> LargeJsonBody.of("", '\n', 1, ""));
+    }
+
+    private static byte[] readInOddSizes(LargeJsonBody body) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] buffer = new byte[1000];
+        for (int read = body.read(buffer, 0, 13); read >= 0; read = body.read(buffer, 0, 1 + read % 997)) {
+            out.write(buffer, 0, read);
+        }
+        return out.toByteArray();
+    }
+}
@@ -0,0 +1,271 @@
+package utils;
+
+import io.qameta.allure.Allure;
+import io.restassured.filter.FilterContext;
+import io.restassured.filter.OrderedFilter;
+import io.restassured.response.Response;
+import io.restassured.specification.FilterableRequestSpecification;
+import io.restassured.specification.FilterableResponseSpecification;
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Records how long each HTTP call spends in DNS lookup, TCP connect, TLS handshake, time to first
+ * byte and in total, per endpoint ({@link Endpoints#template}). DNS, connect and TLS are only
+ * recorded for requests that opened a new connection; {@link HttpClientPool} reports them, and the
+ * time to first byte, through the package-private hooks below.
+ *
+ * <p>Values go into HdrHistogram {@link Recorder}s striped by thread, so recording is wait-free and
+ * threads rarely share a stripe. {@link #snapshot()} folds the stripes into cumulative histograms.
+ * At the end of the suite {@link #publish()} logs p50/p95/p99 per endpoint and phase, attaches the
+ * table to the Allure report, writes {@code target/latency-report.txt} and sets
+ * {@code latency.<endpoint>.<phase>.p95} (and p50/p99) system properties, which surefire copies into
+ * the {@code <properties>} of its JUnit XML. {@link LatencySloListener} checks p95 SLOs per test.
+ */
+public final class LatencyRecorder implements OrderedFilter {
+
+    public static final LatencyRecorder INSTANCE = new LatencyRecorder();
+
+    private static final Logger logger = LoggerFactory.getLogger(LatencyRecorder.class);
+    // A power of two of at least twice the CPU count, so a thread id masks to its stripe.
+    private static final int STRIPES = Integer.highestOneBit(Math.max(1, Runtime.getRuntime().availableProcessors() * 2 - 1)) * 2;
+    private static final ThreadLocal<Timing> TIMING = ThreadLocal.withInitial(Timing::new);
+    private static final ThreadLocal<Set<String>> TOUCHED = ThreadLocal.withInitial(HashSet::new);
+    private static final ConcurrentMap<String, AtomicReferenceArray<Recorder[]>> RECORDERS = new ConcurrentHashMap<>();
+    private static final Map<String, Map<Phase, Histogram>> TOTALS = new TreeMap<>();
+
+    /**
+     * Where a request's time went. {@code TOTAL} covers the whole call from the filter chain.
+     */
+    public enum Phase {
+        DNS, CONNECT, TLS, TTFB, TOTAL;
+
+        String key() {
+            return name().toLowerCase();
+        }
+    }
+
+    private LatencyRecorder() {
+    }
+
+    @Override
+    public Response filter(FilterableRequestSpecification requestSpec, FilterableResponseSpecification responseSpec, FilterContext ctx) {
+        Timing timing = TIMING.get();
+        timing.reset();
+        long start = System.nanoTime();
+        try {
+            return ctx.next(requestSpec, responseSpec);
+        } finally {
+            timing.phases[Phase.TOTAL.ordinal()] = System.nanoTime() - start;
+            String endpoint = Endpoints.template(requestSpec.getMethod(), requestSpec.getUserDefinedPath());
+            record(endpoint, timing.phases);
+            TOUCHED.get().add(endpoint);
+        }
+    }
+
+    @Override
+    public int getOrder() {
+        // Inside EndpointThrottle, so time spent waiting for a permit is not counted.
+        return OrderedFilter.LOWEST_PRECEDENCE - 50;
+    }
+
+    static void phase(Phase phase, long nanos) {
+        TIMING.get().phases[phase.ordinal()] += nanos;
+    }
+
+    static void requestSent() {
+        TIMING.get().sentAt = System.nanoTime();
+    }
+
+    static void responseHeadersReceived() {
+        Timing timing = TIMING.get();
+        if (timing.sentAt != 0) {
+            timing.phases[Phase.TTFB.ordinal()] = System.nanoTime() - timing.sentAt;
+        }
+    }
+
+    /**
+     * Records one request's phases; zero phases (e.g. connect on a reused connection) are skipped.
+     */
+    static void record(String endpoint, long[] phaseNanos) {
+        AtomicReferenceArray<Recorder[]> stripes = RECORDERS.computeIfAbsent(endpoint, key -> new AtomicReferenceArray<>(STRIPES));
+        int index = (int) Thread.currentThread().getId() & (STRIPES - 1);
+        Recorder[] stripe = stripes.get(index);
+        if (stripe == null) {
+            stripe = newStripe(stripes, index);
+        }
+        for (Phase phase : Phase.values()) {
+            long nanos = phaseNanos[phase.ordinal()];
+            if (nanos > 0) {
+                stripe[phase.ordinal()].recordValue(Math.max(1, TimeUnit.NANOSECONDS.toMicros(nanos)));
+            }
+        }
+    }
+
+    private static Recorder[] newStripe(AtomicReferenceArray<Recorder[]> stripes, int index) {
+        Recorder[] stripe = new Recorder[Phase.values().length];
+        for (int i = 0; i < stripe.length; i++) {
+            stripe[i] = new Recorder(2);
+        }
+        return stripes.compareAndSet(index, null, stripe) ? stripe : stripes.get(index);
+    }
+
+    /**
+     * Forgets the endpoints the current thread has called; done before each test.
+     */
+    public static void clear() {
+        TOUCHED.get().clear();
+    }
+
+    /**
+     * Returns and forgets the endpoints the current thread has called since {@link #clear()}.
+     */
+    public static Set<String> drainTouched() {
+        Set<String> touched = TOUCHED.get();
+        if (touched.isEmpty()) {
+            return Collections.emptySet();
+        }
+        Set<String> copy = new HashSet<>(touched);
+        touched.clear();
+        return copy;
+    }
+
+    /**
+     * Adds endpoints called on another thread, e.g. a virtual thread that ran a row.
+     */
+    public static void adopt(Set<String> endpoints) {
+        TOUCHED.get().addAll(endpoints);
+    }
+
+    /**
+     * Cumulative latency histograms, in microseconds, per endpoint and phase.
+     */
+    public static synchronized Map<String, Map<Phase, Histogram>> snapshot() {
+        RECORDERS.keySet().forEach(LatencyRecorder::fold);
+        Map<String, Map<Phase, Histogram>> copy = new TreeMap<>();
+        TOTALS.forEach((endpoint, phases) -> {
+            Map<Phase, Histogram> phaseCopy = new EnumMap<>(Phase.class);
+            phases.forEach((phase, histogram) -> phaseCopy.put(phase, histogram.copy()));
+            copy.put(endpoint, phaseCopy);
+        });
+        return copy;
+    }
+
+    /**
+     * Cumulative histogram, in microseconds, of one endpoint's phase, or null if nothing was recorded.
+     */
+    public static synchronized Histogram histogram(String endpoint, Phase phase) {
+        fold(endpoint);
+        Map<Phase, Histogram> phases = TOTALS.get(endpoint);
+        Histogram histogram = phases == null ? null : phases.get(phase);
+        return histogram == null ? null : histogram.copy();
+    }
+
+    /**
+     * Drops everything recorded for an endpoint.
+     */
+    static synchronized void forget(String endpoint) {
+        RECORDERS.remove(endpoint);
+        TOTALS.remove(endpoint);
+    }
+
+    private static void fold(String endpoint) {
+        AtomicReferenceArray<Recorder[]> stripes = RECORDERS.get(endpoint);
+        if (stripes == null) {
+            return;
+        }
+        Map<Phase, Histogram> totals = TOTALS.computeIfAbsent(endpoint, key -> new EnumMap<>(Phase.class));
+        for (int i = 0; i < stripes.length(); i++) {
+            Recorder[] stripe = stripes.get(i);
+            if (stripe == null) {
+                continue;
+            }
+            for (Phase phase : Phase.values()) {
+                Histogram interval = stripe[phase.ordinal()].getIntervalHistogram();
+                if (interval.getTotalCount() > 0) {
+                    totals.computeIfAbsent(phase, key -> new Histogram(2)).add(interval);
+                }
+            }
+        }
+    }
+
+    /**
+     * p50/p95/p99 per endpoint and phase, in milliseconds.
+     */
+    public static String render(Map<String, Map<Phase, Histogram>> snapshot) {
+        StringBuilder out = new StringBuilder(String.format("%-26s %-7s %7s %9s %9s %9s %9s%n",
+                "endpoint", "phase", "count", "p50 ms", "p95 ms", "p99 ms", "max ms"));
+        snapshot.forEach((endpoint, phases) -> phases.forEach((phase, histogram) ->
+                out.append(String.format("%-26s %-7s %7d %9.2f %9.2f %9.2f %9.2f%n", endpoint, phase.key(),
+                        histogram.getTotalCount(), millis(histogram.getValueAtPercentile(50)),
+                        millis(histogram.getValueAtPercentile(95)), millis(histogram.getValueAtPercentile(99)),
+                        millis(histogram.getMaxValue())))));
+        return out.toString();
+    }
+
+    /**
+     * Reports the suite's latencies: log, Allure attachment, {@code target/latency-report.txt} (one
+     * per {@link Shard}, {@code latency-report-shard-2-of-4.txt}) and system properties for the
+     * surefire XML. Does nothing when no request was recorded.
+     */
+    public static void publish() {
+        Map<String, Map<Phase, Histogram>> snapshot = snapshot();
+        if (snapshot.isEmpty()) {
+            return;
+        }
+        String table = render(snapshot);
+        logger.info("HTTP latency by endpoint:\n{}", table);
+        Allure.addAttachment("HTTP latency percentiles", "text/plain", table);
+        snapshot.forEach((endpoint, phases) -> phases.forEach((phase, histogram) -> {
+            String prefix = "latency." + endpoint + "." + phase.key() + ".";
+            System.setProperty(prefix + "p50", format(histogram.getValueAtPercentile(50)));
+            System.setProperty(prefix + "p95", format(histogram.getValueAtPercentile(95)));
+            System.setProperty(prefix + "p99", format(histogram.getValueAtPercentile(99)));
+        }));
+        Path file = Paths.get("target", "latency-report" + Shard.current().suffix() + ".txt");
+        try {
+            Files.createDirectories(file.getParent());
+            Files.write(file, table.getBytes(StandardCharsets.UTF_8));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    static double millis(long micros) {
+        return micros / 1000.0;
+    }
+
+    private static String format(long micros) {
+        return String.format("%.2f", millis(micros));
+    }
+
+    private static final class Timing {
+        final long[] phases = new long[Phase.values().length];
+        long sentAt;
+
+        void reset() {
+            Arrays.fill(phases, 0);
+            sentAt = 0;
+        }
+    }
+}
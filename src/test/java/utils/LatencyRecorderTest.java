@@ -0,0 +1,73 @@
+package utils;
+
+import io.restassured.RestAssured;
+import org.HdrHistogram.Histogram;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.Map;
+import java.util.Set;
+
+public class LatencyRecorderTest {
+
+    @Test(description = "Endpoints are named by method and path, with id-like segments and query strings folded away")
+    public void testEndpointTemplate() {
+        Assert.assertEquals(Endpoints.template("GET", "/users/2?page=1"), "GET /users/{id}");
+        Assert.assertEquals(Endpoints.template("DELETE", "objects/ff808181932badb6//"), "DELETE /objects/{id}");
+        Assert.assertEquals(Endpoints.template("POST", "/objects"), "POST /objects");
+        Assert.assertEquals(Endpoints.template("GET", ""), "GET /");
+    }
+
+    @Test(description = "Phases are recorded per endpoint in microseconds and zero phases are skipped")
+    public void testRecordSkipsZeroPhases() {
+        long[] phases = new long[LatencyRecorder.Phase.values().length];
+        phases[LatencyRecorder.Phase.TTFB.ordinal()] = 4_000_000;
+        phases[LatencyRecorder.Phase.TOTAL.ordinal()] = 5_000_000;
+        for (int i = 0; i < 10; i++) {
+            LatencyRecorder.record("GET /recorder-unit", phases);
+        }
+
+        Histogram total = LatencyRecorder.histogram("GET /recorder-unit", LatencyRecorder.Phase.TOTAL);
+        Assert.assertEquals(total.getTotalCount(), 10);
+        Assert.assertEquals(total.getValueAtPercentile(95), 5000, 50);
+        Assert.assertEquals(LatencyRecorder.histogram("GET /recorder-unit", LatencyRecorder.Phase.TTFB).getTotalCount(), 10);
+        Assert.assertNull(LatencyRecorder.histogram("GET /recorder-unit", LatencyRecorder.Phase.CONNECT));
+        Assert.assertTrue(LatencyRecorder.render(LatencyRecorder.snapshot()).contains("GET /recorder-unit"));
+        LatencyRecorder.forget("GET /recorder-unit");
+        Assert.assertFalse(LatencyRecorder.snapshot().containsKey("GET /recorder-unit"));
+    }
+
+    @Test(description = "A call through the pooled client records connect, time to first byte and total, and marks the endpoint touched")
+    public void testFilterRecordsPhases() throws IOException {
+        ApiStubServer stub = ApiStubServer.start(0);
+        try {
+            LatencyRecorder.clear();
+            for (int i = 0; i < 3; i++) {
+                RestAssured.given().baseUri(stub.baseUri()).config(HttpClientPool.config())
+                        .filter(LatencyRecorder.INSTANCE).get("/latency-probe/" + i).asByteArray();
+            }
+            Set<String> touched = LatencyRecorder.drainTouched();
+            Assert.assertEquals(touched, Collections.singleton("GET /latency-probe/{id}"));
+
+            Map<LatencyRecorder.Phase, Histogram> phases = LatencyRecorder.snapshot().get("GET /latency-probe/{id}");
+            Assert.assertEquals(phases.get(LatencyRecorder.Phase.TOTAL).getTotalCount(), 3);
+            Assert.assertEquals(phases.get(LatencyRecorder.Phase.TTFB).getTotalCount(), 3);
+            Assert.assertEquals(phases.get(LatencyRecorder.Phase.CONNECT).getTotalCount(), 1, "connection is reused");
+            Assert.assertFalse(phases.containsKey(LatencyRecorder.Phase.TLS));
+        } finally {
+            LatencyRecorder.forget("GET /latency-probe/{id}");
+            stub.stop();
+        }
+    }
+
+    @Test(description = "SLO specs map endpoint names to milliseconds and reject entries without a value")
+    public void testSloParsing() {
+        Map<String, Double> slos = LatencySloListener.parse("POST /objects=800, GET /users/{id}=300.5");
+        Assert.assertEquals(slos.get("POST /objects"), 800.0);
+        Assert.assertEquals(slos.get("GET /users/{id}"), 300.5);
+        Assert.assertTrue(LatencySloListener.parse(" ").isEmpty());
+        Assert.expectThrows(IllegalArgumentException.class, () -> LatencySloListener.parse("POST /objects"));
+    }
+}
@@ -0,0 +1,84 @@
+package utils;
+
+import io.qameta.allure.Allure;
+import org.HdrHistogram.Histogram;
+import org.testng.IInvokedMethod;
+import org.testng.IInvokedMethodListener;
+import org.testng.ITestResult;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Fails a test when an endpoint it called has a p95 total latency over its SLO. The p95 is taken
+ * over every call to that endpoint so far in the run, so once an endpoint regresses each later test
+ * that calls it fails too. SLOs are in milliseconds: {@code -Dlatency.slo="POST /objects=800,GET
+ * /users/{id}=300"} per endpoint ({@link Endpoints#template} names) and {@code -Dlatency.slo.default}
+ * for the rest. {@code -Dlatency.slo.percentile} (95) and {@code -Dlatency.slo.minSamples} (20,
+ * so a few cold-start calls cannot fail a run) tune the check. No SLOs, no checks.
+ */
+public class LatencySloListener implements IInvokedMethodListener {
+
+    private static final Map<String, Double> SLOS = parse(TestConfig.getString("latency.slo", ""));
+    private static final double DEFAULT_SLO = TestConfig.getDouble("latency.slo.default", 0);
+    private static final double PERCENTILE = TestConfig.getDouble("latency.slo.percentile", 95);
+    private static final long MIN_SAMPLES = TestConfig.getLong("latency.slo.minSamples", 20);
+
+    @Override
+    public void beforeInvocation(IInvokedMethod method, ITestResult testResult) {
+        if (method.isTestMethod()) {
+            LatencyRecorder.clear();
+        }
+    }
+
+    @Override
+    public void afterInvocation(IInvokedMethod method, ITestResult testResult) {
+        if (!method.isTestMethod()) {
+            return;
+        }
+        Set<String> endpoints = LatencyRecorder.drainTouched();
+        if (testResult.getStatus() != ITestResult.SUCCESS || (SLOS.isEmpty() && DEFAULT_SLO <= 0)) {
+            return;
+        }
+        StringBuilder breaches = new StringBuilder();
+        for (String endpoint : endpoints) {
+            double slo = SLOS.getOrDefault(endpoint, DEFAULT_SLO);
+            Histogram histogram = slo > 0 ? LatencyRecorder.histogram(endpoint, LatencyRecorder.Phase.TOTAL) : null;
+            if (histogram == null || histogram.getTotalCount() < MIN_SAMPLES) {
+                continue;
+            }
+            double actual = LatencyRecorder.millis(histogram.getValueAtPercentile(PERCENTILE));
+            if (actual > slo) {
+                breaches.append(String.format("%n  %s: p%s %.2f ms over %s calls, SLO %.0f ms", endpoint,
+                        format(PERCENTILE), actual, histogram.getTotalCount(), slo));
+            }
+        }
+        if (breaches.length() > 0) {
+            String message = "Latency SLO exceeded:" + breaches;
+            Allure.addAttachment("Latency SLO", "text/plain", message);
+            testResult.setStatus(ITestResult.FAILURE);
+            testResult.setThrowable(new AssertionError(message));
+        }
+    }
+
+    static Map<String, Double> parse(String spec) {
+        if (spec.trim().isEmpty()) {
+            return Collections.emptyMap();
+        }
+        Map<String, Double> slos = new LinkedHashMap<>();
+        for (String entry : spec.split(",")) {
+            int equals = entry.lastIndexOf('=');
+            if (equals < 0) {
+                throw new IllegalArgumentException("Expected <endpoint>=<millis> in -Dlatency.slo, got: " + entry);
+            }
+            slos.put(entry.substring(0, equals).trim(), Double.parseDouble(entry.substring(equals + 1).trim()));
+        }
+        return slos;
+    }
+
+    private static String format(double percentile) {
+        return percentile == Math.rint(percentile) ? String.valueOf((long) percentile) : String.valueOf(percentile);
+    }
+}
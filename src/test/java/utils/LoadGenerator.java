@@ -0,0 +1,315 @@
+package utils;
+
+import io.restassured.response.Response;
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.BiPredicate;
+import java.util.function.Function;
+
+/**
+ * Replays data-provider rows as load and records latency per endpoint in HdrHistograms.
+ *
+ * <p>Two models are supported, chosen with {@code -Dload.mode}:
+ * <ul>
+ *   <li>{@code rate}: open model. Requests start at a constant {@code -Dload.rate} per second
+ *       whether or not earlier ones have finished, and latency is measured from each request's
+ *       scheduled start, so a stalled server shows up in the percentiles instead of slowing the
+ *       generator down (no coordinated omission). {@code -Dload.maxInFlight} caps outstanding
+ *       requests.</li>
+ *   <li>{@code workers} (default): closed model. {@code -Dload.workers} threads send back to back.</li>
+ * </ul>
+ * Both run for {@code -Dload.duration} seconds after a {@code -Dload.warmup} second warm-up whose
+ * results are discarded, so class loading, JIT and connection setup do not skew the percentiles.
+ * Rows from all scenarios are mixed in a shuffled order ({@code -Dload.seed}) and replayed
+ * round-robin.
+ */
+public final class LoadGenerator {
+
+    private static final Logger logger = LoggerFactory.getLogger(LoadGenerator.class);
+    private static final long HIGHEST_MICROS = TimeUnit.MINUTES.toMicros(10);
+
+    private final boolean openModel;
+    private final int rate;
+    private final int workers;
+    private final Duration duration;
+    private final Duration warmup;
+    private final int maxInFlight;
+    private final long seed;
+
+    private LoadGenerator(boolean openModel, int rate, int workers, Duration duration, Duration warmup,
+                          int maxInFlight, long seed) {
+        this.openModel = openModel;
+        this.rate = rate;
+        this.workers = workers;
+        this.duration = duration;
+        this.warmup = warmup;
+        this.maxInFlight = maxInFlight;
+        this.seed = seed;
+    }
+
+    /**
+     * A generator configured from the {@code load.*} system properties.
+     */
+    public static LoadGenerator fromConfig() {
+        return new LoadGenerator(
+                "rate".equalsIgnoreCase(TestConfig.getString("load.mode", "workers")),
+                TestConfig.getInt("load.rate", 50),
+                TestConfig.getInt("load.workers", 8),
+                Duration.ofSeconds(TestConfig.getLong("load.duration", 30)),
+                Duration.ofSeconds(TestConfig.getLong("load.warmup", 5)),
+                TestConfig.getInt("load.maxInFlight", 1000),
+                TestConfig.getLong("load.seed", 42));
+    }
+
+    /**
+     * Open-model generator starting {@code perSecond} requests each second.
+     */
+    public static LoadGenerator constantRate(int perSecond, Duration duration) {
+        return new LoadGenerator(true, perSecond, 0, duration, Duration.ZERO, 1000, 42);
+    }
+
+    /**
+     * Closed-model generator with {@code workers} threads sending back to back.
+     */
+    public static LoadGenerator concurrentWorkers(int workers, Duration duration) {
+        return new LoadGenerator(false, 0, workers, duration, Duration.ZERO, 0, 42);
+    }
+
+    /**
+     * Binds a data provider's rows to the request they drive.
+     *
+     * @param rows     the provider's rows; read once up front
+     * @param request  sends one row and returns the response
+     * @param endpoint names the row's endpoint for reporting, e.g. {@code "GET /users/{id}"}
+     * @param expected whether the response counts as a success
+     */
+    public static Scenario scenario(String name, Iterator<Object[]> rows, Function<Object[], Response> request,
+                                    Function<Object[], String> endpoint, BiPredicate<Object[], Response> expected) {
+        List<Object[]> list = new ArrayList<>();
+        rows.forEachRemaining(list::add);
+        return new Scenario(name, list, request, endpoint, expected);
+    }
+
+    /**
+     * Warms up, then runs the scenarios until the configured duration has elapsed.
+     */
+    public Result run(List<Scenario> scenarios) throws InterruptedException {
+        List<Step> steps = new ArrayList<>();
+        for (Scenario scenario : scenarios) {
+            for (Object[] row : scenario.rows) {
+                steps.add(new Step(scenario, row));
+            }
+        }
+        if (steps.isEmpty()) {
+            throw new IllegalArgumentException("No data-provider rows to replay");
+        }
+        Collections.shuffle(steps, new Random(seed));
+        AtomicLong next = new AtomicLong();
+        logger.info("Load run: {} rows from {} scenario(s), {} for {}s after {}s warm-up", steps.size(),
+                scenarios.size(), openModel ? rate + " req/s" : workers + " workers", duration.getSeconds(),
+                warmup.getSeconds());
+        if (!warmup.isZero()) {
+            phase(steps, next, warmup, new Result());
+        }
+        Result result = new Result();
+        phase(steps, next, duration, result);
+        return result;
+    }
+
+    private void phase(List<Step> steps, AtomicLong next, Duration length, Result result) throws InterruptedException {
+        long start = System.nanoTime();
+        long end = start + length.toNanos();
+        if (openModel) {
+            runOpen(steps, next, start, end, result);
+        } else {
+            runClosed(steps, next, end, length, result);
+        }
+        result.elapsedNanos = System.nanoTime() - start;
+    }
+
+    private void runOpen(List<Step> steps, AtomicLong next, long start, long end, Result result) throws InterruptedException {
+        long interval = TimeUnit.SECONDS.toNanos(1) / Math.max(1, rate);
+        Semaphore inFlight = new Semaphore(maxInFlight);
+        ExecutorService executor = TestExecutors.requests();
+        for (long i = 0; ; i++) {
+            long scheduled = start + i * interval;
+            if (scheduled >= end) {
+                break;
+            }
+            long wait;
+            while ((wait = scheduled - System.nanoTime()) > 0) {
+                LockSupport.parkNanos(wait);
+            }
+            inFlight.acquire();
+            Step step = steps.get((int) (next.getAndIncrement() % steps.size()));
+            executor.execute(() -> {
+                try {
+                    step.send(scheduled, result);
+                } finally {
+                    inFlight.release();
+                }
+            });
+        }
+        inFlight.acquire(maxInFlight);
+    }
+
+    private void runClosed(List<Step> steps, AtomicLong next, long end, Duration length, Result result)
+            throws InterruptedException {
+        ExecutorService pool = Executors.newFixedThreadPool(workers);
+        for (int w = 0; w < workers; w++) {
+            pool.execute(() -> {
+                long now;
+                while ((now = System.nanoTime()) < end) {
+                    steps.get((int) (next.getAndIncrement() % steps.size())).send(now, result);
+                }
+            });
+        }
+        pool.shutdown();
+        pool.awaitTermination(length.getSeconds() + 600, TimeUnit.SECONDS);
+    }
+
+    /**
+     * One data-provider source replayed as load.
+     */
+    public static final class Scenario {
+        final String name;
+        final List<Object[]> rows;
+        final Function<Object[], Response> request;
+        final Function<Object[], String> endpoint;
+        final BiPredicate<Object[], Response> expected;
+
+        Scenario(String name, List<Object[]> rows, Function<Object[], Response> request,
+                 Function<Object[], String> endpoint, BiPredicate<Object[], Response> expected) {
+            this.name = name;
+            this.rows = rows;
+            this.request = request;
+            this.endpoint = endpoint;
+            this.expected = expected;
+        }
+    }
+
+    private static final class Step {
+        final Scenario scenario;
+        final Object[] row;
+        final String endpoint;
+
+        Step(Scenario scenario, Object[] row) {
+            this.scenario = scenario;
+            this.row = row;
+            this.endpoint = scenario.endpoint.apply(row);
+        }
+
+        void send(long startNanos, Result result) {
+            boolean ok;
+            try {
+                Response response = scenario.request.apply(row.clone());
+                // RestAssured streams the body lazily; reading it releases the pooled connection
+                // and makes the recorded latency cover the whole response.
+                response.asByteArray();
+                ok = scenario.expected.test(row, response);
+            } catch (RuntimeException | AssertionError e) {
+                logger.debug("{} failed", endpoint, e);
+                ok = false;
+            }
+            result.record(endpoint, System.nanoTime() - startNanos, ok);
+        }
+    }
+
+    /**
+     * Latency histograms and error counts per endpoint.
+     */
+    public static final class Result {
+        private final ConcurrentMap<String, Histogram> latencies = new ConcurrentHashMap<>();
+        private final ConcurrentMap<String, LongAdder> errors = new ConcurrentHashMap<>();
+        private long elapsedNanos;
+
+        void record(String endpoint, long nanos, boolean ok) {
+            latencies.computeIfAbsent(endpoint, key -> new ConcurrentHistogram(HIGHEST_MICROS, 3))
+                    .recordValue(Math.min(HIGHEST_MICROS, Math.max(1, TimeUnit.NANOSECONDS.toMicros(nanos))));
+            if (!ok) {
+                errors.computeIfAbsent(endpoint, key -> new LongAdder()).increment();
+            }
+        }
+
+        public long requests() {
+            return latencies.values().stream().mapToLong(Histogram::getTotalCount).sum();
+        }
+
+        public long errors() {
+            return errors.values().stream().mapToLong(LongAdder::sum).sum();
+        }
+
+        public double errorRate() {
+            long requests = requests();
+            return requests == 0 ? 0 : (double) errors() / requests;
+        }
+
+        public Map<String, Histogram> latencies() {
+            return new TreeMap<>(latencies);
+        }
+
+        /**
+         * Percentile table per endpoint, in milliseconds.
+         */
+        public String summary() {
+            StringBuilder out = new StringBuilder(String.format("%-26s %8s %7s %9s %9s %9s %9s %9s%n",
+                    "endpoint", "count", "errors", "p50 ms", "p90 ms", "p99 ms", "p99.9 ms", "max ms"));
+            latencies().forEach((endpoint, histogram) -> out.append(String.format("%-26s %8d %7d %9.2f %9.2f %9.2f %9.2f %9.2f%n",
+                    endpoint, histogram.getTotalCount(), errorCount(endpoint),
+                    millis(histogram.getValueAtPercentile(50)), millis(histogram.getValueAtPercentile(90)),
+                    millis(histogram.getValueAtPercentile(99)), millis(histogram.getValueAtPercentile(99.9)),
+                    millis(histogram.getMaxValue()))));
+            double seconds = elapsedNanos / 1e9;
+            out.append(String.format("%d requests, %d errors in %.1fs (%.1f req/s)%n",
+                    requests(), errors(), seconds, seconds == 0 ? 0 : requests() / seconds));
+            return out.toString();
+        }
+
+        /**
+         * The summary followed by each endpoint's full HdrHistogram percentile distribution.
+         */
+        public String report() {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            try (PrintStream out = new PrintStream(bytes, true, StandardCharsets.UTF_8)) {
+                out.print(summary());
+                latencies().forEach((endpoint, histogram) -> {
+                    out.printf("%n# %s (microseconds)%n", endpoint);
+                    histogram.outputPercentileDistribution(out, 1.0);
+                });
+            }
+            return new String(bytes.toByteArray(), StandardCharsets.UTF_8);
+        }
+
+        private long errorCount(String endpoint) {
+            LongAdder count = errors.get(endpoint);
+            return count == null ? 0 : count.sum();
+        }
+
+        private static double millis(long micros) {
+            return micros / 1000.0;
+        }
+    }
+}
@@ -0,0 +1,208 @@
+package utils;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+/**
+ * RFC 4180 CSV reader over a memory-mapped file. Bytes are scanned straight out of the mapping
+ * and each field is decoded once into its final String, so there is no per-line String and no
+ * regex split. Quoted fields may contain commas, line breaks and doubled quotes; records may end
+ * in LF or CRLF. Files larger than one mapping window are remapped as the reader advances.
+ *
+ * <p>Rows are produced lazily, which makes the reader usable directly as a TestNG
+ * {@code Iterator<Object[]>} data provider. The first row is returned like any other;
+ * call {@link #next()} once to skip a header.
+ */
+public final class MappedCsvReader implements Iterator<Object[]> {
+
+    static final long DEFAULT_WINDOW = 256L * 1024 * 1024;
+
+    private static final int EOF = -1;
+    private static final int WINDOW_END = -2;
+
+    private final Path path;
+    private final long size;
+    private final long windowSize;
+    private final List<String> fields = new ArrayList<>();
+    private MappedByteBuffer buffer;
+    private long base;
+    private int pos;
+    private byte[] scratch = new byte[256];
+    private int length;
+    // Whether the last scanned record had a quoted field, which makes a lone empty field a record.
+    private boolean quoted;
+    private Object[] nextRow;
+
+    private MappedCsvReader(Path path, long windowSize) throws IOException {
+        this.path = path;
+        this.windowSize = windowSize;
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            this.size = channel.size();
+        }
+        map(0);
+        if (peek(0) == 0xEF && peek(1) == 0xBB && peek(2) == 0xBF) {
+            pos = 3;
+        }
+    }
+
+    public static MappedCsvReader open(Path path) throws IOException {
+        return new MappedCsvReader(path, DEFAULT_WINDOW);
+    }
+
+    static MappedCsvReader open(Path path, long windowSize) throws IOException {
+        return new MappedCsvReader(path, windowSize);
+    }
+
+    @Override
+    public boolean hasNext() {
+        if (nextRow == null) {
+            nextRow = readRow();
+        }
+        return nextRow != null;
+    }
+
+    @Override
+    public Object[] next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        Object[] row = nextRow;
+        nextRow = null;
+        return row;
+    }
+
+    private Object[] readRow() {
+        while (true) {
+            int rowStart = pos;
+            int result = scanRow();
+            if (result == WINDOW_END) {
+                if (rowStart == 0 && base + buffer.limit() < size) {
+                    throw new UncheckedIOException(new IOException(
+                            "CSV record at offset " + base + " in " + path + " exceeds the " + windowSize + " byte window"));
+                }
+                remap(base + rowStart);
+                continue;
+            }
+            if (result == EOF && fields.isEmpty()) {
+                return null;
+            }
+            if (fields.size() == 1 && fields.get(0).isEmpty() && !quoted && result != EOF) {
+                fields.clear();
+                continue; // blank line
+            }
+            Object[] row = fields.toArray();
+            fields.clear();
+            return row;
+        }
+    }
+
+    /**
+     * Scans one record into {@link #fields}. Returns 0 at end of record, {@link #EOF} when the
+     * file ends, or {@link #WINDOW_END} when the record runs past the mapped window (fields are
+     * then discarded and the caller remaps from the record start).
+     */
+    private int scanRow() {
+        fields.clear();
+        quoted = false;
+        if (peek(pos) == EOF) {
+            return EOF;
+        }
+        int i = pos;
+        while (true) {
+            length = 0;
+            int b = peek(i);
+            if (b == '"') {
+                quoted = true;
+                i++;
+                while (true) {
+                    b = peek(i);
+                    if (b == WINDOW_END) {
+                        return WINDOW_END;
+                    }
+                    if (b == EOF) {
+                        break; // unterminated quote: keep what was read
+                    }
+                    if (b == '"') {
+                        int after = peek(i + 1);
+                        if (after == WINDOW_END) {
+                            return WINDOW_END;
+                        }
+                        if (after == '"') {
+                            append('"');
+                            i += 2;
+                            continue;
+                        }
+                        i++;
+                        break;
+                    }
+                    append(b);
+                    i++;
+                }
+                b = peek(i);
+            }
+            while (b != ',' && b != '\r' && b != '\n' && b != EOF) {
+                if (b == WINDOW_END) {
+                    return WINDOW_END;
+                }
+                append(b);
+                b = peek(++i);
+            }
+            fields.add(new String(scratch, 0, length, StandardCharsets.UTF_8));
+            if (b == ',') {
+                i++;
+                continue;
+            }
+            if (b == '\r') {
+                int after = peek(i + 1);
+                if (after == WINDOW_END) {
+                    return WINDOW_END;
+                }
+                i += after == '\n' ? 2 : 1;
+            } else if (b == '\n') {
+                i++;
+            }
+            pos = i;
+            return b == EOF ? EOF : 0;
+        }
+    }
+
+    private int peek(int i) {
+        if (i < buffer.limit()) {
+            return buffer.get(i) & 0xFF;
+        }
+        return base + i >= size ? EOF : WINDOW_END;
+    }
+
+    private void append(int b) {
+        if (length == scratch.length) {
+            scratch = Arrays.copyOf(scratch, length * 2);
+        }
+        scratch[length++] = (byte) b;
+    }
+
+    private void remap(long offset) {
+        try {
+            map(offset);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private void map(long offset) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, offset, Math.min(windowSize, size - offset));
+        }
+        base = offset;
+        pos = 0;
+    }
+}
@@ -0,0 +1,68 @@
+package utils;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+public class MappedCsvReaderTest {
+
+    @Test(description = "Quoted commas, escaped quotes, embedded line breaks and CRLF are parsed per RFC 4180")
+    public void testQuotingAndLineEndings() throws IOException {
+        List<Object[]> rows = read("id,title\r\n"
+                + "1,\"foo, bar\"\r\n"
+                + "2,\"say \"\"hi\"\"\"\n"
+                + "3,\"two\r\nlines\"\n"
+                + "4,\n"
+                + "\n"
+                + "\"\"\r\n"
+                + "5,plain", MappedCsvReader.DEFAULT_WINDOW);
+        Assert.assertEquals(rows.size(), 7);
+        Assert.assertEquals(rows.get(0), new Object[]{"id", "title"});
+        Assert.assertEquals(rows.get(1), new Object[]{"1", "foo, bar"});
+        Assert.assertEquals(rows.get(2), new Object[]{"2", "say \"hi\""});
+        Assert.assertEquals(rows.get(3), new Object[]{"3", "two\r\nlines"});
+        Assert.assertEquals(rows.get(4), new Object[]{"4", ""});
+        Assert.assertEquals(rows.get(5), new Object[]{""}, "A quoted empty field is a record, not a blank line");
+        Assert.assertEquals(rows.get(6), new Object[]{"5", "plain"});
+    }
+
+    @Test(description = "UTF-8 content and a leading byte order mark are handled")
+    public void testUtf8AndBom() throws IOException {
+        List<Object[]> rows = read("\uFEFFname\n\"Zo\u00EB \u2713\"\n", MappedCsvReader.DEFAULT_WINDOW);
+        Assert.assertEquals(rows.get(0), new Object[]{"name"});
+        Assert.assertEquals(rows.get(1), new Object[]{"Zo\u00EB \u2713"});
+    }
+
+    @Test(description = "Records straddling a mapping window are re-read from the next window")
+    public void testRecordsAcrossWindows() throws IOException {
+        StringBuilder csv = new StringBuilder();
+        for (int i = 0; i < 200; i++) {
+            csv.append(i).append(",\"row, ").append(i).append("\"\r\n");
+        }
+        List<Object[]> rows = read(csv.toString(), 64);
+        Assert.assertEquals(rows.size(), 200);
+        for (int i = 0; i < 200; i++) {
+            Assert.assertEquals(rows.get(i), new Object[]{String.valueOf(i), "row, " + i});
+        }
+    }
+
+    @Test(description = "Empty files yield no rows")
+    public void testEmptyFile() throws IOException {
+        Assert.assertTrue(read("", MappedCsvReader.DEFAULT_WINDOW).isEmpty());
+    }
+
+    private static List<Object[]> read(String content, long window) throws IOException {
+        Path file = Files.createTempFile("mapped", ".csv");
+        file.toFile().deleteOnExit();
+        Files.write(file, content.getBytes(StandardCharsets.UTF_8));
+        List<Object[]> rows = new ArrayList<>();
+        MappedCsvReader.open(file, window).forEachRemaining(rows::add);
+        return rows;
+    }
+}
@@ -0,0 +1,212 @@
+package utils;
+
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.core.io.SerializedString;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * A JSON request body compiled once from a template and rendered per row. String values written as
+ * {@code "${name}"} are placeholders; every other token is kept pre-encoded. Rendering streams the
+ * tokens and row values through a Jackson {@link JsonGenerator} into a per-thread buffer, so values
+ * are escaped correctly and no format string is parsed per call:
+ *
+ * <pre>
+ * PayloadTemplate user = PayloadTemplate.compile("{\"name\": \"${name}\", \"job\": \"${job}\"}");
+ * given().contentType(ContentType.JSON).body(user.render(name, job))
+ * </pre>
+ *
+ * Values are matched to placeholders in order of first appearance (see {@link #names()}). A
+ * placeholder is a quoted string in the template, so every value is written as a JSON string of its
+ * {@code String.valueOf}, as a {@code "%s"} in a format string was: {@code 42} becomes {@code "42"}
+ * and {@code null} becomes {@code "null"}. Numbers, booleans and {@code null} that the body should
+ * carry as such belong in the template as literals.
+ */
+public final class PayloadTemplate {
+
+    private static final JsonFactory FACTORY = new JsonFactory();
+    private static final ThreadLocal<Buffer> BUFFER = ThreadLocal.withInitial(Buffer::new);
+
+    private static final int START_OBJECT = 0;
+    private static final int END_OBJECT = 1;
+    private static final int START_ARRAY = 2;
+    private static final int END_ARRAY = 3;
+    private static final int FIELD = 4;
+    private static final int STRING = 5;
+    private static final int NUMBER = 6;
+    private static final int TRUE = 7;
+    private static final int FALSE = 8;
+    private static final int NULL = 9;
+    private static final int PLACEHOLDER = 10;
+
+    private final int[] ops;
+    private final Object[] operands;
+    private final List<String> names;
+
+    private PayloadTemplate(int[] ops, Object[] operands, List<String> names) {
+        this.ops = ops;
+        this.operands = operands;
+        this.names = names;
+    }
+
+    /**
+     * Compiles a JSON template.
+     *
+     * @throws IllegalArgumentException if the template is not valid JSON
+     */
+    public static PayloadTemplate compile(String template) {
+        List<Integer> ops = new ArrayList<>();
+        List<Object> operands = new ArrayList<>();
+        List<String> names = new ArrayList<>();
+        try (JsonParser parser = FACTORY.createParser(template)) {
+            JsonToken token;
+            while ((token = parser.nextToken()) != null) {
+                Object operand = null;
+                int op;
+                switch (token) {
+                    case START_OBJECT: op = START_OBJECT; break;
+                    case END_OBJECT: op = END_OBJECT; break;
+                    case START_ARRAY: op = START_ARRAY; break;
+                    case END_ARRAY: op = END_ARRAY; break;
+                    case FIELD_NAME:
+                        op = FIELD;
+                        operand = new SerializedString(parser.currentName());
+                        break;
+                    case VALUE_STRING:
+                        String text = parser.getText();
+                        if (text.startsWith("${") && text.endsWith("}") && text.length() > 3) {
+                            String name = text.substring(2, text.length() - 1);
+                            int index = names.indexOf(name);
+                            if (index < 0) {
+                                index = names.size();
+                                names.add(name);
+                            }
+                            op = PLACEHOLDER;
+                            operand = index;
+                        } else {
+                            op = STRING;
+                            operand = new SerializedString(text);
+                        }
+                        break;
+                    case VALUE_NUMBER_INT:
+                    case VALUE_NUMBER_FLOAT:
+                        op = NUMBER;
+                        operand = parser.getText();
+                        break;
+                    case VALUE_TRUE: op = TRUE; break;
+                    case VALUE_FALSE: op = FALSE; break;
+                    case VALUE_NULL: op = NULL; break;
+                    default:
+                        throw new IllegalArgumentException("Unsupported token " + token + " in payload template");
+                }
+                ops.add(op);
+                operands.add(operand);
+            }
+        } catch (IOException e) {
+            throw new IllegalArgumentException("Invalid payload template: " + template, e);
+        }
+        return new PayloadTemplate(ops.stream().mapToInt(Integer::intValue).toArray(), operands.toArray(),
+                Collections.unmodifiableList(names));
+    }
+
+    /**
+     * Placeholder names in the order {@link #render(Object...)} expects their values.
+     */
+    public List<String> names() {
+        return names;
+    }
+
+    /**
+     * Renders the template with one value per placeholder and returns the UTF-8 body.
+     */
+    public byte[] render(Object... values) {
+        if (values.length != names.size()) {
+            throw new IllegalArgumentException("Expected " + names.size() + " values for " + names + " but got " + values.length);
+        }
+        Buffer buffer = BUFFER.get();
+        buffer.size = 0;
+        try (JsonGenerator generator = FACTORY.createGenerator(buffer, JsonEncoding.UTF8)) {
+            for (int i = 0; i < ops.length; i++) {
+                switch (ops[i]) {
+                    case START_OBJECT: generator.writeStartObject(); break;
+                    case END_OBJECT: generator.writeEndObject(); break;
+                    case START_ARRAY: generator.writeStartArray(); break;
+                    case END_ARRAY: generator.writeEndArray(); break;
+                    case FIELD: generator.writeFieldName((SerializedString) operands[i]); break;
+                    case STRING: generator.writeString((SerializedString) operands[i]); break;
+                    case NUMBER: generator.writeNumber((String) operands[i]); break;
+                    case TRUE: generator.writeBoolean(true); break;
+                    case FALSE: generator.writeBoolean(false); break;
+                    case NULL: generator.writeNull(); break;
+                    default: writeString(generator, String.valueOf(values[(Integer) operands[i]]));
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return Arrays.copyOf(buffer.bytes, buffer.size);
+    }
+
+    /**
+     * Writes the text as raw UTF-8 when no character needs escaping, skipping the generator's
+     * per-character escape loop; otherwise falls back to {@code writeString}.
+     */
+    private static void writeString(JsonGenerator generator, String text) throws IOException {
+        if (needsEscaping(text)) {
+            generator.writeString(text);
+        } else {
+            byte[] bytes = text.getBytes(StandardCharsets.UTF_8);
+            generator.writeRawUTF8String(bytes, 0, bytes.length);
+        }
+    }
+
+    private static boolean needsEscaping(String text) {
+        if (text.indexOf('"') >= 0 || text.indexOf('\\') >= 0) {
+            return true;
+        }
+        for (int i = 0; i < text.length(); i++) {
+            if (text.charAt(i) < 0x20) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Growable output buffer kept per thread, so its capacity settles at the largest body rendered.
+     */
+    private static final class Buffer extends OutputStream {
+        byte[] bytes = new byte[512];
+        int size;
+
+        @Override
+        public void write(int b) {
+            ensure(1);
+            bytes[size++] = (byte) b;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+            ensure(len);
+            System.arraycopy(b, off, bytes, size, len);
+            size += len;
+        }
+
+        private void ensure(int extra) {
+            if (size + extra > bytes.length) {
+                bytes = Arrays.copyOf(bytes, Math.max(bytes.length * 2, size + extra));
+            }
+        }
+    }
+}
@@ -0,0 +1,57 @@
+package utils;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collections;
+
+public class PayloadTemplateTest {
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    @Test(description = "Placeholders are filled in order of first appearance and literals are kept")
+    public void testRendersPlaceholdersAndLiterals() {
+        PayloadTemplate template = PayloadTemplate.compile(
+                "{\"name\": \"${name}\", \"data\": {\"userId\": \"${userId}\", \"tags\": [\"a\", 1.5, true, null], \"copy\": \"${name}\"}}");
+        Assert.assertEquals(template.names(), Arrays.asList("name", "userId"));
+        Assert.assertEquals(new String(template.render("foo", "42"), StandardCharsets.UTF_8),
+                "{\"name\":\"foo\",\"data\":{\"userId\":\"42\",\"tags\":[\"a\",1.5,true,null],\"copy\":\"foo\"}}");
+    }
+
+    @Test(description = "Quoted placeholders stay strings whatever the value's type, as with String.format")
+    public void testValuesAreRenderedAsStrings() {
+        PayloadTemplate template = PayloadTemplate.compile("{\"id\": \"${id}\", \"active\": \"${active}\", \"note\": \"${note}\"}");
+        Assert.assertEquals(new String(template.render(42, true, null), StandardCharsets.UTF_8),
+                "{\"id\":\"42\",\"active\":\"true\",\"note\":\"null\"}");
+    }
+
+    @Test(description = "Quotes, backslashes, control characters and non-ASCII text are escaped")
+    public void testEscapesValues() throws IOException {
+        PayloadTemplate template = PayloadTemplate.compile("{\"name\": \"${name}\"}");
+        String value = "say \"hi\"\\ \n\t\u0001 Zo\u00EB \u2713";
+        JsonNode node = MAPPER.readTree(template.render(value));
+        Assert.assertEquals(node.get("name").asText(), value);
+    }
+
+    @Test(description = "The per-thread buffer is reused without leaking earlier bodies")
+    public void testBufferReuse() {
+        PayloadTemplate template = PayloadTemplate.compile("{\"v\": \"${v}\"}");
+        template.render(String.join("", Collections.nCopies(5000, "x")));
+        Assert.assertEquals(new String(template.render("y"), StandardCharsets.UTF_8), "{\"v\":\"y\"}");
+    }
+
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public void testWrongValueCount() {
+        PayloadTemplate.compile("{\"name\": \"${name}\", \"job\": \"${job}\"}").render("only name");
+    }
+
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public void testInvalidTemplate() {
+        PayloadTemplate.compile("{\"name\": ");
+    }
+}
@@ -0,0 +1,220 @@
+package utils;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Function;
+
+/**
+ * A graph of HTTP calls in which a step starts as soon as the steps it depends on have finished,
+ * instead of waiting for every earlier call in the test. Independent steps run concurrently on
+ * {@link TestExecutors#requests()} (virtual threads with {@code -Dexecutor.mode=virtual}); only real
+ * data dependencies, such as the {@code id} returned by a POST, serialise. A class can declare all
+ * of its chains up front, e.g. in {@code @BeforeClass}, and each test then {@link Step#join() joins}
+ * the step it checks, so the class takes about as long as its longest chain.
+ *
+ * <pre>{@code
+ * RequestFlow flow = RequestFlow.start();
+ * RequestFlow.Step<String> id = flow.step("create", () -> create().path("id"));
+ * RequestFlow.Step<Response> put = flow.then("update", id, objectId -> update(objectId));
+ * RequestFlow.Step<Response> get = flow.then("read back", id, objectId -> read(objectId), put);
+ * }</pre>
+ *
+ * A failed step fails every step that depends on it with the same exception. HTTP exchanges and
+ * endpoints recorded while a step ran are handed to the joining thread, so {@link FailureLogListener}
+ * and {@link LatencySloListener} see them as the test's own. {@code -Dflow.timeoutSeconds} (120)
+ * bounds each join.
+ */
+public final class RequestFlow {
+
+    private static final long TIMEOUT_SECONDS = TestConfig.getLong("flow.timeoutSeconds", 120);
+
+    private final Executor executor;
+    private final List<Step<?>> steps = Collections.synchronizedList(new ArrayList<>());
+
+    private RequestFlow(Executor executor) {
+        this.executor = executor;
+    }
+
+    public static RequestFlow start() {
+        return new RequestFlow(TestExecutors.requests());
+    }
+
+    static RequestFlow start(Executor executor) {
+        return new RequestFlow(executor);
+    }
+
+    /**
+     * Starts a call that needs nothing but the given steps to have finished first.
+     */
+    public <T> Step<T> step(String name, Callable<T> call, Step<?>... after) {
+        Step<T> step = new Step<>(name, after);
+        CompletableFuture<?>[] waits = futures(after);
+        CompletableFuture.allOf(waits).thenRunAsync(() -> step.complete(call), executor)
+                .exceptionally(failure -> step.fail(failure));
+        steps.add(step);
+        return step;
+    }
+
+    /**
+     * Starts a call on the result of {@code input}, once {@code input} and the other given steps
+     * have finished.
+     */
+    public <A, T> Step<T> then(String name, Step<A> input, Function<? super A, ? extends T> call, Step<?>... after) {
+        Step<?>[] dependencies = Arrays.copyOf(after, after.length + 1);
+        dependencies[after.length] = input;
+        return step(name, () -> call.apply(input.result()), dependencies);
+    }
+
+    /**
+     * A step that succeeds once the given steps have finished, whether they succeeded or not. Calls
+     * that take turns on one resource wait for it, so a failure in one does not fail the next; the
+     * given steps' recordings stay with whoever joins them.
+     */
+    public Step<Void> settled(String name, Step<?>... after) {
+        Step<Void> step = new Step<>(name, new Step<?>[0]);
+        CompletableFuture.allOf(futures(after)).handle((result, failure) -> step.future.complete(null));
+        steps.add(step);
+        return step;
+    }
+
+    /**
+     * Waits for every step, throwing the first failure with the others suppressed.
+     */
+    public void join() {
+        Throwable first = null;
+        List<Step<?>> snapshot;
+        synchronized (steps) {
+            snapshot = new ArrayList<>(steps);
+        }
+        for (Step<?> step : snapshot) {
+            try {
+                step.join();
+            } catch (RuntimeException | Error e) {
+                if (first == null) {
+                    first = e;
+                } else if (first != e) {
+                    first.addSuppressed(e);
+                }
+            }
+        }
+        if (first != null) {
+            Step.<RuntimeException, Void>rethrow(first);
+        }
+    }
+
+    private static CompletableFuture<?>[] futures(Step<?>[] steps) {
+        CompletableFuture<?>[] futures = new CompletableFuture<?>[steps.length];
+        for (int i = 0; i < steps.length; i++) {
+            futures[i] = steps[i].future;
+        }
+        return futures;
+    }
+
+    /**
+     * One call in the flow and, once it has run, its result.
+     */
+    public static final class Step<T> {
+        private final String name;
+        private final Step<?>[] dependencies;
+        private final CompletableFuture<T> future = new CompletableFuture<>();
+        private final AtomicBoolean adopted = new AtomicBoolean();
+        private volatile List<ExchangeRecorder.Exchange> exchanges = Collections.emptyList();
+        private volatile Set<String> endpoints = Collections.emptySet();
+        private volatile List<RetryFilter.Retry> retries = Collections.emptyList();
+
+        private Step(String name, Step<?>[] dependencies) {
+            this.name = name;
+            this.dependencies = dependencies;
+        }
+
+        public String name() {
+            return name;
+        }
+
+        /**
+         * Waits for this step and returns its result, rethrowing its failure (or the failure of a
+         * step it depends on) as is. The exchanges recorded by this step and everything it depends
+         * on are adopted by the first thread that joins them.
+         */
+        public T join() {
+            try {
+                return future.get(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Interrupted waiting for step '" + name + "'", e);
+            } catch (TimeoutException e) {
+                throw new IllegalStateException("Step '" + name + "' did not finish within " + TIMEOUT_SECONDS + "s", e);
+            } catch (ExecutionException e) {
+                return rethrow(e.getCause());
+            } finally {
+                adoptRecordings();
+            }
+        }
+
+        /**
+         * The result of a step that has already succeeded; used by dependent steps.
+         */
+        T result() {
+            return future.join();
+        }
+
+        private void complete(Callable<T> call) {
+            ExchangeRecorder.clear();
+            LatencyRecorder.clear();
+            RetryFilter.clear();
+            T value = null;
+            Throwable failure = null;
+            try {
+                value = call.call();
+            } catch (Throwable e) {
+                failure = e;
+            }
+            // Publish the recordings before the result, so a joiner always sees them.
+            exchanges = ExchangeRecorder.drain();
+            endpoints = LatencyRecorder.drainTouched();
+            retries = RetryFilter.drain();
+            if (failure == null) {
+                future.complete(value);
+            } else {
+                future.completeExceptionally(failure);
+            }
+        }
+
+        private Void fail(Throwable failure) {
+            Throwable cause = failure;
+            while (cause instanceof CompletionException && cause.getCause() != null) {
+                cause = cause.getCause();
+            }
+            future.completeExceptionally(cause);
+            return null;
+        }
+
+        private void adoptRecordings() {
+            if (!future.isDone() || !adopted.compareAndSet(false, true)) {
+                return;
+            }
+            for (Step<?> dependency : dependencies) {
+                dependency.adoptRecordings();
+            }
+            ExchangeRecorder.adopt(exchanges);
+            LatencyRecorder.adopt(endpoints);
+            RetryFilter.adopt(retries);
+        }
+
+        @SuppressWarnings("unchecked")
+        private static <E extends Throwable, R> R rethrow(Throwable failure) throws E {
+            throw (E) failure;
+        }
+    }
+}
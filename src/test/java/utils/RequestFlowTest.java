@@ -0,0 +1,79 @@
+package utils;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class RequestFlowTest {
+
+    @Test(description = "Independent steps run at the same time and a dependent step gets its input's result")
+    public void testIndependentStepsOverlap() {
+        RequestFlow flow = RequestFlow.start();
+        CountDownLatch bothStarted = new CountDownLatch(2);
+        RequestFlow.Step<String> first = flow.step("first", () -> awaitOther(bothStarted, "a"));
+        RequestFlow.Step<String> second = flow.step("second", () -> awaitOther(bothStarted, "b"));
+        RequestFlow.Step<String> joined = flow.then("joined", first, a -> a + second.join(), second);
+
+        Assert.assertEquals(joined.join(), "ab");
+        flow.join();
+    }
+
+    @Test(description = "Ordering-only dependencies hold a step back until they have finished")
+    public void testAfterDependenciesOrderSteps() {
+        RequestFlow flow = RequestFlow.start();
+        AtomicInteger order = new AtomicInteger();
+        RequestFlow.Step<Integer> slow = flow.step("slow", () -> {
+            Thread.sleep(50);
+            return order.incrementAndGet();
+        });
+        RequestFlow.Step<Integer> afterSlow = flow.step("after slow", order::incrementAndGet, slow);
+
+        Assert.assertEquals((int) slow.join(), 1);
+        Assert.assertEquals((int) afterSlow.join(), 2);
+    }
+
+    @Test(description = "A failure is rethrown as is by the step and by everything that depends on it, which never runs")
+    public void testFailurePropagatesToDependents() {
+        RequestFlow flow = RequestFlow.start();
+        AtomicInteger dependentRuns = new AtomicInteger();
+        RequestFlow.Step<String> create = flow.step("create", () -> {
+            throw new AssertionError("Expected status code <200> but was <500>.");
+        });
+        RequestFlow.Step<String> update = flow.then("update", create, id -> {
+            dependentRuns.incrementAndGet();
+            return id;
+        });
+        RequestFlow.Step<Integer> unrelated = flow.step("unrelated", () -> 7);
+
+        AssertionError direct = Assert.expectThrows(AssertionError.class, create::join);
+        AssertionError viaDependency = Assert.expectThrows(AssertionError.class, update::join);
+        Assert.assertSame(viaDependency, direct);
+        Assert.assertEquals((int) unrelated.join(), 7);
+        Assert.assertSame(Assert.expectThrows(AssertionError.class, flow::join), direct);
+        Assert.assertEquals(dependentRuns.get(), 0);
+    }
+
+    @Test(description = "A settled step waits for its steps to finish but not for them to succeed")
+    public void testSettledIgnoresFailures() {
+        RequestFlow flow = RequestFlow.start();
+        AtomicInteger order = new AtomicInteger();
+        RequestFlow.Step<String> failing = flow.step("failing", () -> {
+            Thread.sleep(50);
+            order.incrementAndGet();
+            throw new AssertionError("Expected status code <200> but was <500>.");
+        });
+        RequestFlow.Step<Integer> next = flow.step("next", order::incrementAndGet, flow.settled("failing settled", failing));
+
+        Assert.assertEquals((int) next.join(), 2);
+        Assert.expectThrows(AssertionError.class, failing::join);
+    }
+
+    private static String awaitOther(CountDownLatch bothStarted, String value) throws InterruptedException {
+        bothStarted.countDown();
+        Assert.assertTrue(bothStarted.await(10, TimeUnit.SECONDS), "steps did not run concurrently");
+        return value;
+    }
+}
@@ -0,0 +1,532 @@
+package utils;
+
+import io.restassured.builder.ResponseBuilder;
+import io.restassured.filter.FilterContext;
+import io.restassured.filter.OrderedFilter;
+import io.restassured.http.Header;
+import io.restassured.http.Headers;
+import io.restassured.response.Response;
+import io.restassured.specification.FilterableRequestSpecification;
+import io.restassured.specification.FilterableResponseSpecification;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Serves repeated GETs of the same resource from memory instead of the network. Off unless
+ * {@code -Dhttp.cache.mode} is {@code memory}, or {@code disk} to also keep entries under
+ * {@code -Dhttp.cache.dir} ({@code target/http-cache}) for later runs.
+ *
+ * <p>Entries are keyed by URI and the request headers named in {@code -Dhttp.cache.keyHeaders}
+ * ({@code Accept,Authorization}), so one user's response is never served to another. 200, 203, 404
+ * and 410 responses with a {@code Content-Length} of up to {@code -Dhttp.cache.maxBodyBytes} (1 MiB)
+ * are kept, unless the server says {@code Cache-Control: no-store}, for
+ * {@code -Dhttp.cache.ttlSeconds} (300); the
+ * {@code -Dhttp.cache.maxEntries} (1000) least recently used stay in memory, and as many on disk.
+ * The disk tier's keys and URIs are indexed in memory, so only a hit reads an entry's file. An
+ * expired entry with an {@code ETag} is revalidated with {@code If-None-Match}, and a 304 renews it
+ * without resending the body. A POST, PUT, PATCH or DELETE through this JVM drops the entries for its path, the
+ * collections above it and the resources below it; writes from other JVMs, such as parallel
+ * shards, are only bounded by the TTL.
+ *
+ * <p>It runs outside {@link RetryFilter}, {@link EndpointThrottle} and {@link LatencyRecorder}, so a
+ * hit takes no permit and is not timed as a network call. {@link #publish()} logs the hit rate at
+ * the end of the suite.
+ */
+public final class ResponseCache implements OrderedFilter {
+
+    public static final ResponseCache INSTANCE = fromConfig();
+
+    private static final Logger logger = LoggerFactory.getLogger(ResponseCache.class);
+    private static final Set<Integer> CACHEABLE = new HashSet<>(Arrays.asList(200, 203, 404, 410));
+    private static final Set<String> WRITES = new HashSet<>(Arrays.asList("POST", "PUT", "PATCH", "DELETE"));
+    private static final int FORMAT = 1;
+
+    private final boolean enabled;
+    private final Path dir;
+    private final long ttlMillis;
+    private final int maxEntries;
+    private final long maxBodyBytes;
+    private final List<String> keyHeaders;
+    private final Map<String, Entry> memory;
+    // Files in dir by key, least recently used first; guarded by itself.
+    private final LinkedHashMap<String, DiskEntry> onDisk = new LinkedHashMap<>(16, 0.75f, true);
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder diskHits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder revalidated = new LongAdder();
+    private final LongAdder invalidated = new LongAdder();
+
+    ResponseCache(boolean enabled, Path dir, long ttlMillis, int maxEntries, long maxBodyBytes, List<String> keyHeaders) {
+        this.enabled = enabled;
+        this.dir = dir;
+        this.ttlMillis = ttlMillis;
+        this.maxEntries = Math.max(1, maxEntries);
+        this.maxBodyBytes = maxBodyBytes;
+        this.keyHeaders = keyHeaders;
+        this.memory = new LinkedHashMap<String, Entry>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+                return size() > ResponseCache.this.maxEntries;
+            }
+        };
+        if (enabled && dir != null) {
+            loadIndex();
+        }
+    }
+
+    private static ResponseCache fromConfig() {
+        String mode = TestConfig.getString("http.cache.mode", "off").toLowerCase();
+        if (!Arrays.asList("off", "memory", "disk").contains(mode)) {
+            throw new IllegalArgumentException("Expected -Dhttp.cache.mode=off|memory|disk, got: " + mode);
+        }
+        return new ResponseCache(!"off".equals(mode),
+                "disk".equals(mode) ? Paths.get(TestConfig.getString("http.cache.dir", "target/http-cache")) : null,
+                TimeUnit.SECONDS.toMillis(TestConfig.getLong("http.cache.ttlSeconds", 300)),
+                TestConfig.getInt("http.cache.maxEntries", 1000),
+                TestConfig.getLong("http.cache.maxBodyBytes", 1 << 20),
+                Arrays.asList(TestConfig.getString("http.cache.keyHeaders", "Accept,Authorization").split("\\s*,\\s*")));
+    }
+
+    @Override
+    public Response filter(FilterableRequestSpecification requestSpec, FilterableResponseSpecification responseSpec, FilterContext ctx) {
+        if (!enabled) {
+            return ctx.next(requestSpec, responseSpec);
+        }
+        String method = requestSpec.getMethod();
+        if (WRITES.contains(method)) {
+            try {
+                return ctx.next(requestSpec, responseSpec);
+            } finally {
+                // Also after a failure: the write may have reached the server.
+                invalidate(requestSpec.getURI());
+            }
+        }
+        if (!"GET".equals(method)) {
+            return ctx.next(requestSpec, responseSpec);
+        }
+        String key = key(requestSpec);
+        Entry cached = lookup(key);
+        long now = System.currentTimeMillis();
+        if (cached != null && now - cached.storedAt < ttlMillis) {
+            hits.increment();
+            return cached.toResponse();
+        }
+        if (cached != null && cached.etag != null) {
+            requestSpec.header("If-None-Match", cached.etag);
+        }
+        Response response = ctx.next(requestSpec, responseSpec);
+        if (cached != null && cached.etag != null && response.statusCode() == 304) {
+            revalidated.increment();
+            response.asByteArray(); // Releases the pooled connection.
+            Entry renewed = cached.renewed(now);
+            store(renewed);
+            return renewed.toResponse();
+        }
+        misses.increment();
+        if (cacheable(response)) {
+            store(new Entry(key, requestSpec.getURI(), response, now));
+        }
+        return response;
+    }
+
+    @Override
+    public int getOrder() {
+        // Outside RetryFilter, so a hit skips retries, permits and latency recording.
+        return OrderedFilter.LOWEST_PRECEDENCE - 300;
+    }
+
+    /**
+     * GETs answered without sending the request, from memory or disk.
+     */
+    public long hits() {
+        return hits.sum();
+    }
+
+    /**
+     * The part of {@link #hits()} served from {@code -Dhttp.cache.dir}.
+     */
+    public long diskHits() {
+        return diskHits.sum();
+    }
+
+    /**
+     * GETs that went to the network and came back with a full response.
+     */
+    public long misses() {
+        return misses.sum();
+    }
+
+    /**
+     * GETs the server answered with a 304, so the cached body was reused.
+     */
+    public long revalidated() {
+        return revalidated.sum();
+    }
+
+    /**
+     * Entries dropped because of a write, each counted once whether it was in memory, on disk or both.
+     */
+    public long invalidated() {
+        return invalidated.sum();
+    }
+
+    /**
+     * Logs the cache's statistics and sets them as {@code http.cache.hits}, {@code .misses},
+     * {@code .revalidated} and {@code .invalidated} system properties for the surefire XML. Does
+     * nothing when the cache is off.
+     */
+    public static void publish() {
+        ResponseCache cache = INSTANCE;
+        if (!cache.enabled) {
+            return;
+        }
+        long lookups = cache.hits() + cache.misses() + cache.revalidated();
+        logger.info("Response cache: {} hits ({} from disk), {} revalidated, {} misses ({}% served without a body), {} invalidated",
+                cache.hits(), cache.diskHits(), cache.revalidated(), cache.misses(),
+                String.format("%.1f", lookups == 0 ? 0 : 100.0 * (cache.hits() + cache.revalidated()) / lookups), cache.invalidated());
+        System.setProperty("http.cache.hits", String.valueOf(cache.hits()));
+        System.setProperty("http.cache.misses", String.valueOf(cache.misses()));
+        System.setProperty("http.cache.revalidated", String.valueOf(cache.revalidated()));
+        System.setProperty("http.cache.invalidated", String.valueOf(cache.invalidated()));
+    }
+
+    private String key(FilterableRequestSpecification requestSpec) {
+        StringBuilder key = new StringBuilder("GET ").append(requestSpec.getURI());
+        Headers headers = requestSpec.getHeaders();
+        for (String name : keyHeaders) {
+            if (headers.hasHeaderWithName(name)) {
+                key.append('\n').append(name.toLowerCase()).append(": ").append(String.join(", ", headers.getValues(name)));
+            }
+        }
+        return key.toString();
+    }
+
+    private boolean cacheable(Response response) {
+        if (!CACHEABLE.contains(response.statusCode())) {
+            return false;
+        }
+        String cacheControl = response.getHeader("Cache-Control");
+        if (cacheControl != null && cacheControl.toLowerCase().contains("no-store")) {
+            return false;
+        }
+        // Without a length the body would have to be read whole to find out whether it fits.
+        String length = response.getHeader("Content-Length");
+        try {
+            return length != null && Long.parseLong(length.trim()) <= maxBodyBytes;
+        } catch (NumberFormatException e) {
+            return false;
+        }
+    }
+
+    private Entry lookup(String key) {
+        synchronized (memory) {
+            Entry entry = memory.get(key);
+            if (entry != null) {
+                return entry;
+            }
+        }
+        DiskEntry indexed;
+        synchronized (onDisk) {
+            indexed = onDisk.get(key);
+        }
+        if (indexed == null) {
+            return null;
+        }
+        Entry entry = read(indexed.file);
+        if (entry == null || !entry.key.equals(key)) {
+            synchronized (onDisk) {
+                onDisk.remove(key, indexed);
+            }
+            return null;
+        }
+        if (System.currentTimeMillis() - entry.storedAt < ttlMillis) {
+            diskHits.increment();
+        }
+        synchronized (memory) {
+            memory.put(key, entry);
+        }
+        return entry;
+    }
+
+    private void store(Entry entry) {
+        synchronized (memory) {
+            memory.put(entry.key, entry);
+        }
+        if (dir != null) {
+            Path file = dir.resolve(sha256(entry.key) + ".bin");
+            try {
+                write(entry, file);
+            } catch (IOException e) {
+                logger.warn("Could not write cache entry {}: {}", file, e.toString());
+                return;
+            }
+            List<Path> evicted = new ArrayList<>();
+            synchronized (onDisk) {
+                onDisk.put(entry.key, new DiskEntry(file, entry.key, entry.uri, entry.storedAt));
+                for (Iterator<DiskEntry> eldest = onDisk.values().iterator(); onDisk.size() > maxEntries; ) {
+                    evicted.add(eldest.next().file);
+                    eldest.remove();
+                }
+            }
+            evicted.forEach(ResponseCache::deleteQuietly);
+        }
+    }
+
+    /**
+     * Drops the entries a write to {@code uri} may have changed: the same path, the collections
+     * above it and the resources below it, on the same host.
+     */
+    void invalidate(String uri) {
+        URI written = URI.create(uri);
+        Set<String> dropped = new HashSet<>();
+        synchronized (memory) {
+            for (Iterator<Entry> entries = memory.values().iterator(); entries.hasNext(); ) {
+                Entry entry = entries.next();
+                if (affected(written, entry.uri)) {
+                    entries.remove();
+                    dropped.add(entry.key);
+                }
+            }
+        }
+        List<Path> deleted = new ArrayList<>();
+        synchronized (onDisk) {
+            for (Iterator<Map.Entry<String, DiskEntry>> files = onDisk.entrySet().iterator(); files.hasNext(); ) {
+                Map.Entry<String, DiskEntry> file = files.next();
+                if (affected(written, file.getValue().uri)) {
+                    files.remove();
+                    dropped.add(file.getKey());
+                    deleted.add(file.getValue().file);
+                }
+            }
+        }
+        deleted.forEach(ResponseCache::deleteQuietly);
+        invalidated.add(dropped.size());
+    }
+
+    static boolean affected(URI written, String cachedUri) {
+        URI cached = URI.create(cachedUri);
+        if (!String.valueOf(written.getRawAuthority()).equals(String.valueOf(cached.getRawAuthority()))) {
+            return false;
+        }
+        String writtenPath = trimSlash(written.getRawPath());
+        String cachedPath = trimSlash(cached.getRawPath());
+        return writtenPath.equals(cachedPath) || writtenPath.startsWith(cachedPath + "/") || cachedPath.startsWith(writtenPath + "/");
+    }
+
+    private static String trimSlash(String path) {
+        return path == null ? "" : path.endsWith("/") ? path.substring(0, path.length() - 1) : path;
+    }
+
+    /**
+     * Indexes the entries an earlier run left in {@code dir} from their headers alone, keeping the
+     * {@code maxEntries} most recently stored and deleting the rest.
+     */
+    private void loadIndex() {
+        if (!Files.isDirectory(dir)) {
+            return;
+        }
+        List<DiskEntry> found = new ArrayList<>();
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(dir, "*.bin")) {
+            for (Path file : files) {
+                DiskEntry entry = readIndex(file);
+                if (entry == null) {
+                    deleteQuietly(file);
+                } else {
+                    found.add(entry);
+                }
+            }
+        } catch (IOException e) {
+            logger.warn("Could not read the response cache in {}: {}", dir, e.toString());
+        }
+        found.sort(Comparator.comparingLong(entry -> entry.storedAt));
+        for (DiskEntry entry : found.subList(0, Math.max(0, found.size() - maxEntries))) {
+            deleteQuietly(entry.file);
+        }
+        synchronized (onDisk) {
+            for (DiskEntry entry : found.subList(Math.max(0, found.size() - maxEntries), found.size())) {
+                onDisk.put(entry.key, entry);
+            }
+        }
+    }
+
+    /**
+     * Writes to a temporary file and moves it into place, so parallel JVMs never read half an entry.
+     */
+    private static void write(Entry entry, Path file) throws IOException {
+        Files.createDirectories(file.getParent());
+        Path temp = Files.createTempFile(file.getParent(), file.getFileName().toString(), ".tmp");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temp)))) {
+            out.writeInt(FORMAT);
+            out.writeUTF(entry.key);
+            out.writeUTF(entry.uri);
+            out.writeLong(entry.storedAt);
+            out.writeInt(entry.status);
+            out.writeUTF(entry.statusLine);
+            out.writeInt(entry.headers.size());
+            for (Header header : entry.headers) {
+                out.writeUTF(header.getName());
+                out.writeUTF(header.getValue());
+            }
+            out.writeInt(entry.body.length);
+            out.write(entry.body);
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(temp);
+            throw e;
+        }
+        Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private static Entry read(Path file) {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+            if (in.readInt() != FORMAT) {
+                return null;
+            }
+            String key = in.readUTF();
+            String uri = in.readUTF();
+            long storedAt = in.readLong();
+            int status = in.readInt();
+            String statusLine = in.readUTF();
+            List<Header> headers = new ArrayList<>();
+            for (int i = in.readInt(); i > 0; i--) {
+                headers.add(new Header(in.readUTF(), in.readUTF()));
+            }
+            byte[] body = new byte[in.readInt()];
+            in.readFully(body);
+            return new Entry(key, uri, status, statusLine, headers, body, storedAt);
+        } catch (IOException | RuntimeException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Reads an entry's key, URI and age, stopping before the status, headers and body.
+     */
+    private static DiskEntry readIndex(Path file) {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file), 512))) {
+            if (in.readInt() != FORMAT) {
+                return null;
+            }
+            return new DiskEntry(file, in.readUTF(), in.readUTF(), in.readLong());
+        } catch (IOException | RuntimeException e) {
+            return null;
+        }
+    }
+
+    private static void deleteQuietly(Path file) {
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException e) {
+            logger.debug("Could not delete cache entry {}: {}", file, e.toString());
+        }
+    }
+
+    private static String sha256(String key) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(key.getBytes(StandardCharsets.UTF_8));
+            StringBuilder hex = new StringBuilder(digest.length * 2);
+            for (byte b : digest) {
+                hex.append(String.format("%02x", b));
+            }
+            return hex.toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Where an entry is on disk and what {@link #invalidate} needs to know about it.
+     */
+    private static final class DiskEntry {
+        final Path file;
+        final String key;
+        final String uri;
+        final long storedAt;
+
+        DiskEntry(Path file, String key, String uri, long storedAt) {
+            this.file = file;
+            this.key = key;
+            this.uri = uri;
+            this.storedAt = storedAt;
+        }
+    }
+
+    /**
+     * One cached response, with its body read into memory.
+     */
+    private static final class Entry {
+        final String key;
+        final String uri;
+        final int status;
+        final String statusLine;
+        final List<Header> headers;
+        final byte[] body;
+        final String etag;
+        final long storedAt;
+
+        Entry(String key, String uri, Response response, long storedAt) {
+            this(key, uri, response.statusCode(), response.statusLine(), response.getHeaders().asList(),
+                    response.asByteArray(), storedAt);
+        }
+
+        Entry(String key, String uri, int status, String statusLine, List<Header> headers, byte[] body, long storedAt) {
+            this.key = key;
+            this.uri = uri;
+            this.status = status;
+            this.statusLine = statusLine;
+            this.headers = headers;
+            this.body = body;
+            this.storedAt = storedAt;
+            String etag = null;
+            for (Header header : headers) {
+                if ("ETag".equalsIgnoreCase(header.getName())) {
+                    etag = header.getValue();
+                }
+            }
+            this.etag = etag;
+        }
+
+        Entry renewed(long now) {
+            return new Entry(key, uri, status, statusLine, headers, body, now);
+        }
+
+        Response toResponse() {
+            ResponseBuilder builder = new ResponseBuilder()
+                    .setStatusCode(status)
+                    .setStatusLine(statusLine)
+                    .setHeaders(new Headers(headers))
+                    .setBody(body);
+            for (Header header : headers) {
+                if ("Content-Type".equalsIgnoreCase(header.getName())) {
+                    builder.setContentType(header.getValue());
+                }
+            }
+            return builder.build();
+        }
+    }
+}
@@ -0,0 +1,191 @@
+package utils;
+
+import io.restassured.RestAssured;
+import io.restassured.builder.ResponseBuilder;
+import io.restassured.filter.FilterContext;
+import io.restassured.filter.OrderedFilter;
+import io.restassured.http.ContentType;
+import io.restassured.http.Header;
+import io.restassured.http.Headers;
+import io.restassured.response.Response;
+import io.restassured.specification.FilterableRequestSpecification;
+import io.restassured.specification.FilterableResponseSpecification;
+import io.restassured.specification.RequestSpecification;
+import org.testng.Assert;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.io.IOException;
+import java.net.URI;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+
+import static org.hamcrest.Matchers.equalTo;
+
+public class ResponseCacheTest extends StubServerTest {
+
+    private static final List<String> KEY_HEADERS = Arrays.asList("Accept", "Authorization");
+
+    private final AtomicInteger sent = new AtomicInteger();
+    private final AtomicInteger notModified = new AtomicInteger();
+    @BeforeMethod
+    public void reset() {
+        sent.set(0);
+        notModified.set(0);
+    }
+
+    @Test(description = "A repeated GET is answered from memory with the same status, headers and body")
+    public void testRepeatedGetIsHit() {
+        ResponseCache cache = new ResponseCache(true, null, 60_000, 100, 1 << 20, KEY_HEADERS);
+        Response first = request(cache).get("/objects/1");
+        Response second = request(cache).get("/objects/1");
+
+        Assert.assertEquals(sent.get(), 1);
+        Assert.assertEquals(cache.hits(), 1);
+        Assert.assertEquals(cache.misses(), 1);
+        second.then().statusCode(200).contentType(ContentType.JSON).body("name", equalTo("Google Pixel 6 Pro"));
+        Assert.assertEquals(second.asString(), first.asString());
+        Assert.assertEquals(second.header("ETag"), first.header("ETag"));
+
+        request(cache).get("/objects/invalid").then().statusCode(404);
+        request(cache).get("/objects/invalid").then().statusCode(404);
+        request(cache).header("Authorization", "Bearer other").get("/objects/1").then().statusCode(200);
+        Assert.assertEquals(sent.get(), 3, "404 cached, other credentials not served the cached copy");
+    }
+
+    @Test(description = "Bodies over maxBodyBytes, or of unknown length, are not cached")
+    public void testOnlyBoundedBodiesAreCached() {
+        ResponseCache small = new ResponseCache(true, null, 60_000, 100, 16, KEY_HEADERS);
+        request(small).get("/objects/1").then().statusCode(200);
+        request(small).get("/objects/1").then().statusCode(200);
+        Assert.assertEquals(sent.get(), 2);
+
+        ResponseCache cache = new ResponseCache(true, null, 60_000, 100, 1 << 20, KEY_HEADERS);
+        OrderedFilter unknownLength = new OrderedFilter() {
+            @Override
+            public Response filter(FilterableRequestSpecification requestSpec, FilterableResponseSpecification responseSpec, FilterContext ctx) {
+                Response response = ctx.next(requestSpec, responseSpec);
+                List<Header> headers = new ArrayList<>(response.getHeaders().asList());
+                headers.removeIf(header -> header.getName().equalsIgnoreCase("Content-Length"));
+                return new ResponseBuilder().clone(response).setHeaders(new Headers(headers)).build();
+            }
+
+            @Override
+            public int getOrder() {
+                return OrderedFilter.LOWEST_PRECEDENCE;
+            }
+        };
+        request(cache).filter(unknownLength).get("/objects/1").then().statusCode(200);
+        request(cache).filter(unknownLength).get("/objects/1").then().statusCode(200).body("name", equalTo("Google Pixel 6 Pro"));
+        Assert.assertEquals(sent.get(), 4);
+        Assert.assertEquals(cache.hits(), 0);
+    }
+
+    @Test(description = "A write drops the cached resource, its collection and nothing else")
+    public void testWriteInvalidates() {
+        ResponseCache cache = new ResponseCache(true, null, 60_000, 100, 1 << 20, KEY_HEADERS);
+        String id = request(cache).contentType(ContentType.JSON).body("{\"name\": \"Cached\"}").post("/objects")
+                .then().statusCode(200).extract().path("id");
+        request(cache).get("/objects/" + id).then().body("name", equalTo("Cached"));
+        request(cache).get("/objects").then().statusCode(200);
+        request(cache).get("/objects/2").then().statusCode(200);
+        sent.set(0);
+
+        request(cache).contentType(ContentType.JSON).body("{\"name\": \"Renamed\"}").put("/objects/" + id).then().statusCode(200);
+        request(cache).get("/objects/" + id).then().body("name", equalTo("Renamed"));
+        Assert.assertTrue(request(cache).get("/objects").jsonPath().getList("name").contains("Renamed"));
+        request(cache).get("/objects/2").then().statusCode(200);
+        Assert.assertEquals(sent.get(), 3, "PUT and the two invalidated GETs; /objects/2 still cached");
+        Assert.assertEquals(cache.invalidated(), 2);
+
+        Assert.assertTrue(ResponseCache.affected(URI.create("http://h:1/objects/7"), "http://h:1/objects?page=2"));
+        Assert.assertTrue(ResponseCache.affected(URI.create("http://h:1/objects"), "http://h:1/objects/7/"));
+        Assert.assertFalse(ResponseCache.affected(URI.create("http://h:1/objects/7"), "http://h:1/objects/70"));
+        Assert.assertFalse(ResponseCache.affected(URI.create("http://h:1/objects/7"), "http://other:1/objects/7"));
+    }
+
+    @Test(description = "An expired entry is revalidated with If-None-Match, and a 304 reuses the cached body")
+    public void testExpiredEntryRevalidated() {
+        ResponseCache cache = new ResponseCache(true, null, 0, 100, 1 << 20, KEY_HEADERS);
+        Response first = request(cache).get("/api/users/2");
+        Response second = request(cache).get("/api/users/2");
+
+        Assert.assertEquals(sent.get(), 2);
+        Assert.assertEquals(notModified.get(), 1);
+        Assert.assertEquals(cache.revalidated(), 1);
+        second.then().statusCode(200).body("data.id", equalTo(2));
+        Assert.assertEquals(second.asString(), first.asString());
+    }
+
+    @Test(description = "The disk tier serves entries written by an earlier cache, and a write deletes them")
+    public void testDiskTier() throws IOException {
+        Path dir = Files.createTempDirectory("http-cache");
+        ResponseCache writer = new ResponseCache(true, dir, 60_000, 100, 1 << 20, KEY_HEADERS);
+        request(writer).get("/objects/3").then().statusCode(200);
+
+        ResponseCache reader = new ResponseCache(true, dir, 60_000, 100, 1 << 20, KEY_HEADERS);
+        request(reader).get("/objects/3").then().statusCode(200).body("name", equalTo("Apple iPhone 12 Pro Max"));
+        Assert.assertEquals(sent.get(), 1);
+        Assert.assertEquals(reader.diskHits(), 1);
+
+        request(reader).delete("/objects/3").then().statusCode(200);
+        Assert.assertEquals(reader.invalidated(), 1, "in memory and on disk, counted once");
+        Assert.assertEquals(fileCount(dir), 0L);
+        Files.delete(dir);
+    }
+
+    @Test(description = "The disk tier keeps maxEntries files, and a write counts the disk entries it drops")
+    public void testDiskTierBounded() throws IOException {
+        Path dir = Files.createTempDirectory("http-cache");
+        ResponseCache writer = new ResponseCache(true, dir, 60_000, 2, 1 << 20, KEY_HEADERS);
+        for (String id : Arrays.asList("1", "2", "invalid")) {
+            request(writer).get("/objects/" + id);
+        }
+        Assert.assertEquals(fileCount(dir), 2L);
+
+        new ResponseCache(true, dir, 60_000, 1, 1 << 20, KEY_HEADERS);
+        Assert.assertEquals(fileCount(dir), 1L, "an index over maxEntries drops the oldest files");
+
+        ResponseCache untouched = new ResponseCache(true, dir, 60_000, 100, 1 << 20, KEY_HEADERS);
+        request(untouched).contentType(ContentType.JSON).body("{\"name\": \"New\"}").post("/objects").then().statusCode(200);
+        Assert.assertEquals(untouched.invalidated(), 1, "only on disk");
+        Assert.assertEquals(fileCount(dir), 0L);
+        Files.delete(dir);
+    }
+
+    private static long fileCount(Path dir) throws IOException {
+        try (Stream<Path> files = Files.list(dir)) {
+            return files.count();
+        }
+    }
+
+    private RequestSpecification request(ResponseCache cache) {
+        return RestAssured.given().config(HttpClientPool.config()).baseUri(stub.baseUri()).filter(cache).filter(new Counter());
+    }
+
+    /**
+     * Counts the requests that reach the network, running inside the cache.
+     */
+    private final class Counter implements OrderedFilter {
+
+        @Override
+        public Response filter(FilterableRequestSpecification requestSpec, FilterableResponseSpecification responseSpec, FilterContext ctx) {
+            sent.incrementAndGet();
+            Response response = ctx.next(requestSpec, responseSpec);
+            if (response.statusCode() == 304) {
+                notModified.incrementAndGet();
+            }
+            return response;
+        }
+
+        @Override
+        public int getOrder() {
+            return OrderedFilter.LOWEST_PRECEDENCE;
+        }
+    }
+}
@@ -0,0 +1,434 @@
+package utils;
+
+import io.restassured.filter.Filter;
+import io.restassured.filter.FilterContext;
+import io.restassured.filter.OrderedFilter;
+import io.restassured.response.Response;
+import io.restassured.specification.FilterableRequestSpecification;
+import io.restassured.specification.FilterableResponseSpecification;
+import org.apache.http.conn.ConnectTimeoutException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.net.ssl.SSLException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.reflect.Field;
+import java.net.ConnectException;
+import java.net.UnknownHostException;
+import java.time.Duration;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Retries requests that failed for a reason that is likely to pass: a status in
+ * {@code -Dretry.statuses} (429, 502, 503 and 504; add 500 for a server whose 500s are transient)
+ * or an I/O error such as a reset connection or a read timeout. GET, HEAD, OPTIONS, PUT and DELETE
+ * are retried on any of them. POST and PATCH may already have taken effect, so they are only
+ * retried on a 429 or when the connection was never made. A request gets {@code -Dretry.maxAttempts}
+ * (3) attempts. Before each retry it waits for the response's {@code Retry-After}, or else a random
+ * time up to {@code -Dretry.baseMillis} (200) doubled per retry and capped at
+ * {@code -Dretry.maxMillis} (10000); a {@code Retry-After} over the cap is not waited for. Stream
+ * bodies ({@link LargeJsonBody}) cannot be sent twice and are never retried.
+ *
+ * <p>Each host has a circuit breaker. Once {@code -Dretry.breaker.failures} (10) attempts in a row
+ * have ended in a retryable 5xx or I/O error, requests to that host fail fast for
+ * {@code -Dretry.breaker.openSeconds} (30); then one request is let through, and its outcome closes
+ * or reopens the breaker. A host that is down costs the suite seconds rather than a timeout per call.
+ *
+ * <p>It runs outside {@link EndpointThrottle} and {@link LatencyRecorder}, so each attempt takes
+ * its own permit and is timed on its own, and no permit is held while waiting. RestAssured's filter
+ * context can only walk the chain once, so the rest of the chain is captured on the way in and the
+ * context is rewound to it for every attempt; should RestAssured's internals change, requests are
+ * sent once and a warning is logged. Retries are recorded per thread; {@link RetryListener} reports
+ * them per test and {@link #publish()} totals them for the suite.
+ */
+public final class RetryFilter implements OrderedFilter {
+
+    public static final RetryFilter INSTANCE = new RetryFilter(TestConfig.getInt("retry.maxAttempts", 3),
+            TestConfig.getLong("retry.baseMillis", 200), TestConfig.getLong("retry.maxMillis", 10_000),
+            TestConfig.getString("retry.statuses", "429,502,503,504"), TestConfig.getInt("retry.breaker.failures", 10),
+            TestConfig.getLong("retry.breaker.openSeconds", 30));
+
+    private static final Logger logger = LoggerFactory.getLogger(RetryFilter.class);
+    private static final Set<String> IDEMPOTENT = new HashSet<>(Arrays.asList("GET", "HEAD", "OPTIONS", "PUT", "DELETE"));
+    private static final ThreadLocal<List<Retry>> RETRIES = ThreadLocal.withInitial(ArrayList::new);
+    private static final Field CHAIN = chainField();
+
+    private final int maxAttempts;
+    private final long baseMillis;
+    private final long maxMillis;
+    private final Set<Integer> statuses = new HashSet<>();
+    private final int breakerFailures;
+    private final long openNanos;
+    private final ConcurrentMap<String, Breaker> breakers = new ConcurrentHashMap<>();
+    private final LongAdder retried = new LongAdder();
+    private final LongAdder lostNanos = new LongAdder();
+    private final LongAdder breakerOpens = new LongAdder();
+    private final LongAdder failedFast = new LongAdder();
+
+    RetryFilter(int maxAttempts, long baseMillis, long maxMillis, String statuses, int breakerFailures, long openSeconds) {
+        this.maxAttempts = Math.max(1, maxAttempts);
+        this.baseMillis = baseMillis;
+        this.maxMillis = maxMillis;
+        for (String status : statuses.split(",")) {
+            if (!status.trim().isEmpty()) {
+                this.statuses.add(Integer.parseInt(status.trim()));
+            }
+        }
+        this.breakerFailures = Math.max(1, breakerFailures);
+        this.openNanos = TimeUnit.SECONDS.toNanos(openSeconds);
+    }
+
+    @Override
+    public Response filter(FilterableRequestSpecification requestSpec, FilterableResponseSpecification responseSpec, FilterContext ctx) {
+        String host = host(requestSpec.getURI());
+        Breaker breaker = breakers.computeIfAbsent(host, Breaker::new);
+        if (!breaker.allow()) {
+            failedFast.increment();
+            throw new IllegalStateException("Circuit breaker for " + host + " is open after " + breakerFailures
+                    + " failed attempts in a row; failing fast");
+        }
+        List<Filter> chain = capture(ctx);
+        boolean idempotent = IDEMPOTENT.contains(requestSpec.getMethod());
+        boolean resendable = chain != null && !(requestSpec.getBody() instanceof InputStream);
+        for (int attempt = 1; ; attempt++) {
+            long start = System.nanoTime();
+            Response response;
+            try {
+                rewind(ctx, chain);
+                response = ctx.next(requestSpec, responseSpec);
+            } catch (Exception e) {
+                // RestAssured rethrows I/O errors unchecked; the precise rethrow below keeps them as they are.
+                boolean transientError = isTransient(e);
+                breaker.outcome(transientError);
+                if (!transientError || !resendable || !(idempotent || neverConnected(e))
+                        || !retry(requestSpec, attempt, backoffMillis(attempt), e.getClass().getSimpleName(), start, breaker)) {
+                    throw e;
+                }
+                continue;
+            }
+            int status = response.statusCode();
+            boolean retryable = statuses.contains(status);
+            breaker.outcome(retryable && status >= 500);
+            if (!retryable || !resendable || !(idempotent || status == 429)) {
+                return response;
+            }
+            long retryAfter = retryAfterMillis(response.getHeader("Retry-After"));
+            long waitMillis = retryAfter < 0 ? backoffMillis(attempt) : retryAfter;
+            if (waitMillis > maxMillis || attempt >= maxAttempts || breaker.isOpen()) {
+                return response;
+            }
+            discard(response);
+            if (!retry(requestSpec, attempt, waitMillis, String.valueOf(status), start, breaker)) {
+                return response;
+            }
+        }
+    }
+
+    @Override
+    public int getOrder() {
+        // Outside EndpointThrottle and LatencyRecorder, inside ExchangeRecorder.
+        return OrderedFilter.LOWEST_PRECEDENCE - 200;
+    }
+
+    /**
+     * Removes and returns the retries the current thread has made, oldest first.
+     */
+    public static List<Retry> drain() {
+        List<Retry> retries = RETRIES.get();
+        if (retries.isEmpty()) {
+            return Collections.emptyList();
+        }
+        List<Retry> copy = new ArrayList<>(retries);
+        retries.clear();
+        return copy;
+    }
+
+    /**
+     * Appends retries made on another thread, e.g. a virtual thread that ran a row.
+     */
+    public static void adopt(List<Retry> retries) {
+        RETRIES.get().addAll(retries);
+    }
+
+    public static void clear() {
+        RETRIES.get().clear();
+    }
+
+    /**
+     * Time the retries cost: the failed attempts plus the waits after them.
+     */
+    public static long lostMillis(List<Retry> retries) {
+        long nanos = 0;
+        for (Retry retry : retries) {
+            nanos += retry.lostNanos;
+        }
+        return TimeUnit.NANOSECONDS.toMillis(nanos);
+    }
+
+    /**
+     * One line per retry, for a log message or report attachment.
+     */
+    public static String render(List<Retry> retries) {
+        StringBuilder out = new StringBuilder();
+        for (Retry retry : retries) {
+            out.append(retry).append(System.lineSeparator());
+        }
+        return out.toString();
+    }
+
+    /**
+     * Logs the suite's retries and sets {@code retries.count}, {@code retries.lostMillis},
+     * {@code retries.breakerOpens} and {@code retries.failedFast} system properties for the surefire
+     * XML. Does nothing when no request was retried or failed fast.
+     */
+    public static void publish() {
+        RetryFilter filter = INSTANCE;
+        if (filter.retried.sum() == 0 && filter.failedFast.sum() == 0) {
+            return;
+        }
+        long lostMillis = TimeUnit.NANOSECONDS.toMillis(filter.lostNanos.sum());
+        logger.info("Retries: {} retried attempts costing {} ms; circuit breakers opened {} times and failed {} requests fast",
+                filter.retried.sum(), lostMillis, filter.breakerOpens.sum(), filter.failedFast.sum());
+        System.setProperty("retries.count", String.valueOf(filter.retried.sum()));
+        System.setProperty("retries.lostMillis", String.valueOf(lostMillis));
+        System.setProperty("retries.breakerOpens", String.valueOf(filter.breakerOpens.sum()));
+        System.setProperty("retries.failedFast", String.valueOf(filter.failedFast.sum()));
+    }
+
+    /**
+     * Waits before the next attempt and records the retry; false when the request should not be
+     * retried after all (no attempts left, breaker open or interrupted).
+     */
+    private boolean retry(FilterableRequestSpecification requestSpec, int attempt, long waitMillis, String cause,
+                          long attemptStart, Breaker breaker) {
+        if (attempt >= maxAttempts || breaker.isOpen()) {
+            return false;
+        }
+        long attemptNanos = System.nanoTime() - attemptStart;
+        try {
+            Thread.sleep(waitMillis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+        long lost = attemptNanos + TimeUnit.MILLISECONDS.toNanos(waitMillis);
+        retried.increment();
+        lostNanos.add(lost);
+        RETRIES.get().add(new Retry(Endpoints.template(requestSpec.getMethod(), requestSpec.getUserDefinedPath()),
+                cause, attempt, waitMillis, lost));
+        return true;
+    }
+
+    /**
+     * Reads a response that will not be returned, which releases its connection.
+     */
+    private static void discard(Response response) {
+        try {
+            response.asByteArray();
+        } catch (RuntimeException e) {
+            // Only the connection matters here.
+        }
+    }
+
+    /**
+     * The filters after this one, taken off the context's iterator, or null if they cannot be.
+     */
+    private static List<Filter> capture(FilterContext ctx) {
+        if (CHAIN == null || !CHAIN.getDeclaringClass().isInstance(ctx)) {
+            return null;
+        }
+        try {
+            List<Filter> rest = new ArrayList<>();
+            ((Iterator<?>) CHAIN.get(ctx)).forEachRemaining(filter -> rest.add((Filter) filter));
+            return rest;
+        } catch (IllegalAccessException e) {
+            return null;
+        }
+    }
+
+    private static void rewind(FilterContext ctx, List<Filter> chain) {
+        if (chain == null) {
+            return;
+        }
+        try {
+            CHAIN.set(ctx, chain.iterator());
+        } catch (IllegalAccessException e) {
+            throw new IllegalStateException("Cannot rewind the RestAssured filter chain", e);
+        }
+    }
+
+    private static Field chainField() {
+        try {
+            Field field = Class.forName("io.restassured.internal.filter.FilterContextImpl").getDeclaredField("filters");
+            field.setAccessible(true);
+            return field;
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            logger.warn("RestAssured's filter chain cannot be rewound; requests will not be retried: {}", e.toString());
+            return null;
+        }
+    }
+
+    /**
+     * Full jitter: uniformly random up to the exponential backoff for this attempt.
+     */
+    long backoffMillis(int attempt) {
+        long cap = attempt >= 31 ? maxMillis : Math.min(maxMillis, baseMillis << (attempt - 1));
+        return ThreadLocalRandom.current().nextLong(Math.max(0, cap) + 1);
+    }
+
+    /**
+     * {@code Retry-After} in milliseconds, from delay-seconds or an HTTP date; -1 if absent or invalid.
+     */
+    static long retryAfterMillis(String header) {
+        if (header == null || header.trim().isEmpty()) {
+            return -1;
+        }
+        String value = header.trim();
+        try {
+            return Math.max(0, TimeUnit.SECONDS.toMillis(Long.parseLong(value)));
+        } catch (NumberFormatException e) {
+            try {
+                return Math.max(0, Duration.between(ZonedDateTime.now(), ZonedDateTime.parse(value, DateTimeFormatter.RFC_1123_DATE_TIME)).toMillis());
+            } catch (DateTimeParseException notADate) {
+                return -1;
+            }
+        }
+    }
+
+    /**
+     * An I/O failure that a later attempt may not hit; unknown hosts and TLS failures are not.
+     */
+    static boolean isTransient(Throwable failure) {
+        for (Throwable cause = failure; cause != null; cause = cause.getCause()) {
+            if (cause instanceof UnknownHostException || cause instanceof SSLException) {
+                return false;
+            }
+            if (cause instanceof IOException) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Whether the request never reached the server, so even a POST can be sent again.
+     */
+    static boolean neverConnected(Throwable failure) {
+        for (Throwable cause = failure; cause != null; cause = cause.getCause()) {
+            if (cause instanceof ConnectException || cause instanceof ConnectTimeoutException) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * {@code host:port} of a request URI.
+     */
+    static String host(String uri) {
+        int start = uri.indexOf("://");
+        start = start < 0 ? 0 : start + 3;
+        int end = start;
+        while (end < uri.length() && "/?#".indexOf(uri.charAt(end)) < 0) {
+            end++;
+        }
+        return uri.substring(start, end);
+    }
+
+    /**
+     * One retried attempt.
+     */
+    public static final class Retry {
+        private final String endpoint;
+        private final String cause;
+        private final int attempt;
+        private final long waitMillis;
+        private final long lostNanos;
+
+        Retry(String endpoint, String cause, int attempt, long waitMillis, long lostNanos) {
+            this.endpoint = endpoint;
+            this.cause = cause;
+            this.attempt = attempt;
+            this.waitMillis = waitMillis;
+            this.lostNanos = lostNanos;
+        }
+
+        public String endpoint() {
+            return endpoint;
+        }
+
+        /**
+         * The status code or exception that failed the attempt.
+         */
+        public String cause() {
+            return cause;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%s: attempt %d failed with %s, retried after %d ms (%.1f ms lost)",
+                    endpoint, attempt, cause, waitMillis, lostNanos / 1e6);
+        }
+    }
+
+    private final class Breaker {
+        private final String host;
+        private final AtomicInteger failures = new AtomicInteger();
+        private final AtomicBoolean probing = new AtomicBoolean();
+        private volatile boolean open;
+        private volatile long openUntil;
+
+        Breaker(String host) {
+            this.host = host;
+        }
+
+        boolean isOpen() {
+            return open;
+        }
+
+        /**
+         * Whether a request may go out: always while closed, and once open only a single probe
+         * after the open period.
+         */
+        boolean allow() {
+            return !open || (System.nanoTime() - openUntil >= 0 && probing.compareAndSet(false, true));
+        }
+
+        void outcome(boolean failed) {
+            if (!failed) {
+                failures.set(0);
+                if (open) {
+                    open = false;
+                    probing.set(false);
+                    logger.info("Circuit breaker for {} closed", host);
+                }
+            } else if (failures.incrementAndGet() >= breakerFailures || probing.get()) {
+                openUntil = System.nanoTime() + openNanos;
+                failures.set(0);
+                if (!open) {
+                    open = true;
+                    breakerOpens.increment();
+                    logger.warn("Circuit breaker for {} opened after {} failed attempts in a row", host, breakerFailures);
+                }
+                probing.set(false);
+            }
+        }
+    }
+}
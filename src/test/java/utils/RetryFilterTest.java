@@ -0,0 +1,131 @@
+package utils;
+
+import com.sun.net.httpserver.HttpServer;
+import io.restassured.RestAssured;
+import io.restassured.specification.RequestSpecification;
+import org.testng.Assert;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class RetryFilterTest {
+
+    private final Queue<String[]> script = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger hits = new AtomicInteger();
+    private HttpServer server;
+
+    @BeforeClass
+    public void startServer() throws IOException {
+        // Answers each request with the next scripted status and Retry-After, then 200.
+        server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        server.createContext("/", exchange -> {
+            hits.incrementAndGet();
+            exchange.getRequestBody().readAllBytes();
+            String[] next = script.poll();
+            if (next != null && next.length > 1) {
+                exchange.getResponseHeaders().set("Retry-After", next[1]);
+            }
+            exchange.sendResponseHeaders(next == null ? 200 : Integer.parseInt(next[0]), -1);
+            exchange.close();
+        });
+        server.start();
+    }
+
+    @AfterClass(alwaysRun = true)
+    public void stopServer() {
+        server.stop(0);
+    }
+
+    @BeforeMethod
+    public void reset() {
+        script.clear();
+        hits.set(0);
+        RetryFilter.clear();
+    }
+
+    @Test(description = "Idempotent requests are retried on a transient status until they succeed, and the retry is recorded")
+    public void testGetRetriedUntilSuccess() {
+        script.add(new String[]{"503"});
+        script.add(new String[]{"502"});
+        RequestSpecification request = request(new RetryFilter(3, 1, 100, "429,502,503,504", 10, 30));
+
+        Assert.assertEquals(request.get("/objects/7").statusCode(), 200);
+        Assert.assertEquals(hits.get(), 3);
+        List<RetryFilter.Retry> retries = RetryFilter.drain();
+        Assert.assertEquals(retries.size(), 2);
+        Assert.assertEquals(retries.get(0).endpoint(), "GET /objects/{id}");
+        Assert.assertEquals(retries.get(0).cause(), "503");
+        Assert.assertEquals(retries.get(1).cause(), "502");
+    }
+
+    @Test(description = "POST is only retried when the server refused it with a 429, honouring Retry-After")
+    public void testPostRetriedOnlyOn429() {
+        RetryFilter filter = new RetryFilter(3, 1, 5000, "429,502,503,504", 10, 30);
+        script.add(new String[]{"503"});
+        Assert.assertEquals(request(filter).post("/objects").statusCode(), 503);
+        Assert.assertEquals(hits.get(), 1);
+
+        script.add(new String[]{"429", "1"});
+        long start = System.nanoTime();
+        Assert.assertEquals(request(filter).post("/objects").statusCode(), 200);
+        Assert.assertTrue(System.nanoTime() - start >= 1_000_000_000L, "waited for Retry-After");
+        Assert.assertEquals(hits.get(), 3);
+    }
+
+    @Test(description = "A Retry-After beyond the longest wait is returned at once, and so is the last attempt")
+    public void testGivesUp() {
+        RetryFilter filter = new RetryFilter(2, 1, 100, "429,503", 10, 30);
+        script.add(new String[]{"429", "120"});
+        Assert.assertEquals(request(filter).get("/users").statusCode(), 429);
+        Assert.assertEquals(hits.get(), 1);
+
+        script.add(new String[]{"503"});
+        script.add(new String[]{"503"});
+        Assert.assertEquals(request(filter).get("/users").statusCode(), 503);
+        Assert.assertEquals(hits.get(), 3);
+    }
+
+    @Test(description = "After enough failures in a row the breaker fails requests to the host fast")
+    public void testCircuitBreakerOpens() {
+        RetryFilter filter = new RetryFilter(1, 1, 100, "503", 2, 60);
+        script.add(new String[]{"503"});
+        script.add(new String[]{"503"});
+        request(filter).get("/objects");
+        request(filter).get("/objects");
+
+        IllegalStateException fastFailure = Assert.expectThrows(IllegalStateException.class, () -> request(filter).get("/objects"));
+        Assert.assertTrue(fastFailure.getMessage().startsWith("Circuit breaker for " + RetryFilter.host(baseUri())), fastFailure.getMessage());
+        Assert.assertEquals(hits.get(), 2);
+    }
+
+    @Test(description = "Retry-After is read as seconds or as an HTTP date")
+    public void testRetryAfter() {
+        Assert.assertEquals(RetryFilter.retryAfterMillis("3"), 3000);
+        Assert.assertEquals(RetryFilter.retryAfterMillis(null), -1);
+        Assert.assertEquals(RetryFilter.retryAfterMillis("soon"), -1);
+        String inAMinute = DateTimeFormatter.RFC_1123_DATE_TIME.format(ZonedDateTime.now(ZoneOffset.UTC).plusSeconds(60));
+        long millis = RetryFilter.retryAfterMillis(inAMinute);
+        Assert.assertTrue(millis > 58_000 && millis <= 60_000, String.valueOf(millis));
+        Assert.assertEquals(RetryFilter.host("https://api.example.com:8443/objects?id=1"), "api.example.com:8443");
+    }
+
+    private RequestSpecification request(RetryFilter filter) {
+        return RestAssured.given().config(HttpClientPool.config()).baseUri(baseUri()).filter(filter);
+    }
+
+    private String baseUri() {
+        return "http://" + server.getAddress().getAddress().getHostAddress() + ":" + server.getAddress().getPort();
+    }
+}
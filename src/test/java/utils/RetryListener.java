@@ -0,0 +1,45 @@
+package utils;
+
+import io.qameta.allure.Allure;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.testng.IInvokedMethod;
+import org.testng.IInvokedMethodListener;
+import org.testng.ITestResult;
+
+import java.util.List;
+
+/**
+ * Reports the requests {@link RetryFilter} retried during each test: how many and how much time
+ * they cost are set as the {@code retry.count} and {@code retry.lostMillis} result attributes, and
+ * the retries are logged and attached to the Allure report, so a test that only passed on a second
+ * attempt is visible.
+ */
+public class RetryListener implements IInvokedMethodListener {
+
+    private static final Logger logger = LoggerFactory.getLogger(RetryListener.class);
+
+    @Override
+    public void beforeInvocation(IInvokedMethod method, ITestResult testResult) {
+        if (method.isTestMethod()) {
+            RetryFilter.clear();
+        }
+    }
+
+    @Override
+    public void afterInvocation(IInvokedMethod method, ITestResult testResult) {
+        if (!method.isTestMethod()) {
+            return;
+        }
+        List<RetryFilter.Retry> retries = RetryFilter.drain();
+        if (retries.isEmpty()) {
+            return;
+        }
+        long lostMillis = RetryFilter.lostMillis(retries);
+        testResult.setAttribute("retry.count", retries.size());
+        testResult.setAttribute("retry.lostMillis", lostMillis);
+        String rendered = RetryFilter.render(retries);
+        logger.info("{} retried {} request(s), {} ms lost:\n{}", testResult.getName(), retries.size(), lostMillis, rendered);
+        Allure.addAttachment("Retries", "text/plain", rendered);
+    }
+}
@@ -0,0 +1,233 @@
+package utils;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.lang.reflect.Method;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Remembers how each data-provider row did in the previous run, so {@code -Drows.incremental=true}
+ * can rerun only the rows that failed, were skipped or are new. A row is identified by a hash of
+ * its test method and its values, so editing a row in the CSV or workbook makes it a new row that
+ * runs again. The store is {@code target/run-state.bin} ({@code -Drows.stateFile}), one file per
+ * {@link Shard}, at 17 bytes a row; {@link RunStateListener} fills it in and writes it at the end
+ * of the suite, incremental or not. Rows of test methods that did not run at all keep their
+ * previous state, so running a single class does not reset the others.
+ */
+public final class RunState {
+
+    private static final Logger logger = LoggerFactory.getLogger(RunState.class);
+    private static final int FORMAT = 0x52530001;
+    private static final RunState CURRENT = new RunState(
+            Paths.get(TestConfig.getString("rows.stateFile", "target/run-state" + Shard.current().suffix() + ".bin")),
+            TestConfig.getBoolean("rows.incremental", false));
+
+    /**
+     * How a row ended, as stored.
+     */
+    enum Outcome {
+        PASSED, FAILED, SKIPPED
+    }
+
+    private final Path file;
+    private final boolean incremental;
+    private final Map<RowId, Outcome> previous;
+    private final ConcurrentMap<RowId, Outcome> current = new ConcurrentHashMap<>();
+    private final Set<Long> methodsRun = ConcurrentHashMap.newKeySet();
+
+    RunState(Path file, boolean incremental) {
+        this.file = file;
+        this.incremental = incremental;
+        this.previous = read(file);
+    }
+
+    public static RunState current() {
+        return CURRENT;
+    }
+
+    public boolean isIncremental() {
+        return incremental;
+    }
+
+    /**
+     * The rows of {@code testMethod} to run: all of them, or under {@code -Drows.incremental} only
+     * those that did not pass last time. Filtered lazily as the loader yields them.
+     */
+    public static Iterator<Object[]> rowsToRun(Method testMethod, Iterator<Object[]> rows) {
+        return CURRENT.rowsToRun(methodName(testMethod), rows);
+    }
+
+    Iterator<Object[]> rowsToRun(String method, Iterator<Object[]> rows) {
+        return incremental ? new ChangedRows(method, rows) : rows;
+    }
+
+    /**
+     * Records how one invocation of a data-driven test ended. A row that appears twice in a data
+     * set only counts as passed if both passed.
+     */
+    void record(String method, Object[] row, Outcome outcome) {
+        RowId id = RowId.of(method, row);
+        methodsRun.add(id.method);
+        current.merge(id, outcome, (earlier, later) -> earlier == Outcome.PASSED ? later : earlier);
+    }
+
+    static String methodName(Method method) {
+        return method.getDeclaringClass().getName() + "." + method.getName();
+    }
+
+    /**
+     * Writes this run's outcomes, plus the previous run's for methods that did not run, to the
+     * store. The file is replaced atomically, so an interrupted run leaves the last good state.
+     */
+    void save() throws IOException {
+        if (methodsRun.isEmpty()) {
+            return;
+        }
+        Map<RowId, Outcome> merged = new HashMap<>(current);
+        previous.forEach((id, outcome) -> {
+            if (!methodsRun.contains(id.method)) {
+                merged.putIfAbsent(id, outcome);
+            }
+        });
+        Path parent = file.toAbsolutePath().getParent();
+        Files.createDirectories(parent);
+        Path temp = Files.createTempFile(parent, file.getFileName().toString(), ".tmp");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temp)))) {
+            out.writeInt(FORMAT);
+            out.writeInt(merged.size());
+            for (Map.Entry<RowId, Outcome> entry : merged.entrySet()) {
+                out.writeLong(entry.getKey().method);
+                out.writeLong(entry.getKey().row);
+                out.writeByte(entry.getValue().ordinal());
+            }
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(temp);
+            throw e;
+        }
+        Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        long failed = merged.values().stream().filter(outcome -> outcome != Outcome.PASSED).count();
+        logger.info("Run state: {} rows, {} not passed, written to {}", merged.size(), failed, file);
+    }
+
+    private static Map<RowId, Outcome> read(Path file) {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+            if (in.readInt() != FORMAT) {
+                logger.warn("Ignoring {}: not a run-state file of this version", file);
+                return Collections.emptyMap();
+            }
+            int size = in.readInt();
+            Map<RowId, Outcome> rows = new HashMap<>(Math.max(16, size * 4 / 3 + 1));
+            Outcome[] outcomes = Outcome.values();
+            for (int i = 0; i < size; i++) {
+                long method = in.readLong();
+                long row = in.readLong();
+                rows.put(new RowId(method, row), outcomes[in.readUnsignedByte() % outcomes.length]);
+            }
+            return rows;
+        } catch (NoSuchFileException e) {
+            return Collections.emptyMap();
+        } catch (EOFException e) {
+            logger.warn("Ignoring truncated run state {}", file);
+            return Collections.emptyMap();
+        } catch (IOException e) {
+            logger.warn("Could not read run state {}: {}", file, e.toString());
+            return Collections.emptyMap();
+        }
+    }
+
+    /**
+     * Drops the rows that passed last time, carrying their outcome into this run's state.
+     */
+    private final class ChangedRows implements Iterator<Object[]> {
+        private final String method;
+        private final Iterator<Object[]> original;
+        private final AtomicLong skipped = new AtomicLong();
+        private final AtomicLong yielded = new AtomicLong();
+        private Object[] next;
+        private boolean reported;
+
+        ChangedRows(String method, Iterator<Object[]> original) {
+            this.method = method;
+            this.original = original;
+        }
+
+        @Override
+        public boolean hasNext() {
+            while (next == null && original.hasNext()) {
+                Object[] row = original.next();
+                RowId id = RowId.of(method, row);
+                if (previous.get(id) == Outcome.PASSED) {
+                    methodsRun.add(id.method);
+                    current.putIfAbsent(id, Outcome.PASSED);
+                    skipped.incrementAndGet();
+                } else {
+                    next = row;
+                }
+            }
+            if (next == null && !reported) {
+                reported = true;
+                logger.info("Incremental run of {}: {} rows failed or changed since the last run, {} passed rows skipped",
+                        method, yielded.get(), skipped.get());
+            }
+            return next != null;
+        }
+
+        @Override
+        public Object[] next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            Object[] row = next;
+            next = null;
+            yielded.incrementAndGet();
+            return row;
+        }
+    }
+
+    /**
+     * A row's identity: hashes of its test method and of the method plus the row's values.
+     */
+    private static final class RowId {
+        final long method;
+        final long row;
+
+        RowId(long method, long row) {
+            this.method = method;
+            this.row = row;
+        }
+
+        static RowId of(String method, Object[] row) {
+            return new RowId(Shard.hash(method), Shard.hash(ShardInterceptor.rowKey(method, row)));
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            return other instanceof RowId && ((RowId) other).method == method && ((RowId) other).row == row;
+        }
+
+        @Override
+        public int hashCode() {
+            return Long.hashCode(method * 31 + row);
+        }
+    }
+}
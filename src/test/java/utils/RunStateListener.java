@@ -0,0 +1,56 @@
+package utils;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.testng.ISuite;
+import org.testng.ISuiteListener;
+import org.testng.ITestListener;
+import org.testng.ITestResult;
+
+import java.io.IOException;
+
+/**
+ * Keeps {@link RunState} up to date: records how every data-driven invocation ended and writes the
+ * store when the suite finishes, so the next {@code -Drows.incremental=true} run knows which rows
+ * to repeat.
+ */
+public class RunStateListener implements ITestListener, ISuiteListener {
+
+    private static final Logger logger = LoggerFactory.getLogger(RunStateListener.class);
+
+    @Override
+    public void onTestSuccess(ITestResult result) {
+        record(result, RunState.Outcome.PASSED);
+    }
+
+    @Override
+    public void onTestFailure(ITestResult result) {
+        record(result, RunState.Outcome.FAILED);
+    }
+
+    @Override
+    public void onTestFailedButWithinSuccessPercentage(ITestResult result) {
+        record(result, RunState.Outcome.FAILED);
+    }
+
+    @Override
+    public void onTestSkipped(ITestResult result) {
+        record(result, RunState.Outcome.SKIPPED);
+    }
+
+    @Override
+    public void onFinish(ISuite suite) {
+        try {
+            RunState.current().save();
+        } catch (IOException e) {
+            logger.warn("Could not save the run state; the next incremental run will repeat every row: {}", e.toString());
+        }
+    }
+
+    private static void record(ITestResult result, RunState.Outcome outcome) {
+        if (result.getMethod().isDataDriven()) {
+            RunState.current().record(RunState.methodName(result.getMethod().getConstructorOrMethod().getMethod()),
+                    result.getParameters(), outcome);
+        }
+    }
+}
@@ -0,0 +1,86 @@
+package utils;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+
+public class RunStateTest {
+
+    private static final String METHOD = "tests.Example.testRows";
+    private static final String OTHER = "tests.Example.testOther";
+
+    @Test(description = "An incremental run yields only rows that failed, were skipped or changed since the last run")
+    public void testIncrementalRunYieldsFailedAndChangedRows() throws IOException {
+        Path file = Files.createTempDirectory("run-state").resolve("run-state.bin");
+        List<Object[]> rows = Arrays.asList(new Object[]{"a", 200}, new Object[]{"b", 200}, new Object[]{"c", 404}, new Object[]{"d", 200});
+
+        RunState first = new RunState(file, true);
+        Assert.assertEquals(drain(first.rowsToRun(METHOD, rows.iterator())).size(), 4, "no state yet, every row runs");
+        first.record(METHOD, rows.get(0), RunState.Outcome.PASSED);
+        first.record(METHOD, rows.get(1), RunState.Outcome.FAILED);
+        first.record(METHOD, rows.get(2), RunState.Outcome.SKIPPED);
+        first.record(METHOD, rows.get(3), RunState.Outcome.PASSED);
+        first.save();
+
+        List<Object[]> edited = new ArrayList<>(rows);
+        edited.set(3, new Object[]{"d", 201});
+        RunState second = new RunState(file, true);
+        Assert.assertEquals(keys(drain(second.rowsToRun(METHOD, edited.iterator()))), Arrays.asList("b", "c", "d"));
+        Assert.assertEquals(drain(new RunState(file, false).rowsToRun(METHOD, rows.iterator())).size(), 4, "not incremental");
+
+        second.record(METHOD, edited.get(1), RunState.Outcome.PASSED);
+        second.record(METHOD, edited.get(2), RunState.Outcome.PASSED);
+        second.record(METHOD, edited.get(3), RunState.Outcome.FAILED);
+        second.save();
+        Assert.assertEquals(keys(drain(new RunState(file, true).rowsToRun(METHOD, edited.iterator()))), Arrays.asList("d"),
+                "row a carried over as passed though it did not run");
+        Files.delete(file);
+        Files.delete(file.getParent());
+    }
+
+    @Test(description = "Methods that did not run keep their state; a duplicated row only passes if every copy passed")
+    public void testStateOfOtherMethodsKept() throws IOException {
+        Path file = Files.createTempDirectory("run-state").resolve("run-state.bin");
+        Object[] row = {"x"};
+        List<Object[]> single = Collections.singletonList(row);
+        RunState first = new RunState(file, true);
+        first.record(OTHER, row, RunState.Outcome.PASSED);
+        first.record(METHOD, row, RunState.Outcome.FAILED);
+        first.record(METHOD, row, RunState.Outcome.PASSED);
+        first.save();
+
+        RunState second = new RunState(file, true);
+        second.record(METHOD, row, RunState.Outcome.PASSED);
+        second.save();
+
+        RunState third = new RunState(file, true);
+        Assert.assertTrue(drain(third.rowsToRun(OTHER, single.iterator())).isEmpty());
+        Assert.assertTrue(drain(third.rowsToRun(METHOD, single.iterator())).isEmpty());
+
+        Files.write(file, new byte[]{1, 2, 3});
+        Assert.assertEquals(drain(new RunState(file, true).rowsToRun(OTHER, single.iterator())).size(), 1,
+                "an unreadable store means every row runs");
+        Files.delete(file);
+        Files.delete(file.getParent());
+    }
+
+    private static List<Object[]> drain(Iterator<Object[]> rows) {
+        List<Object[]> drained = new ArrayList<>();
+        rows.forEachRemaining(drained::add);
+        return drained;
+    }
+
+    private static List<Object> keys(List<Object[]> rows) {
+        List<Object> keys = new ArrayList<>();
+        rows.forEach(row -> keys.add(row[0]));
+        return keys;
+    }
+}
@@ -0,0 +1,231 @@
+package utils;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.restassured.builder.ResponseBuilder;
+import io.restassured.filter.FilterContext;
+import io.restassured.filter.OrderedFilter;
+import io.restassured.response.Response;
+import io.restassured.specification.FilterableRequestSpecification;
+import io.restassured.specification.FilterableResponseSpecification;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.SequenceInputStream;
+import java.io.UncheckedIOException;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Checks every response against the JSON schema for its request and status, so each data-driven
+ * row gets the whole contract checked and not just the fields its test asserts on. The schema for
+ * each {@code METHOD /path/{id}} and status is listed in {@code schemas/responses.json} on the
+ * test classpath; they are all compiled when the suite starts (see {@link JsonSchema}) and each
+ * response is validated in one streaming pass. A response that does not match fails the calling
+ * test with an {@link AssertionError} listing every violation. Responses with no schema listed,
+ * bodies over {@code -Dschema.maxBodyBytes} (1 MiB) and the replies to streamed
+ * {@link LargeJsonBody} uploads are passed through unchecked; {@code -Dschema.validation=false}
+ * turns checking off. At most that many bytes are read to validate a body: one declared longer is
+ * not read at all, and one of unknown length that runs past it is handed on as a stream, the
+ * bytes already read followed by the rest.
+ *
+ * <p>It sits inside {@link ResponseCache}, so a cached response is only validated when it is
+ * fetched, and outside {@link RetryFilter}, so only the response the test gets is checked. The
+ * time spent validating is not part of the request's latency; {@link #publish()} reports it per
+ * schema at the end of the suite.
+ */
+public final class SchemaValidator implements OrderedFilter {
+
+    private static final Logger logger = LoggerFactory.getLogger(SchemaValidator.class);
+    // Initialised before INSTANCE, whose constructor reads the routes file with it.
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    public static final SchemaValidator INSTANCE = new SchemaValidator(
+            TestConfig.getBoolean("schema.validation", true),
+            "schemas/responses.json",
+            TestConfig.getLong("schema.maxBodyBytes", 1 << 20));
+
+    private final boolean enabled;
+    private final Map<String, Map<Integer, JsonSchema>> routes;
+    private final long maxBodyBytes;
+    private final ConcurrentMap<String, Stats> stats = new ConcurrentHashMap<>();
+
+    SchemaValidator(boolean enabled, String routesResource, long maxBodyBytes) {
+        this.enabled = enabled;
+        this.routes = enabled ? loadRoutes(routesResource) : Collections.emptyMap();
+        this.maxBodyBytes = maxBodyBytes;
+    }
+
+    @Override
+    public Response filter(FilterableRequestSpecification requestSpec, FilterableResponseSpecification responseSpec, FilterContext ctx) {
+        Response response = ctx.next(requestSpec, responseSpec);
+        if (!enabled || requestSpec.getBody() instanceof LargeJsonBody) {
+            return response;
+        }
+        Map<Integer, JsonSchema> byStatus = routes.get(route(requestSpec.getMethod(), requestSpec.getUserDefinedPath()));
+        JsonSchema schema = byStatus == null ? null : byStatus.get(response.statusCode());
+        if (schema == null || declaredLength(response) > maxBodyBytes) {
+            return response;
+        }
+        InputStream in = response.asInputStream();
+        byte[] body;
+        try {
+            body = in.readNBytes((int) Math.min(maxBodyBytes + 1, Integer.MAX_VALUE - 8));
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not read the response to " + requestSpec.getMethod() + " " + requestSpec.getUserDefinedPath(), e);
+        }
+        if (body.length > maxBodyBytes) {
+            return new ResponseBuilder().clone(response).setBody(new SequenceInputStream(new ByteArrayInputStream(body), in)).build();
+        }
+        long start = System.nanoTime();
+        List<String> violations = schema.validate(body);
+        long nanos = System.nanoTime() - start;
+        stats.computeIfAbsent(schema.name(), key -> new Stats()).record(nanos, body.length, !violations.isEmpty());
+        if (!violations.isEmpty()) {
+            throw new AssertionError("Response to " + requestSpec.getMethod() + " " + requestSpec.getUserDefinedPath()
+                    + " (" + response.statusCode() + ") did not match " + schema.name() + ":\n  " + String.join("\n  ", violations));
+        }
+        return new ResponseBuilder().clone(response).setBody(body).build();
+    }
+
+    /**
+     * The response's {@code Content-Length}, or -1 when it has none or it is not a number.
+     */
+    private static long declaredLength(Response response) {
+        String length = response.getHeader("Content-Length");
+        if (length == null) {
+            return -1;
+        }
+        try {
+            return Long.parseLong(length.trim());
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    @Override
+    public int getOrder() {
+        // Between ResponseCache (-300) and RetryFilter (-200).
+        return OrderedFilter.LOWEST_PRECEDENCE - 250;
+    }
+
+    /**
+     * Responses validated so far, and how many of them failed.
+     */
+    public long validated() {
+        return stats.values().stream().mapToLong(stat -> stat.responses.sum()).sum();
+    }
+
+    public long failed() {
+        return stats.values().stream().mapToLong(stat -> stat.violations.sum()).sum();
+    }
+
+    /**
+     * Mean time spent validating one response, in microseconds.
+     */
+    public double meanMicros() {
+        long responses = validated();
+        long nanos = stats.values().stream().mapToLong(stat -> stat.nanos.sum()).sum();
+        return responses == 0 ? 0 : nanos / 1000.0 / responses;
+    }
+
+    /**
+     * Logs the validation cost per schema (responses, failures, mean and max time, mean size) and
+     * sets {@code schema.validation.responses}, {@code .failed} and {@code .meanMicros} system
+     * properties for the surefire XML. Does nothing when no response was validated.
+     */
+    public static void publish() {
+        SchemaValidator validator = INSTANCE;
+        long responses = validator.validated();
+        if (responses == 0) {
+            return;
+        }
+        StringBuilder table = new StringBuilder(String.format("%-50s %9s %7s %9s %9s %10s",
+                "schema", "responses", "failed", "mean us", "max us", "mean bytes"));
+        for (Map.Entry<String, Stats> entry : new TreeMap<>(validator.stats).entrySet()) {
+            Stats stat = entry.getValue();
+            long count = stat.responses.sum();
+            table.append(String.format("%n%-50s %9d %7d %9.1f %9.1f %10d", entry.getKey(), count, stat.violations.sum(),
+                    stat.nanos.sum() / 1000.0 / count, stat.maxNanos.get() / 1000.0, stat.bytes.sum() / count));
+        }
+        logger.info("Schema validation: {} responses, {} failed, {} us mean per response\n{}",
+                responses, validator.failed(), String.format("%.1f", validator.meanMicros()), table);
+        System.setProperty("schema.validation.responses", String.valueOf(responses));
+        System.setProperty("schema.validation.failed", String.valueOf(validator.failed()));
+        System.setProperty("schema.validation.meanMicros", String.format("%.1f", validator.meanMicros()));
+    }
+
+    /**
+     * The routes-file key for a request: {@code POST /objects}, {@code GET /users/{id}}.
+     */
+    static String route(String method, String path) {
+        StringBuilder route = new StringBuilder(method).append(' ');
+        int end = path == null ? -1 : path.indexOf('?');
+        String[] segments = (path == null ? "" : end < 0 ? path : path.substring(0, end)).split("/");
+        boolean first = true;
+        for (String segment : segments) {
+            if (!segment.isEmpty()) {
+                route.append('/').append(first ? segment : "{id}");
+                first = false;
+            }
+        }
+        return first ? route.append('/').toString() : route.toString();
+    }
+
+    private static Map<String, Map<Integer, JsonSchema>> loadRoutes(String resource) {
+        JsonNode document;
+        try (InputStream in = SchemaValidator.class.getClassLoader().getResourceAsStream(resource)) {
+            if (in == null) {
+                throw new IllegalArgumentException("Schema routes not found on the classpath: " + resource);
+            }
+            document = MAPPER.readTree(in);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not read " + resource, e);
+        }
+        Map<String, Map<Integer, JsonSchema>> routes = new HashMap<>();
+        Iterator<Map.Entry<String, JsonNode>> entries = document.fields();
+        while (entries.hasNext()) {
+            Map.Entry<String, JsonNode> entry = entries.next();
+            if (entry.getKey().startsWith("$")) {
+                continue;
+            }
+            Map<Integer, JsonSchema> byStatus = new HashMap<>();
+            Iterator<Map.Entry<String, JsonNode>> statuses = entry.getValue().fields();
+            while (statuses.hasNext()) {
+                Map.Entry<String, JsonNode> status = statuses.next();
+                byStatus.put(Integer.valueOf(status.getKey()), JsonSchema.forResource(status.getValue().asText()));
+            }
+            routes.put(entry.getKey(), byStatus);
+        }
+        return routes;
+    }
+
+    private static final class Stats {
+        final LongAdder responses = new LongAdder();
+        final LongAdder violations = new LongAdder();
+        final LongAdder nanos = new LongAdder();
+        final LongAdder bytes = new LongAdder();
+        final LongAccumulator maxNanos = new LongAccumulator(Math::max, 0);
+
+        void record(long elapsed, int size, boolean failed) {
+            responses.increment();
+            nanos.add(elapsed);
+            bytes.add(size);
+            maxNanos.accumulate(elapsed);
+            if (failed) {
+                violations.increment();
+            }
+        }
+    }
+}
@@ -0,0 +1,124 @@
+package utils;
+
+import io.restassured.RestAssured;
+import io.restassured.builder.ResponseBuilder;
+import io.restassured.filter.FilterContext;
+import io.restassured.filter.OrderedFilter;
+import io.restassured.http.ContentType;
+import io.restassured.http.Header;
+import io.restassured.http.Headers;
+import io.restassured.response.Response;
+import io.restassured.specification.FilterableRequestSpecification;
+import io.restassured.specification.FilterableResponseSpecification;
+import io.restassured.specification.RequestSpecification;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.hamcrest.Matchers.notNullValue;
+
+public class SchemaValidatorTest extends StubServerTest {
+
+    @Test(description = "Every /objects and /users response of the stub matches its schema")
+    public void testStubResponsesMatch() {
+        SchemaValidator validator = new SchemaValidator(true, "schemas/responses.json", 1 << 20);
+        String id = request(validator, "").contentType(ContentType.JSON).body("{\"name\": \"Validated\", \"data\": {\"year\": 2019}}")
+                .post("/objects").then().statusCode(200).extract().path("id");
+        request(validator, "").get("/objects").then().statusCode(200);
+        request(validator, "").get("/objects/" + id).then().statusCode(200);
+        request(validator, "").contentType(ContentType.JSON).body("{\"name\": \"Replaced\"}").put("/objects/" + id).then().statusCode(200);
+        request(validator, "").contentType(ContentType.JSON).body("{\"data\": {\"year\": 2020}}").patch("/objects/" + id).then().statusCode(200);
+        request(validator, "").delete("/objects/" + id).then().statusCode(200);
+        request(validator, "").get("/objects/" + id).then().statusCode(404);
+
+        request(validator, "/api").queryParam("page", 2).get("/users").then().statusCode(200);
+        request(validator, "/api").get("/users/2").then().statusCode(200);
+        request(validator, "/api").get("/users/23").then().statusCode(404);
+        request(validator, "/api").contentType(ContentType.JSON).body("{\"name\": \"morpheus\", \"job\": \"leader\"}").post("/users").then().statusCode(201);
+        request(validator, "/api").contentType(ContentType.JSON).body("{\"name\": \"morpheus\", \"job\": \"zion\"}").put("/users/2").then().statusCode(200);
+        request(validator, "/api").delete("/users/2").then().statusCode(204);
+
+        Assert.assertEquals(validator.validated(), 12, "DELETE /users/{id} has no body and no schema");
+        Assert.assertEquals(validator.failed(), 0);
+        Assert.assertTrue(validator.meanMicros() > 0);
+    }
+
+    @Test(description = "A response that breaks the contract fails with every violation listed")
+    public void testViolationFailsTheCall() {
+        SchemaValidator validator = new SchemaValidator(true, "schemas/responses.json", 1 << 20);
+        OrderedFilter tamper = new OrderedFilter() {
+            @Override
+            public Response filter(FilterableRequestSpecification requestSpec, FilterableResponseSpecification responseSpec, FilterContext ctx) {
+                Response response = ctx.next(requestSpec, responseSpec);
+                return new ResponseBuilder().clone(response).setBody("[{\"id\": 1, \"data\": \"x\"}, {\"id\": \"2\", \"name\": null}]").build();
+            }
+
+            @Override
+            public int getOrder() {
+                return OrderedFilter.LOWEST_PRECEDENCE;
+            }
+        };
+
+        AssertionError error = Assert.expectThrows(AssertionError.class, () -> request(validator, "").filter(tamper).get("/objects"));
+        Assert.assertEquals(error.getMessage(), "Response to GET /objects (200) did not match schemas/objects.json#/definitions/objectList:\n"
+                + "  /0/id: expected string but was integer\n"
+                + "  /0/data: expected null or object but was string\n"
+                + "  /0: missing required property 'name'");
+        Assert.assertEquals(validator.failed(), 1);
+
+        SchemaValidator off = new SchemaValidator(false, "schemas/responses.json", 1 << 20);
+        request(off, "").filter(tamper).get("/objects").then().statusCode(200);
+        Assert.assertEquals(off.validated(), 0);
+    }
+
+    @Test(description = "At most schema.maxBodyBytes are read; a longer body of unknown length is handed on unchecked")
+    public void testBodiesAreReadUpToTheCap() {
+        SchemaValidator validator = new SchemaValidator(true, "schemas/responses.json", 128);
+        request(validator, "").get("/objects").then().statusCode(200);
+        Response list = request(validator, "").filter(contentLength(null)).get("/objects");
+        Assert.assertTrue(list.jsonPath().getList("id").size() > 1, "the bytes read while checking are still in the body");
+        Assert.assertEquals(validator.validated(), 0);
+
+        request(validator, "").filter(contentLength(null)).get("/objects/missing").then().statusCode(404).body("error", notNullValue());
+        request(validator, "").filter(contentLength("unknown")).get("/objects/missing").then().statusCode(404).body("error", notNullValue());
+        Assert.assertEquals(validator.validated(), 2);
+        Assert.assertEquals(validator.failed(), 0);
+    }
+
+    @Test(description = "Routes use the first path segment and {id} for the rest")
+    public void testRoute() {
+        Assert.assertEquals(SchemaValidator.route("GET", "/objects"), "GET /objects");
+        Assert.assertEquals(SchemaValidator.route("GET", "objects/ff80818?x=1"), "GET /objects/{id}");
+        Assert.assertEquals(SchemaValidator.route("DELETE", "/users/invalid/"), "DELETE /users/{id}");
+        Assert.assertEquals(SchemaValidator.route("GET", ""), "GET /");
+    }
+
+    /**
+     * Replaces the response's {@code Content-Length} with {@code value}, or drops it when null.
+     */
+    private static OrderedFilter contentLength(String value) {
+        return new OrderedFilter() {
+            @Override
+            public Response filter(FilterableRequestSpecification requestSpec, FilterableResponseSpecification responseSpec, FilterContext ctx) {
+                Response response = ctx.next(requestSpec, responseSpec);
+                List<Header> headers = new ArrayList<>(response.getHeaders().asList());
+                headers.removeIf(header -> header.getName().equalsIgnoreCase("Content-Length"));
+                if (value != null) {
+                    headers.add(new Header("Content-Length", value));
+                }
+                return new ResponseBuilder().clone(response).setHeaders(new Headers(headers)).build();
+            }
+
+            @Override
+            public int getOrder() {
+                return OrderedFilter.LOWEST_PRECEDENCE;
+            }
+        };
+    }
+
+    private RequestSpecification request(SchemaValidator validator, String basePath) {
+        return RestAssured.given().baseUri(stub.baseUri() + basePath).filter(validator);
+    }
+}
@@ -0,0 +1,96 @@
+package utils;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * This JVM's slice of the suite when it is split across several: {@code -Dshard=2/4} is the
+ * second of four, counting from 1. Work is assigned by a stable hash of a key, so every shard
+ * agrees on the split without talking to the others and a rerun of one shard runs the same tests.
+ * Without {@code -Dshard} the JVM is the only shard and owns everything.
+ */
+public final class Shard {
+
+    private static final Shard CURRENT = parse(TestConfig.getString("shard", "1/1"));
+
+    private final int index;
+    private final int count;
+
+    private Shard(int index, int count) {
+        this.index = index;
+        this.count = count;
+    }
+
+    public static Shard current() {
+        return CURRENT;
+    }
+
+    /**
+     * Parses {@code i/N}.
+     *
+     * @throws IllegalArgumentException unless {@code 1 <= i <= N}
+     */
+    public static Shard parse(String spec) {
+        int slash = spec.indexOf('/');
+        try {
+            int index = Integer.parseInt(spec.substring(0, Math.max(slash, 0)).trim());
+            int count = Integer.parseInt(spec.substring(slash + 1).trim());
+            if (slash > 0 && count >= 1 && index >= 1 && index <= count) {
+                return new Shard(index, count);
+            }
+        } catch (NumberFormatException e) {
+            // Reported below.
+        }
+        throw new IllegalArgumentException("Expected -Dshard=<i>/<N> with 1 <= i <= N, got: " + spec);
+    }
+
+    public int index() {
+        return index;
+    }
+
+    public int count() {
+        return count;
+    }
+
+    public boolean isSharded() {
+        return count > 1;
+    }
+
+    /**
+     * Whether this shard runs the work named by {@code key}.
+     */
+    public boolean owns(String key) {
+        return count == 1 || Math.floorMod(hash(key), count) == index - 1;
+    }
+
+    /**
+     * Whether this shard runs the class's plain tests and its class-level fixtures.
+     */
+    public boolean ownsClass(Class<?> testClass) {
+        return owns(testClass.getName());
+    }
+
+    /**
+     * {@code -shard-2-of-4} for file names, or empty when not sharded.
+     */
+    public String suffix() {
+        return isSharded() ? "-shard-" + index + "-of-" + count : "";
+    }
+
+    @Override
+    public String toString() {
+        return index + "/" + count;
+    }
+
+    /**
+     * 64-bit FNV-1a over the UTF-8 bytes; unlike {@link String#hashCode()} its low bits are well
+     * mixed, so consecutive row keys spread evenly.
+     */
+    static long hash(String key) {
+        long hash = 0xcbf29ce484222325L;
+        for (byte b : key.getBytes(StandardCharsets.UTF_8)) {
+            hash ^= b & 0xff;
+            hash *= 0x100000001b3L;
+        }
+        return hash;
+    }
+}
@@ -0,0 +1,104 @@
+package utils;
+
+import org.testng.IDataProviderInterceptor;
+import org.testng.IDataProviderMethod;
+import org.testng.IMethodInstance;
+import org.testng.IMethodInterceptor;
+import org.testng.ITestContext;
+import org.testng.ITestNGMethod;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+/**
+ * Runs only this JVM's {@link Shard} of the suite under {@code -Dshard=i/N}. Plain test methods go
+ * to the shard that owns their class, so a class's fixtures are set up in one JVM. Data-driven
+ * methods run in every shard, each on the rows whose method name and values hash to it; rows are
+ * filtered as the provider yields them, so a large data set is never held in memory. The filter is
+ * idempotent, and {@link VirtualThreadRowInterceptor} applies it too before fanning rows out, since
+ * TestNG does not promise an order for data-provider interceptors.
+ */
+public class ShardInterceptor implements IMethodInterceptor, IDataProviderInterceptor {
+
+    private final Shard shard;
+
+    public ShardInterceptor() {
+        this(Shard.current());
+    }
+
+    ShardInterceptor(Shard shard) {
+        this.shard = shard;
+    }
+
+    @Override
+    public List<IMethodInstance> intercept(List<IMethodInstance> methods, ITestContext context) {
+        if (!shard.isSharded()) {
+            return methods;
+        }
+        List<IMethodInstance> kept = new ArrayList<>();
+        for (IMethodInstance instance : methods) {
+            ITestNGMethod method = instance.getMethod();
+            if (method.isDataDriven() || shard.ownsClass(method.getRealClass())) {
+                kept.add(instance);
+            }
+        }
+        return kept;
+    }
+
+    @Override
+    public Iterator<Object[]> intercept(Iterator<Object[]> original, IDataProviderMethod dataProviderMethod,
+                                        ITestNGMethod method, ITestContext context) {
+        return ownedRows(original, method.getQualifiedName());
+    }
+
+    /**
+     * The rows of {@code method} this shard runs, filtered lazily.
+     */
+    Iterator<Object[]> ownedRows(Iterator<Object[]> rows, String method) {
+        return shard.isSharded() ? new OwnedRows(rows, method, shard) : rows;
+    }
+
+    /**
+     * Key a row is assigned by: the same row of the same method always lands on the same shard.
+     */
+    static String rowKey(String method, Object[] row) {
+        return method + Arrays.deepToString(row);
+    }
+
+    private static final class OwnedRows implements Iterator<Object[]> {
+        private final Iterator<Object[]> original;
+        private final String method;
+        private final Shard shard;
+        private Object[] next;
+
+        OwnedRows(Iterator<Object[]> original, String method, Shard shard) {
+            this.original = original;
+            this.method = method;
+            this.shard = shard;
+        }
+
+        @Override
+        public boolean hasNext() {
+            while (next == null && original.hasNext()) {
+                Object[] row = original.next();
+                if (shard.owns(rowKey(method, row))) {
+                    next = row;
+                }
+            }
+            return next != null;
+        }
+
+        @Override
+        public Object[] next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            Object[] row = next;
+            next = null;
+            return row;
+        }
+    }
+}
@@ -0,0 +1,63 @@
+package utils;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+
+public class ShardTest {
+
+    @Test(description = "Shards parse as i/N counting from 1 and reject anything else")
+    public void testParse() {
+        Shard shard = Shard.parse("2/4");
+        Assert.assertEquals(shard.index(), 2);
+        Assert.assertEquals(shard.count(), 4);
+        Assert.assertEquals(shard.suffix(), "-shard-2-of-4");
+        Assert.assertEquals(Shard.parse("1/1").suffix(), "");
+        for (String bad : new String[]{"0/4", "5/4", "4", "/4", "a/b", "1/0"}) {
+            Assert.expectThrows(IllegalArgumentException.class, () -> Shard.parse(bad));
+        }
+    }
+
+    @Test(description = "Every row lands in exactly one shard and the shards are about the same size")
+    public void testRowsSplitAcrossShards() {
+        int rows = 10_000;
+        int shards = 4;
+        Set<String> seen = new HashSet<>();
+        for (int i = 1; i <= shards; i++) {
+            List<Object[]> owned = drain(new ShardInterceptor(Shard.parse(i + "/" + shards)).ownedRows(rows(rows), "tests.T.create"));
+            Assert.assertTrue(Math.abs(owned.size() - rows / shards) < rows / shards / 10, "shard " + i + " has " + owned.size());
+            for (Object[] row : owned) {
+                Assert.assertTrue(seen.add((String) row[0]), row[0] + " ran in two shards");
+            }
+        }
+        Assert.assertEquals(seen.size(), rows);
+    }
+
+    @Test(description = "The split is the same in every JVM, and a single shard keeps the provider's iterator")
+    public void testSplitIsStable() {
+        Iterator<Object[]> original = rows(10);
+        Assert.assertSame(new ShardInterceptor(Shard.parse("1/1")).ownedRows(original, "tests.T.create"), original);
+        Assert.assertEquals(Shard.hash("tests.T.create[row-1, 201]"), Shard.hash("tests.T.create[row-1, 201]"));
+        Assert.assertEquals(Shard.hash(""), 0xcbf29ce484222325L);
+        Assert.assertEquals(Shard.hash("a"), 0xaf63dc4c8601ec8cL);
+    }
+
+    private static Iterator<Object[]> rows(int count) {
+        List<Object[]> rows = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            rows.add(new Object[]{"row-" + i, 201});
+        }
+        return rows.iterator();
+    }
+
+    private static List<Object[]> drain(Iterator<Object[]> rows) {
+        List<Object[]> drained = new ArrayList<>();
+        rows.forEachRemaining(drained::add);
+        return drained;
+    }
+}
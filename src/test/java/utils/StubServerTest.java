@@ -0,0 +1,35 @@
+package utils;
+
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+
+import java.io.IOException;
+
+/**
+ * Base class for tests that run against a {@link ApiStubServer} of their own, started before the
+ * class's first test and stopped after its last. Override {@link #startStub()} for a stub that
+ * gzips or speaks HTTP/2.
+ */
+public abstract class StubServerTest {
+
+    protected ApiStubServer stub;
+
+    @BeforeClass
+    public void startStubServer() throws IOException {
+        stub = startStub();
+    }
+
+    @AfterClass(alwaysRun = true)
+    public void stopStubServer() {
+        if (stub != null) {
+            stub.stop();
+        }
+    }
+
+    /**
+     * The stub for this class; a plain HTTP/1.1 one on any free port unless overridden.
+     */
+    protected ApiStubServer startStub() throws IOException {
+        return ApiStubServer.start(0);
+    }
+}
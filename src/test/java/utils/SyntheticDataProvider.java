@@ -0,0 +1,48 @@
+package utils;
+
+import org.testng.annotations.DataProvider;
+
+import java.util.Iterator;
+
+/**
+ * Generated data sets for stressing the create paths with far more, and far stranger, rows than
+ * the hand-written files hold. Empty unless {@code -Dsynthetic.rows} is set, which also switches
+ * the run to {@code testng-synthetic.xml}: the tests using these providers are in the
+ * {@code synthetic} group, which the default suite leaves out. {@code -Dsynthetic.seed} (42) picks
+ * the rows and {@code -Dsynthetic.edgeRate} (0.05) the share of awkward strings.
+ */
+public class SyntheticDataProvider {
+
+    private static final long ROWS = TestConfig.getLong("synthetic.rows", 0);
+    private static final long SEED = TestConfig.getLong("synthetic.seed", 42);
+    private static final double EDGE_RATE = TestConfig.getDouble("synthetic.edgeRate", 0.05);
+
+    /**
+     * {@code (int userId, String title)} rows for POST /objects, with a few users owning most objects.
+     */
+    @DataProvider(name = "syntheticObjects", parallel = true)
+    public static Iterator<Object[]> objects() {
+        return SyntheticDataSet.builder()
+                .seed(SEED)
+                .rows(ROWS)
+                .column("userId", SyntheticDataSet.Column.skewedInts(1, 10_000, 2.0))
+                .column("title", SyntheticDataSet.Column.text(5, 40).edgeCases(EDGE_RATE))
+                .build()
+                .rows();
+    }
+
+    /**
+     * {@code (String name, String job)} rows for POST /users, each with a different name.
+     */
+    @DataProvider(name = "syntheticUsers", parallel = true)
+    public static Iterator<Object[]> users() {
+        return SyntheticDataSet.builder()
+                .seed(SEED)
+                .rows(ROWS)
+                .column("name", SyntheticDataSet.Column.uniqueText("user-"))
+                .column("job", SyntheticDataSet.Column.weighted(new double[]{5, 3, 1, 1},
+                        "engineer", "tester", "leader", "zion resident").edgeCases(EDGE_RATE))
+                .build()
+                .rows();
+    }
+}
@@ -0,0 +1,427 @@
+package utils;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.SplittableRandom;
+import java.util.Spliterator;
+import java.util.function.Consumer;
+
+/**
+ * Rows generated on demand from a declarative spec instead of read from a file, for runs far
+ * larger than anyone would maintain by hand:
+ *
+ * <pre>
+ * SyntheticDataSet objects = SyntheticDataSet.builder()
+ *         .seed(42)
+ *         .rows(1_000_000)
+ *         .column("userId", SyntheticDataSet.Column.skewedInts(1, 10_000, 2.0))
+ *         .column("title", SyntheticDataSet.Column.uniqueText("obj-").edgeCases(0.01))
+ *         .build();
+ * </pre>
+ *
+ * Row {@code i} depends only on the seed and {@code i}, so the same spec yields the same rows in
+ * every run, whichever thread asks for them and in whatever order. Nothing is held per row:
+ * {@link #rows()} streams with constant memory, {@link #rows(int, int)} hands a thread its own
+ * contiguous slice and {@link #spliterator()} splits for parallel streams. Unique columns are a
+ * seeded permutation of the row index rather than a set of values already used.
+ */
+public final class SyntheticDataSet {
+
+    private static final long GOLDEN_GAMMA = 0x9e3779b97f4a7c15L;
+
+    private final long seed;
+    private final long rowCount;
+    private final String[] names;
+    private final Column[] columns;
+    private final long multiplier;
+    private final long increment;
+
+    private SyntheticDataSet(Builder builder) {
+        this.seed = builder.seed;
+        this.rowCount = builder.rows;
+        this.names = builder.names.toArray(new String[0]);
+        this.columns = builder.columns.toArray(new Column[0]);
+        // x -> (a * x + c) mod n is a bijection on [0, n) when a and n are coprime.
+        long n = Math.max(1, rowCount);
+        long a = Math.floorMod(mix(seed), n) | 1;
+        while (gcd(a, n) != 1) {
+            a += 2;
+        }
+        this.multiplier = a % n == 0 ? 1 : a % n;
+        this.increment = Math.floorMod(mix(seed + 1), n);
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    public long size() {
+        return rowCount;
+    }
+
+    public List<String> columnNames() {
+        return Arrays.asList(names);
+    }
+
+    /**
+     * Row {@code index}, generated afresh.
+     */
+    public Object[] row(long index) {
+        if (index < 0 || index >= rowCount) {
+            throw new IndexOutOfBoundsException("Row " + index + " of " + rowCount);
+        }
+        SplittableRandom random = new SplittableRandom(mix(seed + index * GOLDEN_GAMMA));
+        long permuted = Math.floorMod(multiplier * index + increment, rowCount);
+        Object[] row = new Object[columns.length];
+        for (int c = 0; c < columns.length; c++) {
+            row[c] = columns[c].value(random, permuted);
+        }
+        return row;
+    }
+
+    /**
+     * Every row in index order.
+     */
+    public Iterator<Object[]> rows() {
+        return new RangeIterator(0, rowCount);
+    }
+
+    /**
+     * Part {@code part} (from 0) of {@code parts} contiguous slices, so each of {@code parts}
+     * threads can generate its own rows without sharing an iterator.
+     */
+    public Iterator<Object[]> rows(int part, int parts) {
+        if (parts < 1 || part < 0 || part >= parts) {
+            throw new IllegalArgumentException("Expected 0 <= part < parts, got " + part + " of " + parts);
+        }
+        return new RangeIterator(sliceStart(part, parts), sliceStart(part + 1, parts));
+    }
+
+    /**
+     * Every row, splitting in halves for parallel streams.
+     */
+    public Spliterator<Object[]> spliterator() {
+        return new RangeSpliterator(0, rowCount);
+    }
+
+    private long sliceStart(int part, int parts) {
+        // rowCount * part / parts without overflowing for large data sets.
+        return rowCount / parts * part + rowCount % parts * part / parts;
+    }
+
+    /**
+     * SplitMix64's finaliser: spreads neighbouring seeds over the whole range.
+     */
+    static long mix(long z) {
+        z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+        z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+        return z ^ (z >>> 31);
+    }
+
+    private static long gcd(long a, long b) {
+        while (b != 0) {
+            long t = a % b;
+            a = b;
+            b = t;
+        }
+        return a;
+    }
+
+    private final class RangeIterator implements Iterator<Object[]> {
+        private final long end;
+        private long next;
+
+        RangeIterator(long start, long end) {
+            this.next = start;
+            this.end = end;
+        }
+
+        @Override
+        public boolean hasNext() {
+            return next < end;
+        }
+
+        @Override
+        public Object[] next() {
+            if (next >= end) {
+                throw new NoSuchElementException();
+            }
+            return row(next++);
+        }
+    }
+
+    private final class RangeSpliterator implements Spliterator<Object[]> {
+        private long next;
+        private final long end;
+
+        RangeSpliterator(long start, long end) {
+            this.next = start;
+            this.end = end;
+        }
+
+        @Override
+        public boolean tryAdvance(Consumer<? super Object[]> action) {
+            if (next >= end) {
+                return false;
+            }
+            action.accept(row(next++));
+            return true;
+        }
+
+        @Override
+        public Spliterator<Object[]> trySplit() {
+            long middle = next + (end - next) / 2;
+            if (middle <= next) {
+                return null;
+            }
+            Spliterator<Object[]> prefix = new RangeSpliterator(next, middle);
+            next = middle;
+            return prefix;
+        }
+
+        @Override
+        public long estimateSize() {
+            return end - next;
+        }
+
+        @Override
+        public int characteristics() {
+            return ORDERED | SIZED | SUBSIZED | IMMUTABLE | NONNULL;
+        }
+    }
+
+    /**
+     * Builds a {@link SyntheticDataSet}; columns come out in the order they are added.
+     */
+    public static final class Builder {
+        private final List<String> names = new ArrayList<>();
+        private final List<Column> columns = new ArrayList<>();
+        private long seed;
+        private long rows;
+
+        private Builder() {
+        }
+
+        public Builder seed(long seed) {
+            this.seed = seed;
+            return this;
+        }
+
+        public Builder rows(long rows) {
+            if (rows < 0) {
+                throw new IllegalArgumentException("Row count must not be negative: " + rows);
+            }
+            this.rows = rows;
+            return this;
+        }
+
+        public Builder column(String name, Column column) {
+            names.add(name);
+            columns.add(column);
+            return this;
+        }
+
+        public SyntheticDataSet build() {
+            if (columns.isEmpty()) {
+                throw new IllegalStateException("A synthetic data set needs at least one column");
+            }
+            if (rows > Integer.MAX_VALUE && columns.stream().anyMatch(column -> column.unique)) {
+                // Keeps multiplier * index within a long.
+                throw new IllegalStateException("Unique columns support at most " + Integer.MAX_VALUE + " rows, got " + rows);
+            }
+            return new SyntheticDataSet(this);
+        }
+    }
+
+    /**
+     * How one column's values are drawn. Values come from the row's own random source, or for
+     * unique columns from the row's permuted index.
+     */
+    public abstract static class Column {
+
+        /**
+         * Awkward strings that break naive JSON, CSV and logging code: quotes, backslashes,
+         * control characters, accented, CJK and right-to-left text, a surrogate pair, a combining
+         * accent, blanks and a string as long as {@link LargeJsonBody}'s fill buffer.
+         */
+        static final List<String> EDGE_CASES = Arrays.asList(
+                "Say \"hello\"",
+                "O'Brien, \"Jr.\"",
+                "C:\\temp\\new",
+                "{\"injected\": true}",
+                "line1\nline2\ttabbed\r\n",
+                "caf\u00e9 \u00fcber \u00e5ngstr\u00f6m",
+                "\u4e2d\u6587\u6d4b\u8bd5",
+                "\u0645\u0631\u062d\u0628\u0627",
+                "rocket \ud83d\ude80",
+                "e\u0301",
+                "",
+                "   ",
+                "x".repeat(LargeJsonBody.CHUNK_CHARS));
+
+        final boolean unique;
+
+        Column(boolean unique) {
+            this.unique = unique;
+        }
+
+        abstract Object value(SplittableRandom random, long permutedIndex);
+
+        /**
+         * Replaces a {@code rate} fraction of this column's values with {@link #EDGE_CASES}, chosen
+         * at random. Not for unique columns, whose values would then repeat.
+         */
+        public Column edgeCases(double rate) {
+            if (unique) {
+                throw new IllegalStateException("Edge cases would make a unique column repeat values");
+            }
+            if (rate < 0 || rate > 1) {
+                throw new IllegalArgumentException("Edge-case rate must be between 0 and 1: " + rate);
+            }
+            Column plain = this;
+            return new Column(false) {
+                @Override
+                Object value(SplittableRandom random, long permutedIndex) {
+                    // Always draw both, so the rate does not shift the other columns' values.
+                    boolean edge = random.nextDouble() < rate;
+                    int pick = random.nextInt(EDGE_CASES.size());
+                    Object value = plain.value(random, permutedIndex);
+                    return edge ? EDGE_CASES.get(pick) : value;
+                }
+            };
+        }
+
+        /**
+         * Integers spread evenly over {@code min..max}.
+         */
+        public static Column ints(int min, int max) {
+            checkRange(min, max);
+            return new Column(false) {
+                @Override
+                Object value(SplittableRandom random, long permutedIndex) {
+                    return (int) (min + random.nextLong((long) max - min + 1));
+                }
+            };
+        }
+
+        /**
+         * Integers in {@code min..max} bunched towards {@code min}; the higher {@code exponent},
+         * the more the small values dominate, like a few users owning most of the objects. An
+         * exponent of 1 is uniform.
+         */
+        public static Column skewedInts(int min, int max, double exponent) {
+            checkRange(min, max);
+            return new Column(false) {
+                @Override
+                Object value(SplittableRandom random, long permutedIndex) {
+                    long span = (long) max - min + 1;
+                    return (int) (min + Math.min(span - 1, (long) (Math.pow(random.nextDouble(), exponent) * span)));
+                }
+            };
+        }
+
+        /**
+         * Normally distributed doubles rounded to {@code decimals} places, such as prices.
+         */
+        public static Column gaussian(double mean, double standardDeviation, int decimals) {
+            double scale = Math.pow(10, decimals);
+            return new Column(false) {
+                @Override
+                Object value(SplittableRandom random, long permutedIndex) {
+                    // Box-Muller; SplittableRandom has no nextGaussian.
+                    double u = 1 - random.nextDouble();
+                    double gaussian = Math.sqrt(-2 * Math.log(u)) * Math.cos(2 * Math.PI * random.nextDouble());
+                    return Math.round((mean + gaussian * standardDeviation) * scale) / scale;
+                }
+            };
+        }
+
+        /**
+         * {@code start} plus a permutation of the row index: every row gets a different value.
+         */
+        public static Column uniqueInts(long start) {
+            return new Column(true) {
+                @Override
+                Object value(SplittableRandom random, long permutedIndex) {
+                    return start + permutedIndex;
+                }
+            };
+        }
+
+        /**
+         * Lower-case words of {@code minLength..maxLength} characters in all.
+         */
+        public static Column text(int minLength, int maxLength) {
+            checkRange(minLength, maxLength);
+            return new Column(false) {
+                @Override
+                Object value(SplittableRandom random, long permutedIndex) {
+                    int length = minLength + random.nextInt(maxLength - minLength + 1);
+                    char[] text = new char[length];
+                    for (int i = 0; i < length; i++) {
+                        text[i] = i > 0 && text[i - 1] != ' ' && random.nextInt(6) == 0 && i < length - 1
+                                ? ' ' : (char) ('a' + random.nextInt(26));
+                    }
+                    return new String(text);
+                }
+            };
+        }
+
+        /**
+         * {@code prefix} followed by the permuted row index in base 36: every row differs.
+         */
+        public static Column uniqueText(String prefix) {
+            return new Column(true) {
+                @Override
+                Object value(SplittableRandom random, long permutedIndex) {
+                    return prefix + Long.toString(permutedIndex, 36);
+                }
+            };
+        }
+
+        /**
+         * One of {@code values}, each equally likely.
+         */
+        public static Column oneOf(Object... values) {
+            double[] weights = new double[values.length];
+            Arrays.fill(weights, 1);
+            return weighted(weights, values);
+        }
+
+        /**
+         * One of {@code values}, chosen in proportion to {@code weights}.
+         */
+        public static Column weighted(double[] weights, Object... values) {
+            if (values.length == 0 || weights.length != values.length) {
+                throw new IllegalArgumentException("Expected one weight per value, got " + weights.length + " for " + values.length);
+            }
+            double[] cumulative = new double[weights.length];
+            double total = 0;
+            for (int i = 0; i < weights.length; i++) {
+                if (weights[i] < 0) {
+                    throw new IllegalArgumentException("Weights must not be negative: " + weights[i]);
+                }
+                total += weights[i];
+                cumulative[i] = total;
+            }
+            double sum = total;
+            Object[] choices = values.clone();
+            return new Column(false) {
+                @Override
+                Object value(SplittableRandom random, long permutedIndex) {
+                    int i = Arrays.binarySearch(cumulative, random.nextDouble() * sum);
+                    return choices[Math.min(choices.length - 1, i < 0 ? -i - 1 : i + 1)];
+                }
+            };
+        }
+
+        private static void checkRange(long min, long max) {
+            if (min > max) {
+                throw new IllegalArgumentException("Empty range " + min + ".." + max);
+            }
+        }
+    }
+}
@@ -0,0 +1,93 @@
+package utils;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.StreamSupport;
+
+public class SyntheticDataSetTest {
+
+    private static SyntheticDataSet spec(long seed, long rows) {
+        return SyntheticDataSet.builder()
+                .seed(seed)
+                .rows(rows)
+                .column("id", SyntheticDataSet.Column.uniqueInts(1000))
+                .column("name", SyntheticDataSet.Column.uniqueText("user-"))
+                .column("owner", SyntheticDataSet.Column.skewedInts(1, 100, 3.0))
+                .column("title", SyntheticDataSet.Column.text(5, 20).edgeCases(0.2))
+                .column("job", SyntheticDataSet.Column.weighted(new double[]{9, 1, 0}, "engineer", "leader", "never"))
+                .column("price", SyntheticDataSet.Column.gaussian(100, 10, 2))
+                .build();
+    }
+
+    @Test(description = "The same seed yields the same rows in any order; another seed yields other rows")
+    public void testReproducible() {
+        SyntheticDataSet first = spec(42, 1000);
+        SyntheticDataSet again = spec(42, 1000);
+        List<String> rows = render(first.rows());
+        Assert.assertEquals(rows.size(), 1000);
+        Assert.assertEquals(render(again.rows()), rows);
+        Assert.assertEquals(Arrays.deepToString(again.row(737)), rows.get(737));
+        Assert.assertNotEquals(render(spec(43, 1000).rows()), rows);
+        Assert.assertEquals(first.columnNames(), Arrays.asList("id", "name", "owner", "title", "job", "price"));
+    }
+
+    @Test(description = "Unique columns never repeat; values follow their distributions; edge cases are injected")
+    public void testColumns() {
+        SyntheticDataSet data = spec(7, 10_000);
+        Set<Object> ids = new HashSet<>();
+        Set<Object> names = new HashSet<>();
+        int lowOwners = 0;
+        int edgeCases = 0;
+        int leaders = 0;
+        double priceSum = 0;
+        for (Iterator<Object[]> rows = data.rows(); rows.hasNext(); ) {
+            Object[] row = rows.next();
+            long id = (Long) row[0];
+            Assert.assertTrue(id >= 1000 && id < 11_000, String.valueOf(id));
+            ids.add(row[0]);
+            names.add(row[1]);
+            int owner = (Integer) row[2];
+            Assert.assertTrue(owner >= 1 && owner <= 100, String.valueOf(owner));
+            lowOwners += owner <= 10 ? 1 : 0;
+            edgeCases += SyntheticDataSet.Column.EDGE_CASES.contains(row[3]) ? 1 : 0;
+            Assert.assertNotEquals(row[4], "never");
+            leaders += "leader".equals(row[4]) ? 1 : 0;
+            priceSum += (Double) row[5];
+        }
+        Assert.assertEquals(ids.size(), 10_000);
+        Assert.assertEquals(names.size(), 10_000);
+        Assert.assertTrue(lowOwners > 4000, "skewed towards small owners: " + lowOwners);
+        Assert.assertTrue(edgeCases > 1700 && edgeCases < 2300, "about 20% edge cases: " + edgeCases);
+        Assert.assertTrue(leaders > 800 && leaders < 1200, "about 10% leaders: " + leaders);
+        Assert.assertEquals(priceSum / 10_000, 100, 1);
+    }
+
+    @Test(description = "Thread slices and parallel streams cover every row exactly once")
+    public void testSplits() {
+        SyntheticDataSet data = spec(1, 1001);
+        List<String> all = render(data.rows());
+        List<String> sliced = new ArrayList<>();
+        for (int part = 0; part < 3; part++) {
+            sliced.addAll(render(data.rows(part, 3)));
+        }
+        Assert.assertEquals(sliced, all);
+        Assert.assertEquals(StreamSupport.stream(data.spliterator(), true).map(Arrays::deepToString).collect(Collectors.toList()), all);
+        Assert.assertFalse(spec(1, 0).rows().hasNext());
+        Assert.assertThrows(IllegalArgumentException.class, () -> data.rows(3, 3));
+        Assert.assertThrows(IllegalStateException.class, () -> SyntheticDataSet.Column.uniqueText("x").edgeCases(0.1));
+    }
+
+    private static List<String> render(Iterator<Object[]> rows) {
+        List<String> rendered = new ArrayList<>();
+        rows.forEachRemaining(row -> rendered.add(Arrays.deepToString(row)));
+        return rendered;
+    }
+}
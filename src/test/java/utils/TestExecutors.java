@@ -0,0 +1,56 @@
+package utils;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Shared executors for running request work off the TestNG threads. With
+ * {@code -Dexecutor.mode=virtual} (Java 21+) every task gets its own virtual thread, so thousands
+ * of blocking HTTP round trips can be in flight without a platform thread each.
+ */
+public final class TestExecutors {
+
+    public static final String MODE = "executor.mode";
+
+    private static volatile ExecutorService executor;
+
+    private TestExecutors() {
+    }
+
+    public static boolean virtualThreads() {
+        return "virtual".equalsIgnoreCase(TestConfig.getString(MODE, "platform"));
+    }
+
+    /**
+     * Returns the JVM-wide executor for request work: virtual-thread-per-task in virtual mode,
+     * otherwise a cached pool of daemon platform threads.
+     */
+    public static ExecutorService requests() {
+        ExecutorService current = executor;
+        if (current == null) {
+            synchronized (TestExecutors.class) {
+                current = executor;
+                if (current == null) {
+                    current = virtualThreads() ? newVirtualThreadPerTaskExecutor() : Executors.newCachedThreadPool(runnable -> {
+                        Thread thread = new Thread(runnable, "request-worker");
+                        thread.setDaemon(true);
+                        return thread;
+                    });
+                    executor = current;
+                }
+            }
+        }
+        return current;
+    }
+
+    // Looked up reflectively so the default build can keep targeting Java 11.
+    private static ExecutorService newVirtualThreadPerTaskExecutor() {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (NoSuchMethodException e) {
+            throw new IllegalStateException("-D" + MODE + "=virtual needs a Java 21+ runtime, found " + System.getProperty("java.version"), e);
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("Unable to create a virtual thread executor", e);
+        }
+    }
+}
@@ -0,0 +1,498 @@
+package utils;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+
+/**
+ * A CSV file or workbook sheet converted once into a typed, columnar binary file under
+ * {@code target/datasets} and memory-mapped from there. Each column is stored as {@code int},
+ * {@code double} or dictionary-encoded string, inferred from its values; a column holding any
+ * blank or non-numeric value stays a string column. The binary file records the source's size and
+ * modification time and is rebuilt when either changes, so repeat runs map a file instead of
+ * re-parsing the source.
+ *
+ * <p>The storage type is only a guess from the current cells: filling the one blank cell of a
+ * column turns it from a string into an int column. Data providers therefore ask for rows as the
+ * types the consuming test declares ({@link #rows(Class[], String...)}, usually
+ * {@code testMethod.getParameterTypes()}), so a test can take {@code int expectedStatus} and
+ * {@code String userId} whatever the cells hold. {@link #rows()} hands out the storage types.
+ */
+public final class TypedDataSet {
+
+    /** Column storage types, in the order they are tried during inference. */
+    public enum ColumnType { INT, DOUBLE, STRING }
+
+    static final Path CACHE_DIR = Paths.get(TestConfig.getString("dataset.cacheDir", "target/datasets"));
+
+    private static final int MAGIC = 0x54445331;
+    private static final Map<Path, TypedDataSet> LOADED = new ConcurrentHashMap<>();
+    private static final Map<Class<?>, Function<String, Object>> PARSERS = new HashMap<>();
+
+    static {
+        PARSERS.put(int.class, Integer::valueOf);
+        PARSERS.put(Integer.class, Integer::valueOf);
+        PARSERS.put(long.class, Long::valueOf);
+        PARSERS.put(Long.class, Long::valueOf);
+        PARSERS.put(double.class, Double::valueOf);
+        PARSERS.put(Double.class, Double::valueOf);
+        PARSERS.put(boolean.class, Boolean::valueOf);
+        PARSERS.put(Boolean.class, Boolean::valueOf);
+    }
+
+    private final long sourceModified;
+    private final long sourceSize;
+    private final int rowCount;
+    private final String[] names;
+    private final ColumnType[] types;
+    private final String[][] dictionaries;
+    private final int[] offsets;
+    private final ByteBuffer data;
+
+    private TypedDataSet(ByteBuffer buffer) {
+        if (buffer.getInt() != MAGIC) {
+            throw new IllegalStateException("Not a typed data set file");
+        }
+        sourceModified = buffer.getLong();
+        sourceSize = buffer.getLong();
+        rowCount = buffer.getInt();
+        int columns = buffer.getInt();
+        names = new String[columns];
+        types = new ColumnType[columns];
+        dictionaries = new String[columns][];
+        offsets = new int[columns];
+        for (int c = 0; c < columns; c++) {
+            types[c] = ColumnType.values()[buffer.get()];
+            names[c] = readString(buffer);
+            if (types[c] == ColumnType.STRING) {
+                String[] dictionary = new String[buffer.getInt()];
+                for (int i = 0; i < dictionary.length; i++) {
+                    dictionary[i] = readString(buffer);
+                }
+                dictionaries[c] = dictionary;
+            }
+        }
+        int offset = buffer.position();
+        for (int c = 0; c < columns; c++) {
+            offsets[c] = offset;
+            offset += rowCount * (types[c] == ColumnType.DOUBLE ? Double.BYTES : Integer.BYTES);
+        }
+        data = buffer;
+    }
+
+    /**
+     * Loads a CSV file whose first record is the header.
+     */
+    public static TypedDataSet fromCsv(String filePath) throws IOException {
+        Path source = Paths.get(filePath).toAbsolutePath().normalize();
+        return load(source, cacheFile(source, null), () -> {
+            MappedCsvReader reader = MappedCsvReader.open(source);
+            List<String> header = new ArrayList<>();
+            if (reader.hasNext()) {
+                for (Object name : reader.next()) {
+                    header.add((String) name);
+                }
+            }
+            List<Object[]> rows = new ArrayList<>();
+            reader.forEachRemaining(rows::add);
+            return new Table(header, rows);
+        });
+    }
+
+    /**
+     * Loads one sheet of an .xlsx workbook whose first row is the header.
+     */
+    public static TypedDataSet fromXlsx(String filePath, String sheetName) throws IOException {
+        Path source = Paths.get(filePath).toAbsolutePath().normalize();
+        return load(source, cacheFile(source, sheetName), () -> {
+            List<Object[]> rows = new ArrayList<>();
+            XlsxWorkbookLoader.rows(filePath, sheetName).forEachRemaining(rows::add);
+            return new Table(XlsxWorkbookLoader.header(filePath, sheetName), rows);
+        });
+    }
+
+    public int rowCount() {
+        return rowCount;
+    }
+
+    public int columnCount() {
+        return names.length;
+    }
+
+    public String columnName(int column) {
+        return names[column];
+    }
+
+    public ColumnType columnType(int column) {
+        return types[column];
+    }
+
+    /**
+     * Position of the named column.
+     *
+     * @throws IllegalArgumentException if there is no such column
+     */
+    public int column(String name) {
+        for (int c = 0; c < names.length; c++) {
+            if (names[c].equals(name)) {
+                return c;
+            }
+        }
+        throw new IllegalArgumentException("No column '" + name + "' in " + Arrays.toString(names));
+    }
+
+    public int getInt(int row, int column) {
+        checkType(column, ColumnType.INT);
+        return data.getInt(offsets[column] + row * Integer.BYTES);
+    }
+
+    public double getDouble(int row, int column) {
+        if (types[column] == ColumnType.INT) {
+            return getInt(row, column);
+        }
+        checkType(column, ColumnType.DOUBLE);
+        return data.getDouble(offsets[column] + row * Double.BYTES);
+    }
+
+    public String getString(int row, int column) {
+        switch (types[column]) {
+            case INT: return String.valueOf(getInt(row, column));
+            case DOUBLE: return String.valueOf(getDouble(row, column));
+            default: return dictionaries[column][data.getInt(offsets[column] + row * Integer.BYTES)];
+        }
+    }
+
+    /**
+     * Returns every row with all columns, in file order.
+     */
+    public Iterator<Object[]> rows() {
+        return new RowIterator(allColumns());
+    }
+
+    /**
+     * Returns every row with only the named columns, in the order given.
+     */
+    public Iterator<Object[]> rows(String... columnNames) {
+        return new RowIterator(columns(columnNames));
+    }
+
+    /**
+     * Returns the rows whose {@code column} reads as {@code value}, with only the named columns.
+     */
+    public Iterator<Object[]> rowsWhere(String column, String value, String... columnNames) {
+        return new RowIterator(columns(columnNames), null, column(column), value);
+    }
+
+    /**
+     * Returns every row with the named columns, or all columns if none are named, each converted
+     * to the matching entry of {@code types}. Supported types are {@code String}, {@code int},
+     * {@code long}, {@code double}, {@code boolean} and their boxes; a blank cell becomes
+     * {@code null} for a box and fails for a primitive.
+     *
+     * @throws IllegalArgumentException if there is no such column, the number of types does not
+     *                                  match the number of columns, or a type is not supported
+     */
+    public Iterator<Object[]> rows(Class<?>[] types, String... columnNames) {
+        int[] columns = columnNames.length == 0 ? allColumns() : columns(columnNames);
+        return new RowIterator(columns, checkTypes(columns, types), -1, null);
+    }
+
+    /**
+     * Returns the rows whose {@code column} reads as {@code value}, with only the named columns,
+     * converted as by {@link #rows(Class[], String...)}.
+     */
+    public Iterator<Object[]> rowsWhere(String column, String value, Class<?>[] types, String... columnNames) {
+        int[] columns = columns(columnNames);
+        return new RowIterator(columns, checkTypes(columns, types), column(column), value);
+    }
+
+    private int[] allColumns() {
+        int[] columns = new int[names.length];
+        Arrays.setAll(columns, c -> c);
+        return columns;
+    }
+
+    private int[] columns(String... columnNames) {
+        int[] columns = new int[columnNames.length];
+        for (int i = 0; i < columns.length; i++) {
+            columns[i] = column(columnNames[i]);
+        }
+        return columns;
+    }
+
+    private Object value(int row, int column) {
+        switch (types[column]) {
+            case INT: return getInt(row, column);
+            case DOUBLE: return getDouble(row, column);
+            default: return getString(row, column);
+        }
+    }
+
+    private Class<?>[] checkTypes(int[] columns, Class<?>[] types) {
+        if (types.length != columns.length) {
+            throw new IllegalArgumentException(types.length + " types for " + columns.length + " columns");
+        }
+        for (Class<?> type : types) {
+            if (type != String.class && type != Object.class && !PARSERS.containsKey(type)) {
+                throw new IllegalArgumentException("Cannot convert a column to " + type.getName());
+            }
+        }
+        return types;
+    }
+
+    private Object value(int row, int column, Class<?> type) {
+        if (type == String.class) {
+            return getString(row, column);
+        }
+        if (type == Object.class) {
+            return value(row, column);
+        }
+        if (types[column] == ColumnType.INT && (type == int.class || type == Integer.class)) {
+            return getInt(row, column);
+        }
+        String text = getString(row, column);
+        if (text.isEmpty()) {
+            if (type.isPrimitive()) {
+                throw new IllegalStateException("Column '" + names[column] + "' is blank in row " + (row + 1)
+                        + " and cannot be passed as " + type.getName());
+            }
+            return null;
+        }
+        try {
+            return PARSERS.get(type).apply(text.trim());
+        } catch (NumberFormatException e) {
+            throw new IllegalStateException("Column '" + names[column] + "' holds '" + text + "' in row " + (row + 1)
+                    + ", which is not " + type.getSimpleName(), e);
+        }
+    }
+
+    private void checkType(int column, ColumnType expected) {
+        if (types[column] != expected) {
+            throw new IllegalStateException("Column '" + names[column] + "' is " + types[column] + ", not " + expected);
+        }
+    }
+
+    private static TypedDataSet load(Path source, Path cacheFile, TableReader reader) throws IOException {
+        long modified = Files.getLastModifiedTime(source).toMillis();
+        long size = Files.size(source);
+        try {
+            return LOADED.compute(cacheFile, (key, loaded) -> {
+                if (loaded != null && loaded.sourceModified == modified && loaded.sourceSize == size) {
+                    return loaded;
+                }
+                try {
+                    TypedDataSet mapped = Files.exists(key) ? map(key) : null;
+                    if (mapped != null && mapped.sourceModified == modified && mapped.sourceSize == size) {
+                        return mapped;
+                    }
+                    write(reader.read(), modified, size, key);
+                    return map(key);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    private static TypedDataSet map(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            try {
+                return new TypedDataSet(buffer);
+            } catch (RuntimeException e) {
+                // A truncated or foreign file is rebuilt from the source.
+                return null;
+            }
+        }
+    }
+
+    private static Path cacheFile(Path source, String sheetName) {
+        String name = source.getFileName().toString() + (sheetName == null ? "" : "-" + sheetName);
+        return CACHE_DIR.resolve(name.replaceAll("[^A-Za-z0-9._-]", "_")
+                + "-" + Integer.toHexString(source.toString().hashCode()) + ".tds");
+    }
+
+    /**
+     * Infers column types and writes the binary file, replacing any previous version atomically.
+     */
+    static void write(Table table, long sourceModified, long sourceSize, Path file) throws IOException {
+        int columns = table.header.size();
+        ColumnType[] types = new ColumnType[columns];
+        for (int c = 0; c < columns; c++) {
+            types[c] = inferType(table.rows, c);
+        }
+        Files.createDirectories(file.toAbsolutePath().getParent());
+        Path temp = Files.createTempFile(file.toAbsolutePath().getParent(), file.getFileName().toString(), ".tmp");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temp)))) {
+            out.writeInt(MAGIC);
+            out.writeLong(sourceModified);
+            out.writeLong(sourceSize);
+            out.writeInt(table.rows.size());
+            out.writeInt(columns);
+            List<Map<String, Integer>> dictionaries = new ArrayList<>();
+            for (int c = 0; c < columns; c++) {
+                out.writeByte(types[c].ordinal());
+                writeString(out, table.header.get(c));
+                Map<String, Integer> dictionary = new LinkedHashMap<>();
+                if (types[c] == ColumnType.STRING) {
+                    for (Object[] row : table.rows) {
+                        dictionary.putIfAbsent(cell(row, c), dictionary.size());
+                    }
+                    out.writeInt(dictionary.size());
+                    for (String value : dictionary.keySet()) {
+                        writeString(out, value);
+                    }
+                }
+                dictionaries.add(dictionary);
+            }
+            for (int c = 0; c < columns; c++) {
+                for (Object[] row : table.rows) {
+                    String value = cell(row, c);
+                    switch (types[c]) {
+                        case INT: out.writeInt(Integer.parseInt(value)); break;
+                        case DOUBLE: out.writeDouble(Double.parseDouble(value)); break;
+                        default: out.writeInt(dictionaries.get(c).get(value));
+                    }
+                }
+            }
+        }
+        Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    static ColumnType inferType(List<Object[]> rows, int column) {
+        if (rows.isEmpty()) {
+            return ColumnType.STRING;
+        }
+        ColumnType type = ColumnType.INT;
+        for (Object[] row : rows) {
+            String value = cell(row, column);
+            if (type == ColumnType.INT && !isInt(value)) {
+                type = ColumnType.DOUBLE;
+            }
+            if (type == ColumnType.DOUBLE && !isDouble(value)) {
+                return ColumnType.STRING;
+            }
+        }
+        return type;
+    }
+
+    private static boolean isInt(String value) {
+        // Leading zeros and signs other than '-' are kept as text so "007" round-trips.
+        int start = value.startsWith("-") ? 1 : 0;
+        if (value.length() == start || value.length() - start > 10
+                || (value.charAt(start) == '0' && value.length() - start > 1)) {
+            return false;
+        }
+        for (int i = start; i < value.length(); i++) {
+            if (value.charAt(i) < '0' || value.charAt(i) > '9') {
+                return false;
+            }
+        }
+        try {
+            Integer.parseInt(value);
+            return true;
+        } catch (NumberFormatException e) {
+            return false;
+        }
+    }
+
+    private static boolean isDouble(String value) {
+        // Only values that read back as written, so getString returns the cell text.
+        return value.matches("-?(0|[1-9][0-9]*)\\.[0-9]+") && Double.toString(Double.parseDouble(value)).equals(value);
+    }
+
+    private static String cell(Object[] row, int column) {
+        return column < row.length && row[column] != null ? row[column].toString() : "";
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(ByteBuffer buffer) {
+        byte[] bytes = new byte[buffer.getInt()];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Header and string rows read from a source file.
+     */
+    static final class Table {
+        final List<String> header;
+        final List<Object[]> rows;
+
+        Table(List<String> header, List<Object[]> rows) {
+            this.header = header;
+            this.rows = rows;
+        }
+    }
+
+    private interface TableReader {
+        Table read() throws IOException;
+    }
+
+    private final class RowIterator implements Iterator<Object[]> {
+        private final int[] columns;
+        private final Class<?>[] targets;
+        private final int whereColumn;
+        private final String whereValue;
+        private int next;
+
+        RowIterator(int[] columns) {
+            this(columns, null, -1, null);
+        }
+
+        RowIterator(int[] columns, Class<?>[] targets, int whereColumn, String whereValue) {
+            this.columns = columns;
+            this.targets = targets;
+            this.whereColumn = whereColumn;
+            this.whereValue = whereValue;
+        }
+
+        @Override
+        public boolean hasNext() {
+            while (whereColumn >= 0 && next < rowCount && !getString(next, whereColumn).equals(whereValue)) {
+                next++;
+            }
+            return next < rowCount;
+        }
+
+        @Override
+        public Object[] next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            Object[] row = new Object[columns.length];
+            for (int i = 0; i < columns.length; i++) {
+                row[i] = targets == null ? value(next, columns[i]) : value(next, columns[i], targets[i]);
+            }
+            next++;
+            return row;
+        }
+    }
+}
@@ -0,0 +1,108 @@
+package utils;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+public class TypedDataSetTest {
+
+    @Test(description = "Column types are inferred and rows come back typed")
+    public void testTypedColumns() throws IOException {
+        Path csv = writeCsv("id,price,name,code\n1,1849.99,Mac\u00EB,007\n-2,3.5,\"a, b\",\n");
+        TypedDataSet data = TypedDataSet.fromCsv(csv.toString());
+
+        Assert.assertEquals(data.rowCount(), 2);
+        Assert.assertEquals(data.columnType(0), TypedDataSet.ColumnType.INT);
+        Assert.assertEquals(data.columnType(1), TypedDataSet.ColumnType.DOUBLE);
+        Assert.assertEquals(data.columnType(2), TypedDataSet.ColumnType.STRING);
+        Assert.assertEquals(data.columnType(3), TypedDataSet.ColumnType.STRING);
+        Assert.assertEquals(data.getInt(1, 0), -2);
+        Assert.assertEquals(data.getDouble(0, 1), 1849.99);
+        Assert.assertEquals(data.getString(1, data.column("name")), "a, b");
+
+        List<Object[]> rows = drain(data.rows());
+        Assert.assertEquals(rows.get(0), new Object[]{1, 1849.99, "Mac\u00EB", "007"});
+        Assert.assertEquals(rows.get(1), new Object[]{-2, 3.5, "a, b", ""});
+        Assert.assertEquals(drain(data.rows("code", "id")).get(0), new Object[]{"007", 1});
+    }
+
+    @Test(description = "Rows take the consumer's types whatever the storage type guessed from the cells")
+    public void testRowsAsDeclaredTypes() throws IOException {
+        Class<?>[] types = {String.class, int.class, Integer.class, double.class};
+        TypedDataSet blank = TypedDataSet.fromCsv(writeCsv("userId,status,limit,price\n2,200,,3\n,404,5,1e3\n").toString());
+        TypedDataSet filled = TypedDataSet.fromCsv(writeCsv("userId,status,limit,price\n2,200,1,3\n23,404,5,1e3\n").toString());
+        Assert.assertEquals(blank.columnType(0), TypedDataSet.ColumnType.STRING);
+        Assert.assertEquals(filled.columnType(0), TypedDataSet.ColumnType.INT);
+
+        List<Object[]> rows = drain(blank.rows(types));
+        Assert.assertEquals(rows.get(0), new Object[]{"2", 200, null, 3.0});
+        Assert.assertEquals(rows.get(1), new Object[]{"", 404, 5, 1000.0});
+        Assert.assertEquals(drain(filled.rows(types)).get(1), new Object[]{"23", 404, 5, 1000.0});
+        Assert.assertEquals(drain(filled.rows(new Class<?>[]{String.class}, "price")).get(0), new Object[]{"3"});
+        Assert.assertEquals(drain(filled.rowsWhere("userId", "23", new Class<?>[]{long.class}, "status")).get(0), new Object[]{404L});
+
+        Assert.expectThrows(IllegalArgumentException.class, () -> blank.rows(new Class<?>[]{String.class}));
+        Assert.expectThrows(IllegalArgumentException.class, () -> blank.rows(new Class<?>[]{List.class}, "userId"));
+        IllegalStateException error = Assert.expectThrows(IllegalStateException.class,
+                () -> drain(blank.rows(new Class<?>[]{int.class}, "userId")));
+        Assert.assertEquals(error.getMessage(), "Column 'userId' is blank in row 2 and cannot be passed as int");
+    }
+
+    @Test(description = "The binary file is reused until the source changes, then rebuilt")
+    public void testRebuildsWhenSourceChanges() throws IOException {
+        Path csv = writeCsv("status\n200\n");
+        TypedDataSet first = TypedDataSet.fromCsv(csv.toString());
+        Assert.assertSame(TypedDataSet.fromCsv(csv.toString()), first);
+
+        FileTime previous = Files.getLastModifiedTime(csv);
+        Files.write(csv, "status\n200\nnot found\n".getBytes(StandardCharsets.UTF_8));
+        Files.setLastModifiedTime(csv, FileTime.fromMillis(previous.toMillis() + 1000));
+        TypedDataSet second = TypedDataSet.fromCsv(csv.toString());
+        Assert.assertEquals(second.rowCount(), 2);
+        Assert.assertEquals(second.columnType(0), TypedDataSet.ColumnType.STRING);
+        Assert.assertEquals(drain(second.rows()).get(1), new Object[]{"not found"});
+    }
+
+    @Test(description = "Workbook sheets convert with their header names")
+    public void testXlsxSheet() throws IOException {
+        TypedDataSet users = TypedDataSet.fromXlsx("src/test/resources/reqres/reqres_testdata.xlsx", "users");
+        Assert.assertEquals(users.columnType(users.column("expectedStatus")), TypedDataSet.ColumnType.INT);
+        Assert.assertEquals(drain(users.rows("name", "expectedStatus")).get(0), new Object[]{"John Doe", 201});
+    }
+
+    @Test(description = "Rows can be filtered on a column's value")
+    public void testRowsWhere() throws IOException {
+        TypedDataSet users = TypedDataSet.fromXlsx("src/test/resources/reqres/reqres_testdata.xlsx", "users");
+        List<Object[]> posts = drain(users.rowsWhere("method", "POST", "name", "expectedStatus"));
+        Assert.assertEquals(posts.size(), 1);
+        Assert.assertEquals(posts.get(0), new Object[]{"John Doe", 201});
+        Assert.assertEquals(drain(users.rowsWhere("expectedStatus", "204", "method")).get(0), new Object[]{"DELETE"});
+        Assert.assertFalse(users.rowsWhere("method", "HEAD").hasNext());
+    }
+
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public void testUnknownColumn() throws IOException {
+        TypedDataSet.fromCsv(writeCsv("a\n1\n").toString()).rows("b");
+    }
+
+    private static Path writeCsv(String content) throws IOException {
+        Path file = Files.createTempFile("typed", ".csv");
+        file.toFile().deleteOnExit();
+        Files.write(file, content.getBytes(StandardCharsets.UTF_8));
+        return file;
+    }
+
+    private static List<Object[]> drain(Iterator<Object[]> rows) {
+        List<Object[]> result = new ArrayList<>();
+        rows.forEachRemaining(result::add);
+        return result;
+    }
+}
@@ -0,0 +1,204 @@
+package utils;
+
+import org.testng.IDataProviderInterceptor;
+import org.testng.IDataProviderMethod;
+import org.testng.ITestContext;
+import org.testng.ITestNGMethod;
+import org.testng.ITestResult;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Fans data-provider rows out to {@link TestExecutors#requests()} when
+ * {@code -Dexecutor.mode=virtual} is set. Up to {@code -Dexecutor.inflight} rows (default 1000)
+ * run concurrently on virtual threads ahead of TestNG; TestNG then walks the rows as usual and
+ * {@link BaseTest} replays each recorded outcome, so results, failures and reports look the same
+ * as a normal run. Only classes extending {@link BaseTest} are fanned out. The fanned-out body runs
+ * without per-row {@code @BeforeMethod}/{@code @AfterMethod} around it, which none of the
+ * data-driven tests use.
+ */
+public class VirtualThreadRowInterceptor implements IDataProviderInterceptor {
+
+    private static final ConcurrentMap<RowKey, Queue<RowOutcome>> OUTCOMES = new ConcurrentHashMap<>();
+    private static final ShardInterceptor SHARD = new ShardInterceptor();
+
+    @Override
+    public Iterator<Object[]> intercept(Iterator<Object[]> original, IDataProviderMethod dataProviderMethod,
+                                        ITestNGMethod method, ITestContext context) {
+        if (!TestExecutors.virtualThreads() || !(method.getInstance() instanceof BaseTest)) {
+            return original;
+        }
+        // TestNG may call this before ShardInterceptor; never fan out another shard's rows.
+        Iterator<Object[]> owned = SHARD.ownedRows(original, method.getQualifiedName());
+        return new FanOutIterator(owned, method, TestConfig.getInt("executor.inflight", 1000));
+    }
+
+    /**
+     * Returns, and forgets, the outcome already recorded for this invocation, or null when the
+     * row was not fanned out and must run normally.
+     */
+    static RowOutcome takeOutcome(ITestResult result) {
+        if (OUTCOMES.isEmpty()) {
+            return null;
+        }
+        RowKey key = new RowKey(result.getMethod().getConstructorOrMethod().getMethod(), result.getInstance(), result.getParameters());
+        Queue<RowOutcome> outcomes = OUTCOMES.get(key);
+        if (outcomes == null) {
+            return null;
+        }
+        RowOutcome outcome = outcomes.poll();
+        if (outcomes.isEmpty()) {
+            OUTCOMES.remove(key, outcomes);
+        }
+        return outcome;
+    }
+
+    private static final class FanOutIterator implements Iterator<Object[]> {
+        private final Iterator<Object[]> original;
+        private final Method method;
+        private final Object instance;
+        private final int inFlight;
+        private final Deque<Pending> window = new ArrayDeque<>();
+
+        FanOutIterator(Iterator<Object[]> original, ITestNGMethod method, int inFlight) {
+            this.original = original;
+            this.method = method.getConstructorOrMethod().getMethod();
+            this.instance = method.getInstance();
+            this.inFlight = Math.max(1, inFlight);
+            this.method.setAccessible(true);
+        }
+
+        @Override
+        public boolean hasNext() {
+            fill();
+            return !window.isEmpty();
+        }
+
+        @Override
+        public Object[] next() {
+            fill();
+            Pending pending = window.poll();
+            if (pending == null) {
+                throw new NoSuchElementException();
+            }
+            RowOutcome outcome = pending.outcome.join();
+            OUTCOMES.computeIfAbsent(new RowKey(method, instance, pending.row), key -> new ConcurrentLinkedQueue<>()).add(outcome);
+            return pending.row;
+        }
+
+        private void fill() {
+            while (window.size() < inFlight && original.hasNext()) {
+                Object[] row = original.next();
+                window.add(new Pending(row, CompletableFuture.supplyAsync(() -> RowOutcome.run(method, instance, row), TestExecutors.requests())));
+            }
+        }
+    }
+
+    private static final class Pending {
+        final Object[] row;
+        final CompletableFuture<RowOutcome> outcome;
+
+        Pending(Object[] row, CompletableFuture<RowOutcome> outcome) {
+            this.row = row;
+            this.outcome = outcome;
+        }
+    }
+
+    /**
+     * What happened when a row's test body ran on a virtual thread.
+     */
+    static final class RowOutcome {
+        private final Throwable failure;
+        private final long durationMillis;
+        private final List<ExchangeRecorder.Exchange> exchanges;
+        private final Set<String> endpoints;
+        private final List<RetryFilter.Retry> retries;
+
+        private RowOutcome(Throwable failure, long durationMillis, List<ExchangeRecorder.Exchange> exchanges,
+                           Set<String> endpoints, List<RetryFilter.Retry> retries) {
+            this.failure = failure;
+            this.durationMillis = durationMillis;
+            this.exchanges = exchanges;
+            this.endpoints = endpoints;
+            this.retries = retries;
+        }
+
+        static RowOutcome run(Method method, Object instance, Object[] row) {
+            long start = System.currentTimeMillis();
+            Throwable failure = null;
+            ExchangeRecorder.clear();
+            LatencyRecorder.clear();
+            RetryFilter.clear();
+            try {
+                method.invoke(instance, row);
+            } catch (InvocationTargetException e) {
+                failure = e.getCause();
+            } catch (Throwable e) {
+                failure = e;
+            }
+            List<ExchangeRecorder.Exchange> exchanges = ExchangeRecorder.drain();
+            return new RowOutcome(failure, System.currentTimeMillis() - start, failure == null ? null : exchanges,
+                    LatencyRecorder.drainTouched(), RetryFilter.drain());
+        }
+
+        /**
+         * Completes the TestNG invocation with the recorded result.
+         */
+        void replay(ITestResult result) {
+            result.setAttribute("executor.durationMillis", durationMillis);
+            LatencyRecorder.adopt(endpoints);
+            RetryFilter.adopt(retries);
+            if (failure == null) {
+                result.setStatus(ITestResult.SUCCESS);
+            } else {
+                ExchangeRecorder.adopt(exchanges);
+                RowOutcome.<RuntimeException>rethrow(failure);
+            }
+        }
+
+        @SuppressWarnings("unchecked")
+        private static <T extends Throwable> void rethrow(Throwable failure) throws T {
+            throw (T) failure;
+        }
+    }
+
+    private static final class RowKey {
+        private final Method method;
+        private final Object instance;
+        private final List<Object> row;
+
+        RowKey(Method method, Object instance, Object[] row) {
+            this.method = method;
+            this.instance = instance;
+            this.row = Arrays.asList(row);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof RowKey)) {
+                return false;
+            }
+            RowKey other = (RowKey) o;
+            return method.equals(other.method) && instance == other.instance && row.equals(other.row);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(method, System.identityHashCode(instance), row);
+        }
+    }
+}
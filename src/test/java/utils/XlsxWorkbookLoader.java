@@ -0,0 +1,203 @@
+package utils;
+
+import org.apache.poi.openxml4j.exceptions.OpenXML4JException;
+import org.apache.poi.openxml4j.opc.OPCPackage;
+import org.apache.poi.openxml4j.opc.PackageAccess;
+import org.apache.poi.ss.usermodel.DataFormatter;
+import org.apache.poi.ss.util.CellReference;
+import org.apache.poi.util.XMLHelper;
+import org.apache.poi.xssf.eventusermodel.ReadOnlySharedStringsTable;
+import org.apache.poi.xssf.eventusermodel.XSSFReader;
+import org.apache.poi.xssf.eventusermodel.XSSFSheetXMLHandler;
+import org.apache.poi.xssf.model.StylesTable;
+import org.apache.poi.xssf.usermodel.XSSFComment;
+import org.xml.sax.InputSource;
+import org.xml.sax.SAXException;
+import org.xml.sax.XMLReader;
+
+import javax.xml.parsers.ParserConfigurationException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Reads .xlsx data sets through POI's SAX event model instead of a DOM {@code XSSFWorkbook}.
+ * Every sheet of a workbook is parsed in a single pass and cached until the file's
+ * last-modified time changes, so repeated data providers over the same file cost one parse.
+ * Cell values are formatted the way Excel displays them (a status of 201 stays "201").
+ */
+public final class XlsxWorkbookLoader {
+
+    private static final Map<Path, CachedWorkbook> CACHE = new ConcurrentHashMap<>();
+
+    private XlsxWorkbookLoader() {
+    }
+
+    /**
+     * Returns the data rows of the named sheet, header row excluded.
+     */
+    public static Iterator<Object[]> rows(String filePath, String sheetName) throws IOException {
+        List<Object[]> rows = load(filePath).sheets.get(sheetName);
+        if (rows == null) {
+            throw new IllegalArgumentException("Sheet '" + sheetName + "' not found in " + filePath);
+        }
+        return new RowIterator(rows);
+    }
+
+    /**
+     * Returns the data rows of the sheet at the given position, header row excluded.
+     */
+    public static Iterator<Object[]> rows(String filePath, int sheetIndex) throws IOException {
+        List<List<Object[]>> sheets = new ArrayList<>(load(filePath).sheets.values());
+        if (sheetIndex < 0 || sheetIndex >= sheets.size()) {
+            throw new IllegalArgumentException("Sheet index " + sheetIndex + " out of range for " + filePath);
+        }
+        return new RowIterator(sheets.get(sheetIndex));
+    }
+
+    /**
+     * Returns the header row of the named sheet.
+     */
+    public static List<String> header(String filePath, String sheetName) throws IOException {
+        List<String> header = load(filePath).headers.get(sheetName);
+        if (header == null) {
+            throw new IllegalArgumentException("Sheet '" + sheetName + "' not found in " + filePath);
+        }
+        return header;
+    }
+
+    private static CachedWorkbook load(String filePath) throws IOException {
+        Path path = Paths.get(filePath).toAbsolutePath().normalize();
+        long lastModified = Files.getLastModifiedTime(path).toMillis();
+        try {
+            return CACHE.compute(path, (key, cached) ->
+                    cached != null && cached.lastModified == lastModified ? cached : parse(key, lastModified));
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    private static CachedWorkbook parse(Path path, long lastModified) {
+        Map<String, List<Object[]>> sheets = new LinkedHashMap<>();
+        Map<String, List<String>> headers = new LinkedHashMap<>();
+        try (OPCPackage pkg = OPCPackage.open(path.toFile(), PackageAccess.READ)) {
+            XSSFReader reader = new XSSFReader(pkg);
+            ReadOnlySharedStringsTable strings = new ReadOnlySharedStringsTable(pkg);
+            StylesTable styles = reader.getStylesTable();
+            DataFormatter formatter = new DataFormatter();
+            XSSFReader.SheetIterator it = (XSSFReader.SheetIterator) reader.getSheetsData();
+            while (it.hasNext()) {
+                try (InputStream sheet = it.next()) {
+                    SheetCollector collector = new SheetCollector();
+                    XMLReader parser = XMLHelper.newXMLReader();
+                    parser.setContentHandler(new XSSFSheetXMLHandler(styles, strings, collector, formatter, false));
+                    parser.parse(new InputSource(sheet));
+                    sheets.put(it.getSheetName(), collector.rows());
+                    headers.put(it.getSheetName(), Collections.unmodifiableList(collector.header));
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } catch (OpenXML4JException | SAXException | ParserConfigurationException e) {
+            throw new UncheckedIOException(new IOException("Unable to read workbook " + path, e));
+        }
+        return new CachedWorkbook(lastModified, sheets, headers);
+    }
+
+    private static final class CachedWorkbook {
+        final long lastModified;
+        final Map<String, List<Object[]>> sheets;
+        final Map<String, List<String>> headers;
+
+        CachedWorkbook(long lastModified, Map<String, List<Object[]>> sheets, Map<String, List<String>> headers) {
+            this.lastModified = lastModified;
+            this.sheets = sheets;
+            this.headers = headers;
+        }
+    }
+
+    /**
+     * Collects one sheet; the first row is the header and fixes the column count.
+     */
+    private static final class SheetCollector implements XSSFSheetXMLHandler.SheetContentsHandler {
+        private final List<Object[]> rows = new ArrayList<>();
+        private final List<String> header = new ArrayList<>();
+        private boolean inHeader = true;
+        private Object[] current;
+        private int lastColumn;
+
+        @Override
+        public void startRow(int rowNum) {
+            lastColumn = -1;
+            if (!inHeader) {
+                current = new Object[header.size()];
+                Arrays.fill(current, "");
+            }
+        }
+
+        @Override
+        public void endRow(int rowNum) {
+            if (inHeader) {
+                inHeader = false;
+            } else {
+                rows.add(current);
+            }
+        }
+
+        @Override
+        public void cell(String cellReference, String formattedValue, XSSFComment comment) {
+            int column = cellReference == null ? lastColumn + 1 : new CellReference(cellReference).getCol();
+            lastColumn = column;
+            String value = formattedValue == null ? "" : formattedValue;
+            if (inHeader) {
+                while (header.size() < column) {
+                    header.add("");
+                }
+                header.add(value);
+            } else if (column < current.length) {
+                current[column] = value;
+            }
+        }
+
+        List<Object[]> rows() {
+            return Collections.unmodifiableList(rows);
+        }
+    }
+
+    /**
+     * Hands out copies of the cached rows one at a time so callers cannot corrupt the cache.
+     */
+    private static final class RowIterator implements Iterator<Object[]> {
+        private final List<Object[]> rows;
+        private int next;
+
+        RowIterator(List<Object[]> rows) {
+            this.rows = rows;
+        }
+
+        @Override
+        public boolean hasNext() {
+            return next < rows.size();
+        }
+
+        @Override
+        public Object[] next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            return rows.get(next++).clone();
+        }
+    }
+}
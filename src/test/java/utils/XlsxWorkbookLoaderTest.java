@@ -0,0 +1,82 @@
+package utils;
+
+import org.apache.poi.xssf.usermodel.XSSFRow;
+import org.apache.poi.xssf.usermodel.XSSFSheet;
+import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+public class XlsxWorkbookLoaderTest {
+
+    @Test(description = "Rows come back formatted as displayed, with blanks for missing cells")
+    public void testReadsSheetByNameAndIndex() throws IOException {
+        Path file = writeWorkbook("before");
+        List<Object[]> users = drain(XlsxWorkbookLoader.rows(file.toString(), "users"));
+        Assert.assertEquals(users.size(), 2);
+        Assert.assertEquals(users.get(0), new Object[]{"Alice", "201", "before"});
+        Assert.assertEquals(users.get(1), new Object[]{"", "204", ""});
+
+        List<Object[]> second = drain(XlsxWorkbookLoader.rows(file.toString(), 1));
+        Assert.assertEquals(second.size(), 1);
+        Assert.assertEquals(second.get(0), new Object[]{"1"});
+    }
+
+    @Test(description = "Cached rows are re-parsed once the file's modification time changes")
+    public void testReloadsWhenFileChanges() throws IOException {
+        Path file = writeWorkbook("before");
+        drain(XlsxWorkbookLoader.rows(file.toString(), "users")).get(0)[0] = "mutated";
+        Assert.assertEquals(drain(XlsxWorkbookLoader.rows(file.toString(), "users")).get(0)[0], "Alice");
+
+        FileTime previous = Files.getLastModifiedTime(file);
+        writeWorkbook(file, "after");
+        Files.setLastModifiedTime(file, FileTime.fromMillis(previous.toMillis() + 1000));
+        Assert.assertEquals(drain(XlsxWorkbookLoader.rows(file.toString(), "users")).get(0)[2], "after");
+    }
+
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public void testUnknownSheet() throws IOException {
+        XlsxWorkbookLoader.rows(writeWorkbook("before").toString(), "missing");
+    }
+
+    private static Path writeWorkbook(String note) throws IOException {
+        Path file = Files.createTempFile("loader", ".xlsx");
+        file.toFile().deleteOnExit();
+        writeWorkbook(file, note);
+        return file;
+    }
+
+    private static void writeWorkbook(Path file, String note) throws IOException {
+        try (XSSFWorkbook workbook = new XSSFWorkbook(); OutputStream out = Files.newOutputStream(file)) {
+            XSSFSheet users = workbook.createSheet("users");
+            XSSFRow header = users.createRow(0);
+            header.createCell(0).setCellValue("name");
+            header.createCell(1).setCellValue("expectedStatus");
+            header.createCell(2).setCellValue("note");
+            XSSFRow first = users.createRow(1);
+            first.createCell(0).setCellValue("Alice");
+            first.createCell(1).setCellValue(201);
+            first.createCell(2).setCellValue(note);
+            users.createRow(2).createCell(1).setCellValue(204);
+
+            XSSFSheet ids = workbook.createSheet("ids");
+            ids.createRow(0).createCell(0).setCellValue("userId");
+            ids.createRow(1).createCell(0).setCellValue(1);
+            workbook.write(out);
+        }
+    }
+
+    private static List<Object[]> drain(Iterator<Object[]> rows) {
+        List<Object[]> result = new ArrayList<>();
+        rows.forEachRemaining(result::add);
+        return result;
+    }
+}